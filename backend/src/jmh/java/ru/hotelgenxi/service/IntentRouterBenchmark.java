@@ -0,0 +1,92 @@
+package ru.hotelgenxi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⏱ IntentRouter: автомат Ахо–Корасик против прежних циклов contains()
+ * <p>
+ * Прежняя маршрутизация для каждого намерения заново делала toLowerCase() и перебирала
+ * все фразы словаря через contains() до первого совпадения (isHotelSearchQuery, isResearchQuery,
+ * shouldProcessWithRAG). Сообщения без совпадений — худший случай: перебирается весь словарь.
+ * <p>
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="IntentRouterBenchmark -f 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntentRouterBenchmark {
+
+    private static final Map<String, String> MESSAGES = Map.of(
+            "hotel", "Подберите отель в Кемере с аквапарком и детским клубом до 15000 рублей за ночь",
+            "research", "Какая погода будет в Анталье на следующей неделе и нужна ли виза?",
+            "general", "Привет! Спасибо за помощь, ты очень выручил, хорошего тебе дня",
+            "long", "Мы с женой и двумя детьми хотим в конце июня слетать на море на десять дней, "
+                    + "бюджет примерно двести тысяч на всех, важно чтобы было чисто, тихо по вечерам "
+                    + "и была хорошая анимация для детей, посоветуй что-нибудь подходящее");
+
+    @Param({"hotel", "research", "general", "long"})
+    public String kind;
+
+    private String message;
+    private IntentRouter router;
+    private Map<IntentRouter.Intent, String[]> phrasesByIntent;
+
+    @Setup
+    public void setUp() {
+        message = MESSAGES.get(kind);
+        router = new IntentRouter();
+        phrasesByIntent = new EnumMap<>(IntentRouter.Intent.class);
+        for (IntentRouter.Intent intent : List.of(IntentRouter.Intent.HOTEL_SEARCH,
+                IntentRouter.Intent.RESEARCH, IntentRouter.Intent.RAG)) {
+            phrasesByIntent.put(intent, router.triggers().stream()
+                    .filter(trigger -> trigger.intent() == intent)
+                    .map(IntentRouter.Trigger::phrase)
+                    .toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Один проход автомата: все намерения с весами
+     */
+    @Benchmark
+    public IntentRouter.Classification automaton() {
+        return router.classify(message);
+    }
+
+    /**
+     * Прежний способ: отдельный toLowerCase() и перебор contains() на каждое намерение
+     */
+    @Benchmark
+    public void containsLoops(Blackhole blackhole) {
+        for (String[] phrases : phrasesByIntent.values()) {
+            String lower = message.toLowerCase();
+            boolean matched = false;
+            for (String phrase : phrases) {
+                if (lower.contains(phrase)) {
+                    matched = true;
+                    break;
+                }
+            }
+            blackhole.consume(matched);
+        }
+    }
+}
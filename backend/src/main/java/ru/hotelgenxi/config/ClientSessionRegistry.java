@@ -0,0 +1,67 @@
+package ru.hotelgenxi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🆔 Связка «ID клиента → WebSocket сессия»
+ * ✅ Клиент один раз генерирует свой ID и шлёт его в STOMP CONNECT и в HTTP-загрузках (X-Session-ID)
+ * ✅ Загрузки (фото, аудио, документы) попадают в ту же очередь и память диалога, что и чат
+ * ✅ Связка снимается при отключении WebSocket
+ */
+@Component
+public class ClientSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientSessionRegistry.class);
+
+    public static final String HEADER = "X-Session-ID";
+
+    // Ограничение на длину ID от клиента — он попадает в ключи кэшей и логи
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    private final Map<String, String> sessionsByClient = new ConcurrentHashMap<>();
+    private final Map<String, String> clientsBySession = new ConcurrentHashMap<>();
+
+    /**
+     * Привязывает ID клиента к WebSocket сессии (при STOMP CONNECT)
+     */
+    public void bind(String clientId, String stompSessionId) {
+        if (!valid(clientId) || stompSessionId == null) {
+            return;
+        }
+        String previous = sessionsByClient.put(clientId, stompSessionId);
+        if (previous != null && !previous.equals(stompSessionId)) {
+            clientsBySession.remove(previous, clientId);
+        }
+        clientsBySession.put(stompSessionId, clientId);
+        log.debug("[WEBSOCKET] Client {} bound to session {}", clientId, stompSessionId);
+    }
+
+    /**
+     * WebSocket сессия клиента; если клиент не подключён — сам ID клиента, без ID — null
+     */
+    public String resolve(String clientId) {
+        if (!valid(clientId)) {
+            return null;
+        }
+        return sessionsByClient.getOrDefault(clientId, clientId);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String clientId = clientsBySession.remove(event.getSessionId());
+        if (clientId != null) {
+            sessionsByClient.remove(clientId, event.getSessionId());
+        }
+    }
+
+    private static boolean valid(String clientId) {
+        return clientId != null && !clientId.isBlank() && clientId.length() <= MAX_CLIENT_ID_LENGTH;
+    }
+}
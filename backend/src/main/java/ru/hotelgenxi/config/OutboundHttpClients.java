@@ -0,0 +1,117 @@
+package ru.hotelgenxi.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🌐 ЕДИНЫЙ СЛОЙ ИСХОДЯЩИХ HTTP-ЗАПРОСОВ
+ * ✅ Именованные пулы соединений (reactor-netty) с keep-alive и фоновым вытеснением простаивающих
+ * ✅ HTTP/2 (ALPN) там, где сервер поддерживает, gzip, таймауты на каждый эндпоинт
+ * ✅ Метрики пулов: reactor.netty.connection.provider.* (Micrometer)
+ * <p>
+ * И WebClient, и RestTemplate строятся поверх одного и того же HttpClient,
+ * поэтому TLS-рукопожатия и соединения переиспользуются всеми вызовами к одному API.
+ */
+@Component
+public class OutboundHttpClients {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttpClients.class);
+
+    private final OutboundHttpProperties properties;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    public OutboundHttpClients(OutboundHttpProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 🔌 HttpClient для именованного пула (создаётся один раз)
+     */
+    public HttpClient httpClient(String name) {
+        return clients.computeIfAbsent(name, this::createHttpClient);
+    }
+
+    /**
+     * ⚡ WebClient.Builder поверх пула (baseUrl и заголовки задаёт вызывающий)
+     */
+    public WebClient.Builder webClient(String name) {
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(name)));
+    }
+
+    /**
+     * 🔁 Блокирующий RestTemplate поверх того же пула
+     */
+    public RestTemplate restTemplate(String name) {
+        OutboundHttpProperties.Pool pool = pool(name);
+        ReactorNettyClientRequestFactory requestFactory = new ReactorNettyClientRequestFactory(httpClient(name));
+        requestFactory.setExchangeTimeout(pool.getResponseTimeout());
+        requestFactory.setReadTimeout(pool.getResponseTimeout());
+        return new RestTemplate(requestFactory);
+    }
+
+    public OutboundHttpProperties.Pool pool(String name) {
+        return properties.pool(name);
+    }
+
+    private HttpClient createHttpClient(String name) {
+        OutboundHttpProperties.Pool pool = pool(name);
+
+        ConnectionProvider provider = providers.computeIfAbsent(name, key -> ConnectionProvider.builder(key)
+                .maxConnections(pool.getMaxConnections())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .evictInBackground(pool.getMaxIdleTime())
+                .metrics(true)
+                .build());
+
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(pool.getResponseTimeout())
+                .compress(pool.getCompress())
+                .metrics(true, uri -> name);
+
+        if (pool.getHttp2()) {
+            Http2SslContextSpec sslSpec = pool.getTrustAll()
+                    ? Http2SslContextSpec.forClient()
+                            .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                    : Http2SslContextSpec.forClient();
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(spec -> spec.sslContext(sslSpec));
+        } else {
+            Http11SslContextSpec sslSpec = pool.getTrustAll()
+                    ? Http11SslContextSpec.forClient()
+                            .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                    : Http11SslContextSpec.forClient();
+            client = client.secure(spec -> spec.sslContext(sslSpec));
+        }
+
+        log.info("[HTTP] Pool '{}' created: maxConnections={}, http2={}, gzip={}, responseTimeout={}",
+                name, pool.getMaxConnections(), pool.getHttp2(), pool.getCompress(), pool.getResponseTimeout());
+        return client;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.hotelgenxi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 🌐 Настройки исходящих HTTP-пулов (outbound.http.pools.<имя>.*)
+ * Каждый внешний API получает свой именованный пул соединений
+ * ✅ Встроенные значения пулов — в BUILT_IN_POOLS; свойство из конфигурации меняет только своё поле
+ *    (outbound.http.pools.gigachat.max-connections=100 не сбрасывает trustAll/http2/responseTimeout)
+ */
+@Data
+@ConfigurationProperties(prefix = "outbound.http")
+public class OutboundHttpProperties {
+
+    public static final String GIGACHAT = "gigachat";
+    public static final String SBER_OAUTH = "sber-oauth";
+    public static final String SALUTE_SPEECH = "salute-speech";
+    public static final String TAVILY = "tavily";
+    public static final String DEFAULT = "default";
+
+    private static final Map<String, Pool> BUILT_IN_POOLS = Map.of(
+            // Стримы GigaChat длинные — большой responseTimeout, HTTP/2 для мультиплексирования
+            GIGACHAT, new Pool(50, Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(10),
+                    Duration.ofSeconds(10), Duration.ofSeconds(120), true, true, true),
+            SBER_OAUTH, new Pool(4, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofSeconds(10),
+                    Duration.ofSeconds(10), Duration.ofSeconds(15), false, true, true),
+            SALUTE_SPEECH, new Pool(10, Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(10),
+                    Duration.ofSeconds(30), Duration.ofSeconds(60), false, true, true),
+            TAVILY, new Pool(10, Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(10),
+                    Duration.ofSeconds(10), Duration.ofSeconds(30), true, true, false),
+            DEFAULT, new Pool(20, Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(10),
+                    Duration.ofSeconds(10), Duration.ofSeconds(30), false, true, false)
+    );
+
+    // Переопределения из конфигурации: MapBinder создаёт Pool заново, поэтому незаданные поля здесь null
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    /**
+     * 🔧 Итоговые параметры пула: встроенные значения + явно заданные поля.
+     * Пул без встроенных значений (и неизвестное имя) строится поверх default
+     */
+    public Pool pool(String name) {
+        Pool base = BUILT_IN_POOLS.get(name);
+        if (base == null) {
+            base = pool(DEFAULT);
+        }
+        Pool override = pools.get(name);
+        return (override != null ? override : new Pool()).mergedOnto(base);
+    }
+
+    /**
+     * 🔧 Параметры одного пула (null — значение не задано, берётся из встроенного пула)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private Integer maxConnections;
+        private Duration maxIdleTime;
+        private Duration maxLifeTime;
+        private Duration pendingAcquireTimeout;
+        private Duration connectTimeout;
+        private Duration responseTimeout;
+        private Boolean http2;
+        private Boolean compress;
+        // ⚠️ Сертификаты Сбера выданы НУЦ Минцифры — без него в truststore проверку приходится отключать
+        private Boolean trustAll;
+
+        /**
+         * Новый пул: заданные здесь поля, остальные — из base
+         */
+        Pool mergedOnto(Pool base) {
+            return new Pool(
+                    maxConnections != null ? maxConnections : base.maxConnections,
+                    maxIdleTime != null ? maxIdleTime : base.maxIdleTime,
+                    maxLifeTime != null ? maxLifeTime : base.maxLifeTime,
+                    pendingAcquireTimeout != null ? pendingAcquireTimeout : base.pendingAcquireTimeout,
+                    connectTimeout != null ? connectTimeout : base.connectTimeout,
+                    responseTimeout != null ? responseTimeout : base.responseTimeout,
+                    http2 != null ? http2 : base.http2,
+                    compress != null ? compress : base.compress,
+                    trustAll != null ? trustAll : base.trustAll
+            );
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package ru.hotelgenxi.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableConfigurationProperties(OutboundHttpProperties.class)
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(OutboundHttpClients outboundHttpClients) {
+        return outboundHttpClients.restTemplate(OutboundHttpProperties.DEFAULT);
     }
 }
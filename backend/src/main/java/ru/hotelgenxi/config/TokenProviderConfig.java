@@ -0,0 +1,84 @@
+package ru.hotelgenxi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hotelgenxi.service.TokenProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 🔐 Провайдеры OAuth-токенов Сбера: GigaChat и SaluteSpeech
+ * Оба ходят в один OAuth-эндпоинт через общий пул sber-oauth
+ * <p>
+ * Сохранение токена между рестартами — только при oauth.token.persist=true:
+ * в личный каталог (0700, по умолчанию ~/.hotelgenix/tokens), файл 0600 на каждую пару client-id + scope
+ */
+@Configuration
+public class TokenProviderConfig {
+
+    public static final String GIGACHAT = "gigachatTokenProvider";
+    public static final String SALUTE_SPEECH = "saluteSpeechTokenProvider";
+
+    private static final String OAUTH_ENDPOINT = "https://ngw.devices.sberbank.ru:9443/api/v2/oauth";
+
+    @Value("${oauth.token.persist:false}")
+    private boolean persist;
+
+    @Value("${oauth.token.store-dir:#{systemProperties['user.home']}/.hotelgenix/tokens}")
+    private String storeDir;
+
+    @Value("${oauth.token.refresh-ahead:PT5M}")
+    private Duration refreshAhead;
+
+    @Bean(name = GIGACHAT, initMethod = "start", destroyMethod = "shutdown")
+    public TokenProvider gigachatTokenProvider(
+            OutboundHttpClients httpClients,
+            MeterRegistry meterRegistry,
+            @Value("${gigachat.client-id}") String clientId,
+            @Value("${gigachat.client-secret}") String clientSecret,
+            @Value("${gigachat.scope:GIGACHAT_API_PERS}") String scope
+    ) {
+        // GigaChat исторически получает RqUID = client-id
+        return new TokenProvider("gigachat", httpClients.restTemplate(OutboundHttpProperties.SBER_OAUTH),
+                OAUTH_ENDPOINT, clientId, clientSecret, scope, clientId,
+                refreshAhead, storeFile("gigachat", clientId, scope), meterRegistry);
+    }
+
+    @Bean(name = SALUTE_SPEECH, initMethod = "start", destroyMethod = "shutdown")
+    public TokenProvider saluteSpeechTokenProvider(
+            OutboundHttpClients httpClients,
+            MeterRegistry meterRegistry,
+            @Value("${salute.speech.client-id}") String clientId,
+            @Value("${salute.speech.client-secret}") String clientSecret,
+            @Value("${salute.speech.scope:SALUTE_SPEECH_PERS}") String scope
+    ) {
+        return new TokenProvider("salute-speech", httpClients.restTemplate(OutboundHttpProperties.SBER_OAUTH),
+                OAUTH_ENDPOINT, clientId, clientSecret, scope, null,
+                refreshAhead, storeFile("salute-speech", clientId, scope), meterRegistry);
+    }
+
+    /**
+     * Файл токена (null — не сохранять): имя включает хеш client-id и scope,
+     * так что токен другой учётной записи или scope не будет прочитан по ошибке
+     */
+    private Path storeFile(String name, String clientId, String scope) {
+        if (!persist) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest((clientId + "\n" + scope).getBytes(StandardCharsets.UTF_8));
+            return Paths.get(storeDir, name + "-" + HexFormat.of().formatHex(hash, 0, 8) + ".token");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.hotelgenxi.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import ru.hotelgenxi.service.UploadSpool;
+
+/**
+ * 📏 Лимиты multipart из лимитов UploadSpool
+ * ✅ Без этого действует дефолт Spring (1 MB) и отклоняет загрузки раньше, чем до них доходят наши лимиты
+ */
+@Configuration
+public class UploadLimitsConfig {
+
+    // Заголовки частей и поля формы поверх самого файла
+    public static final long MULTIPART_OVERHEAD_BYTES = 64 * 1024;
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(UploadSpool uploadSpool) {
+        DataSize maxFile = uploadSpool.maxLimit();
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setMaxFileSize(maxFile);
+        factory.setMaxRequestSize(DataSize.ofBytes(maxFile.toBytes() + MULTIPART_OVERHEAD_BYTES));
+        return factory.createMultipartConfig();
+    }
+}
@@ -0,0 +1,59 @@
+package ru.hotelgenxi.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.hotelgenxi.service.UploadSpool;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 📏 Отказ по Content-Length ДО приёма тела загрузки
+ * ✅ Multipart разбирается ещё до контроллера: без фильтра файл сначала целиком ложится на диск
+ * ✅ Лимиты те же, что у UploadSpool (фото / аудио / документ)
+ * ✅ Без Content-Length (chunked) запрос проходит дальше — его ограничат лимиты multipart
+ */
+@Component
+public class UploadSizeFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSizeFilter.class);
+
+    private static final String UPLOAD_PREFIX = "/api/upload/";
+
+    private final UploadSpool uploadSpool;
+
+    public UploadSizeFilter(UploadSpool uploadSpool) {
+        this.uploadSpool = uploadSpool;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(UPLOAD_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long contentLength = request.getContentLengthLong();
+        String kind = request.getRequestURI().substring(UPLOAD_PREFIX.length());
+        DataSize limit = uploadSpool.limit(kind);
+        if (contentLength > limit.toBytes() + UploadLimitsConfig.MULTIPART_OVERHEAD_BYTES) {
+            log.warn("[UPLOAD] Rejected {} upload by Content-Length: {} bytes, limit {}", kind, contentLength, limit);
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("❌ Файл слишком большой (максимум " + limit.toMegabytes() + " MB)");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
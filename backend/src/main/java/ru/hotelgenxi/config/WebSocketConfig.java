@@ -26,6 +26,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private static final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
 
+    private final ClientSessionRegistry clientSessions;
+
+    public WebSocketConfig(ClientSessionRegistry clientSessions) {
+        this.clientSessions = clientSessions;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // ✅ /topic — для публичных сообщений
@@ -55,9 +61,11 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 if (accessor != null) {
                     String sessionId = accessor.getSessionId();
 
-                    // ✅ При подключении логируем
+                    // ✅ При подключении логируем и связываем ID клиента (для HTTP-загрузок) с сессией
                     if (StompCommand.CONNECT.equals(accessor.getCommand())) {
-                        log.info("[WEBSOCKET] Client connected. SessionId: {}", sessionId);
+                        String clientId = accessor.getFirstNativeHeader(ClientSessionRegistry.HEADER);
+                        clientSessions.bind(clientId, sessionId);
+                        log.info("[WEBSOCKET] Client connected. SessionId: {}, clientId: {}", sessionId, clientId);
                     }
 
                     // ✅ Для КАЖДОГО сообщения устанавливаем sessionId в ThreadLocal
@@ -3,11 +3,14 @@ package ru.hotelgenxi.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import ru.hotelgenxi.dto.ChatMessage;
+import ru.hotelgenxi.service.ChatAdmissionController;
+import ru.hotelgenxi.service.GigaChatStreamRegistry;
 import ru.hotelgenxi.service.SupervisorAgent;
 import ru.hotelgenxi.service.VisionAgent;
 
@@ -31,23 +34,30 @@ public class ChatController {
     private final SimpMessagingTemplate messagingTemplate;
     private final SupervisorAgent supervisorAgent;
     private final VisionAgent visionAgent;
+    private final GigaChatStreamRegistry streamRegistry;
+    private final ChatAdmissionController admissionController;
 
     public ChatController(
             SimpMessagingTemplate messagingTemplate,
             SupervisorAgent supervisorAgent,
-            VisionAgent visionAgent
+            VisionAgent visionAgent,
+            GigaChatStreamRegistry streamRegistry,
+            ChatAdmissionController admissionController
     ) {
         this.messagingTemplate = messagingTemplate;
         this.supervisorAgent = supervisorAgent;
         this.visionAgent = visionAgent;
+        this.streamRegistry = streamRegistry;
+        this.admissionController = admissionController;
     }
 
     /**
      * 🎯 WebSocket эндпоинт для чата
      */
     @MessageMapping("/chat")
-    public void handleChat(ChatMessage message) {
+    public void handleChat(ChatMessage message, SimpMessageHeaderAccessor headerAccessor) {
         log.info("[CHAT] Received: {}", message.getContent());
+        String sessionId = resolveSessionId(headerAccessor);
 
         try {
             if (message == null || message.getContent() == null || message.getContent().trim().isEmpty()) {
@@ -62,10 +72,20 @@ public class ChatController {
             message.setType("text");
             messagingTemplate.convertAndSend("/topic/messages", message);
 
-            // ✅ Обрабатываем в SupervisorAgent
-            new Thread(() -> {
-                supervisorAgent.handleUserQuery(message.getContent(), generateSessionId());
-            }).start();
+            // ⏹ Новое сообщение вытесняет незавершённый ответ на предыдущее
+            streamRegistry.cancel(sessionId, GigaChatStreamRegistry.CancelReason.SUPERSEDED);
+
+            // ✅ Обрабатываем в SupervisorAgent (через контроль допуска)
+            ChatAdmissionController.Decision decision = admissionController.submit(
+                    sessionId,
+                    () -> supervisorAgent.handleUserQuery(message.getContent(), sessionId),
+                    () -> sendErrorMessage("⏳ Сервис сейчас перегружен, запрос не дождался очереди. Попробуйте ещё раз.")
+            );
+            switch (decision) {
+                case RATE_LIMITED -> sendErrorMessage("⏳ Слишком много сообщений подряд. Подождите несколько секунд.");
+                case BUSY -> sendErrorMessage("⏳ Сервис сейчас перегружен. Попробуйте ещё раз через минуту.");
+                default -> { }
+            }
 
         } catch (Exception e) {
             log.error("[CHAT] Error handling message", e);
@@ -73,6 +93,17 @@ public class ChatController {
         }
     }
 
+    /**
+     * ⏹ WebSocket эндпоинт для остановки генерации ответа (/app/chat/stop)
+     */
+    @MessageMapping("/chat/stop")
+    public void handleStop(SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = resolveSessionId(headerAccessor);
+        if (streamRegistry.cancel(sessionId, GigaChatStreamRegistry.CancelReason.STOPPED)) {
+            log.info("[CHAT] Stream stopped by client. SessionId: {}", sessionId);
+        }
+    }
+
     /**
      * 📤 Отправляет сообщение об ошибке в чат
      */
@@ -97,6 +128,14 @@ public class ChatController {
         messagingTemplate.convertAndSend("/topic/messages", msg);
     }
 
+    /**
+     * 🆔 ID WebSocket сессии (для отмены стримов), иначе — уникальный ID
+     */
+    private String resolveSessionId(SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor != null ? headerAccessor.getSessionId() : null;
+        return sessionId != null ? sessionId : generateSessionId();
+    }
+
     /**
      * 🆔 Генерирует уникальный ID сессии
      */
@@ -2,25 +2,30 @@ package ru.hotelgenxi.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hotelgenxi.config.ClientSessionRegistry;
 import ru.hotelgenxi.dto.ChatMessage;
+import ru.hotelgenxi.service.AgentExecutor;
 import ru.hotelgenxi.service.DocumentParserService;
 import ru.hotelgenxi.service.SpeechToTextService;
 import ru.hotelgenxi.service.SupervisorAgent;
+import ru.hotelgenxi.service.UploadSpool;
 import ru.hotelgenxi.service.VisionAgent;
 import ru.hotelgenxi.util.DocumentStore;
 
 import java.io.IOException;
-import java.util.Base64;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * 🎮 REST Controller для загрузки файлов (с CORS)
+ * ✅ Сессия — из заголовка X-Session-ID (тот же ID клиент шлёт в STOMP CONNECT)
+ * ✅ Обработка — в фоне, результат приходит в чат через WebSocket
  */
 @RestController
 @RequestMapping("/api/upload")
@@ -33,14 +38,21 @@ public class FileUploadController {
     private final VisionAgent visionAgent;
     private final DocumentParserService documentParserService;
     private final SpeechToTextService speechToTextService;
+    private final UploadSpool uploadSpool;
+    private final AgentExecutor agentExecutor;
+    private final ClientSessionRegistry clientSessions;
 
 
     public FileUploadController(SimpMessagingTemplate messagingTemplate,
-                                VisionAgent visionAgent, DocumentParserService documentParserService, SpeechToTextService speechToTextService) {
+                                VisionAgent visionAgent, DocumentParserService documentParserService, SpeechToTextService speechToTextService,
+                                UploadSpool uploadSpool, AgentExecutor agentExecutor, ClientSessionRegistry clientSessions) {
         this.messagingTemplate = messagingTemplate;
         this.visionAgent = visionAgent;
         this.documentParserService = documentParserService;
         this.speechToTextService = speechToTextService;
+        this.uploadSpool = uploadSpool;
+        this.agentExecutor = agentExecutor;
+        this.clientSessions = clientSessions;
     }
 
     /**
@@ -49,7 +61,10 @@ public class FileUploadController {
      * POST http://localhost:8080/api/upload/image
      */
     @PostMapping("/image")
-    public ResponseEntity<String> uploadImage(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<String> uploadImage(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = ClientSessionRegistry.HEADER, required = false) String clientId
+    ) {
         log.info("[VISION] Image upload started: {}", file.getOriginalFilename());
 
         try {
@@ -57,18 +72,28 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body("❌ Файл пуст");
             }
 
-            byte[] fileBytes = file.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(fileBytes);
+            log.info("[VISION] Image size: {} bytes", file.getSize());
+
+            // Файл загрузки переносится во временное хранилище — в потоке обработки только путь
+            Path imageFile = uploadSpool.spool(file, UploadSpool.KIND_IMAGE);
+            String fileName = file.getOriginalFilename();
 
-            log.info("[VISION] Image size: {} bytes", fileBytes.length);
+            String sessionId = clientSessions.resolve(clientId);
 
-            // Запускаем Vision Agent в отдельном потоке (не блокируем ответ)
-            new Thread(() -> {
-                visionAgent.analyzeImage(base64Image, file.getOriginalFilename());
-            }).start();
+            // Запускаем Vision Agent в фоне (не блокируем ответ)
+            agentExecutor.execute(AgentExecutor.Workload.VISION, sessionId, () -> {
+                try {
+                    visionAgent.analyzeImage(imageFile, fileName, sessionId);
+                } finally {
+                    uploadSpool.release(imageFile);
+                }
+            });
 
             return ResponseEntity.ok("✅ Изображение загружено, анализируем...");
 
+        } catch (UploadSpool.UploadTooLargeException e) {
+            log.warn("[VISION] {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("❌ Изображение слишком большое");
         } catch (IOException e) {
             log.error("[VISION] Error processing image", e);
             return ResponseEntity.status(500).body("❌ Ошибка: " + e.getMessage());
@@ -81,7 +106,10 @@ public class FileUploadController {
      * POST http://localhost:8080/api/upload/audio
      */
     @PostMapping("/audio")
-    public ResponseEntity<String> uploadAudio(@RequestParam("audio") MultipartFile audio) {
+    public ResponseEntity<String> uploadAudio(
+            @RequestParam("audio") MultipartFile audio,
+            @RequestHeader(value = ClientSessionRegistry.HEADER, required = false) String clientId
+    ) {
         log.info("[AUDIO] Audio upload started: {}", audio.getOriginalFilename());
 
         try {
@@ -89,22 +117,26 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body("❌ Аудио пусто");
             }
 
-            byte[] audioBytes = audio.getBytes();
-            log.info("[AUDIO] Audio size: {} bytes", audioBytes.length);
+            log.info("[AUDIO] Audio size: {} bytes", audio.getSize());
 
-            String sessionId = UUID.randomUUID().toString();
+            Path audioFile = uploadSpool.spool(audio, UploadSpool.KIND_AUDIO);
+            String fileName = audio.getOriginalFilename();
+            String sessionId = clientSessions.resolve(clientId);
 
-            // Запускаем распознавание в отдельном потоке
-            new Thread(() -> {
-                speechToTextService.transcribeAndProcess(
-                        audioBytes,
-                        audio.getOriginalFilename(),
-                        sessionId
-                );
-            }).start();
+            // Запускаем распознавание в фоне
+            agentExecutor.execute(AgentExecutor.Workload.AUDIO, sessionId, () -> {
+                try {
+                    speechToTextService.transcribeAndProcess(audioFile, fileName, sessionId);
+                } finally {
+                    uploadSpool.release(audioFile);
+                }
+            });
 
             return ResponseEntity.ok("✅ Аудио загружено, распознаём речь...");
 
+        } catch (UploadSpool.UploadTooLargeException e) {
+            log.warn("[AUDIO] {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("❌ Аудиофайл слишком большой");
         } catch (IOException e) {
             log.error("[AUDIO] Error processing audio", e);
             return ResponseEntity.status(500).body("❌ Ошибка: " + e.getMessage());
@@ -112,20 +144,42 @@ public class FileUploadController {
     }
 
 
+    /**
+     * 📄 Загрузка документа для сравнения
+     *
+     * POST http://localhost:8080/api/upload/document → 202, результат приходит в чат
+     */
     @PostMapping("/document")
-    public ResponseEntity<?> uploadDocument(
-            @RequestParam("file") MultipartFile file
+    public ResponseEntity<String> uploadDocument(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = ClientSessionRegistry.HEADER, required = false) String clientId
     ) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("❌ Файл пуст");
+        }
+        String fileName = file.getOriginalFilename();
+        byte[] bytes;
         try {
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body("❌ Файл пуст");
-            }
+            // Тело запроса читаем здесь: после ответа временный файл multipart удаляется
+            bytes = file.getBytes();
+        } catch (IOException e) {
+            log.error("[PARSER] Error reading upload", e);
+            return ResponseEntity.status(500).body("❌ Ошибка: " + e.getMessage());
+        }
 
+        // Парсинг и OCR тяжёлые — ограничены лимитом documents и идут в фоне, поток запроса не ждёт
+        agentExecutor.execute(AgentExecutor.Workload.DOCUMENTS, clientSessions.resolve(clientId),
+                () -> processDocument(fileName, bytes));
+        return ResponseEntity.accepted().body("✅ Документ загружен, обрабатываем...");
+    }
+
+    private void processDocument(String fileName, byte[] bytes) {
+        try {
             // 📄 Парсим документ
-            String text = documentParserService.parseDocument(file);
+            String text = documentParserService.parseDocument(fileName, bytes);
 
             // 💾 Сохраняем в памяти приложения для будущего сравнения
-            DocumentStore.saveDocument(file.getOriginalFilename(), text, file.getBytes());
+            DocumentStore.saveDocument(fileName, text, bytes);
 
             // 📊 Проверяем, есть ли второй документ
             int docCount = DocumentStore.getDocumentCount();
@@ -196,23 +250,15 @@ public class FileUploadController {
 
                 // 🧹 Очищаем после сравнения
                 DocumentStore.clear();
-
-                return ResponseEntity.ok(comparison);
             } else {
                 // 📌 Это первый документ - ждём второго
-                sendMessage("📄 Документ загружен: " + file.getOriginalFilename() +
+                sendMessage("📄 Документ загружен: " + fileName +
                         "\n\nЗагрузи второй документ для сравнения!");
-
-                return ResponseEntity.ok(Map.of(
-                        "status", "Document stored",
-                        "documentCount", docCount
-                ));
             }
 
         } catch (Exception e) {
             log.error("[PARSER] Error", e);
             sendErrorMessage("❌ Ошибка: " + e.getMessage());
-            return ResponseEntity.status(500).body("Ошибка: " + e.getMessage());
         }
     }
 
@@ -236,11 +282,4 @@ public class FileUploadController {
         msg.setTimestamp(System.currentTimeMillis());
         messagingTemplate.convertAndSend("/topic/messages", msg);
     }
-
-    /**
-     * 🆔 Генерирует ID сессии
-     */
-    private String generateSessionId() {
-        return java.util.UUID.randomUUID().toString();
-    }
 }
\ No newline at end of file
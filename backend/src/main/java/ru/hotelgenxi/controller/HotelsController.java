@@ -1,9 +1,15 @@
 package ru.hotelgenxi.controller;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hotelgenxi.dto.HotelFilters;
 import ru.hotelgenxi.dto.HotelSearchResult;
 import ru.hotelgenxi.dto.SearchRequest;
+import ru.hotelgenxi.service.FacetIndex;
+import ru.hotelgenxi.service.HotelCatalog;
+import ru.hotelgenxi.service.HotelSuggestIndex;
 import ru.hotelgenxi.service.QdrantService;
 
 import java.util.List;
@@ -13,14 +19,27 @@ import java.util.List;
 @CrossOrigin("*")
 public class HotelsController {
 
+    private static final Logger log = LoggerFactory.getLogger(HotelsController.class);
+
     private final QdrantService qdrantService;
+    private final FacetIndex facetIndex;
+    private final HotelCatalog catalog;
+    private final HotelSuggestIndex suggestIndex;
 
-    public HotelsController(QdrantService qdrantService) {
+    public HotelsController(QdrantService qdrantService, FacetIndex facetIndex,
+                            HotelCatalog catalog, HotelSuggestIndex suggestIndex) {
         this.qdrantService = qdrantService;
+        this.facetIndex = facetIndex;
+        this.catalog = catalog;
+        this.suggestIndex = suggestIndex;
     }
 
     @PostMapping("/search")
-    public ResponseEntity<List<HotelSearchResult>> search(@RequestBody SearchRequest request) {
+    public ResponseEntity<?> search(@RequestBody SearchRequest request) {
+        // 🔃 Сортировке нужен курсор страниц — она живёт в /browse (SortedPage с nextCursor)
+        if (request.getSortBy() != null) {
+            return ResponseEntity.badRequest().body("❌ sortBy поддерживается в /api/hotels/browse");
+        }
         try {
             List<HotelSearchResult> results = qdrantService.searchHotels(
                     request.getQuery(),
@@ -34,4 +53,51 @@ public class HotelsController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * 🔃 Сортированный просмотр с курсором: sortBy обязателен, cursor — nextCursor прошлой страницы
+     */
+    @PostMapping("/browse")
+    public ResponseEntity<QdrantService.SortedPage> browse(@RequestBody SearchRequest request) {
+        if (request.getSortBy() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(qdrantService.browseSorted(request.getFilters(), request.getSortBy(),
+                    request.getTopK(), request.getCursor()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("[HOTELS] Sorted browse failed: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 📊 Счётчики по странам, городам, звёздам, удобствам и ценам для фильтров из query-параметров
+     * (?country=Турция&minStars=5&aquapark=true) — из битового индекса, без Qdrant
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetIndex.Facets> facets(@ModelAttribute HotelFilters filters) {
+        return ResponseEntity.ok(facetIndex.count(filters));
+    }
+
+    /**
+     * 🔤 Автодополнение по началу названия отеля, города или страны (лучшие по рейтингу)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<HotelSuggestIndex.Suggestion>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(suggestIndex.suggest(query, limit));
+    }
+
+    /**
+     * 🏨 Один отель по id — из каталога в памяти, без Qdrant
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<HotelSearchResult> hotel(@PathVariable String id) {
+        HotelSearchResult hotel = catalog.hotel(id);
+        return hotel != null ? ResponseEntity.ok(hotel) : ResponseEntity.notFound().build();
+    }
 }
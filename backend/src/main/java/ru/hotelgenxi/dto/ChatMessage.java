@@ -22,6 +22,7 @@ public class ChatMessage {
     private String type;  // "text", "hotel_card", "error", "comparison"
     private Object hotelData;  // Для карточек отелей
     private Object comparisonData;  // Для сравнения
+    private Boolean legacy;  // true — дубль кадра search_results в старом формате (для старых клиентов)
 
     public ChatMessage(String content, String sender) {
         this.content = content;
@@ -5,8 +5,11 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.Set;
+
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class HotelFilters {
@@ -19,4 +22,11 @@ public class HotelFilters {
     private Boolean aquapark;
     private String country;
     private String city;
+    // Признаки из описания: «первая линия», «рейтинг от 4.5»
+    private Integer maxBeachDistanceM;
+    private Double minReviewScore;
+    // Исключения по отзывам: слова (must_not по полнотекстовому индексу) и id отелей (инвертированный индекс);
+    // слово работает как начало слова отзыва: «шум» исключает и «шумно», и «шумный»
+    private List<String> excludedReviewTerms;
+    private Set<String> excludedHotelIds;
 }
@@ -10,7 +10,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class HotelSearchResult {
     private String id;
     private String name;
@@ -28,6 +28,10 @@ public class HotelSearchResult {
     private Boolean allInclusive;
     private Boolean aquapark;
 
+    // ✅ Признаки из описания (HotelFeatureExtractor)
+    private Integer beachDistanceM;
+    private Double reviewScore;
+
     // ✅ Дополнительные поля (для карточек)
     private String imageUrl;
     private List<String> amenities;
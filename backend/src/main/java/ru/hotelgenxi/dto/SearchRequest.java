@@ -14,4 +14,8 @@ public class SearchRequest {
     private HotelFilters filters;
     @Builder.Default
     private int topK = 10;
+    // Сортированный просмотр (/api/hotels/browse): без векторного поиска, query не обязателен
+    private SortBy sortBy;
+    // Курсор следующей страницы — nextCursor из прошлого ответа /browse
+    private String cursor;
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package ru.hotelgenxi.dto;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * 🔃 Сортировка выдачи по полю payload (Qdrant order_by, без векторного поиска)
+ */
+public enum SortBy {
+    PRICE_ASC("price_per_night", true, false, HotelSearchResult::getPricePerNight),
+    RATING_DESC("rating", false, false, HotelSearchResult::getRating),
+    STARS_DESC("stars", false, true, hotel -> hotel.getStars() != null ? hotel.getStars().doubleValue() : null);
+
+    private final String field;
+    private final boolean ascending;
+    private final boolean integer;
+    private final Function<HotelSearchResult, Double> value;
+
+    SortBy(String field, boolean ascending, boolean integer, Function<HotelSearchResult, Double> value) {
+        this.field = field;
+        this.ascending = ascending;
+        this.integer = integer;
+        this.value = value;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public boolean ascending() {
+        return ascending;
+    }
+
+    /**
+     * Поле с integer-индексом (иначе float)
+     */
+    public boolean integer() {
+        return integer;
+    }
+
+    /**
+     * Тот же порядок для уже загруженных отелей (отели без значения — в конце)
+     */
+    public Comparator<HotelSearchResult> comparator() {
+        Comparator<Double> order = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        return Comparator.comparing(value, Comparator.nullsLast(order));
+    }
+}
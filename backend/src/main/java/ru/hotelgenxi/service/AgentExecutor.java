@@ -0,0 +1,189 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.config.SessionContext;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 🧵 ИСПОЛНИТЕЛЬ ЗАДАЧ АГЕНТОВ (виртуальные потоки)
+ * ✅ Замена разрозненных new Thread(): именованные виртуальные потоки, обработка ошибок
+ * ✅ Свой лимит одновременных задач на каждый класс нагрузки (чат, vision, аудио, документы)
+ * ✅ Задачи одной сессии выполняются строго по очереди, в порядке поступления
+ * ✅ SessionContext задачи — её sessionId (не ThreadLocal вызывающего потока), MDC — копия вызывающего
+ * ✅ Метрики: agent.executor.queued / agent.executor.active по классам нагрузки
+ */
+@Component
+public class AgentExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentExecutor.class);
+
+    /**
+     * Класс нагрузки: лимит agent.executor.{name}.max-concurrent
+     */
+    public enum Workload {
+        CHAT("chat", 16),
+        VISION("vision", 4),
+        AUDIO("audio", 4),
+        DOCUMENTS("documents", 2);
+
+        private final String key;
+        private final int defaultLimit;
+
+        Workload(String key, int defaultLimit) {
+            this.key = key;
+            this.defaultLimit = defaultLimit;
+        }
+    }
+
+    private final Map<Workload, Semaphore> limits = new EnumMap<>(Workload.class);
+    private final Map<Workload, AtomicInteger> queued = new EnumMap<>(Workload.class);
+    private final Map<Workload, AtomicInteger> active = new EnumMap<>(Workload.class);
+    private final Map<Workload, ExecutorService> executors = new EnumMap<>(Workload.class);
+
+    // Очереди сессий: пока в очереди есть задачи, следующая стартует только после предыдущей
+    private final Map<String, Deque<Runnable>> sessionQueues = new ConcurrentHashMap<>();
+
+    public AgentExecutor(Environment environment, MeterRegistry meterRegistry) {
+        for (Workload workload : Workload.values()) {
+            int limit = environment.getProperty("agent.executor." + workload.key + ".max-concurrent",
+                    Integer.class, workload.defaultLimit);
+            limits.put(workload, new Semaphore(limit, true));
+            queued.put(workload, new AtomicInteger());
+            active.put(workload, new AtomicInteger());
+            executors.put(workload, Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("agent-" + workload.key + "-", 0).factory()));
+
+            Tags tags = Tags.of("workload", workload.key);
+            meterRegistry.gauge("agent.executor.queued", tags, queued.get(workload));
+            meterRegistry.gauge("agent.executor.active", tags, active.get(workload));
+            log.info("[AGENTS] Workload {}: max {} concurrent", workload.key, limit);
+        }
+        meterRegistry.gauge("agent.executor.sessions", sessionQueues, Map::size);
+    }
+
+    /**
+     * ▶️ Ставит задачу в очередь сессии (sessionId == null — без упорядочивания)
+     */
+    public void execute(Workload workload, String sessionId, Runnable task) {
+        submit(workload, sessionId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * ▶️ То же с результатом. Ошибка задачи логируется и завершает future исключением.
+     */
+    public <T> CompletableFuture<T> submit(Workload workload, String sessionId, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        queued.get(workload).incrementAndGet();
+
+        Runnable job = () -> {
+            Semaphore limit = limits.get(workload);
+            try {
+                limit.acquire();
+            } catch (InterruptedException e) {
+                queued.get(workload).decrementAndGet();
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            }
+            queued.get(workload).decrementAndGet();
+            active.get(workload).incrementAndGet();
+            applyContext(sessionId, mdc);
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                log.error("[AGENTS] {} task failed (session {})", workload.key, sessionId, e);
+                result.completeExceptionally(e);
+            } finally {
+                active.get(workload).decrementAndGet();
+                limit.release();
+                SessionContext.clear();
+                MDC.clear();
+            }
+        };
+
+        if (sessionId == null) {
+            executors.get(workload).execute(job);
+        } else {
+            enqueue(workload, sessionId, job);
+        }
+        return result;
+    }
+
+    private void enqueue(Workload workload, String sessionId, Runnable job) {
+        Runnable start = () -> executors.get(workload).execute(() -> {
+            try {
+                job.run();
+            } finally {
+                runNext(sessionId);
+            }
+        });
+        // compute() атомарен по ключу: голова очереди — выполняющаяся задача сессии
+        AtomicBoolean idle = new AtomicBoolean();
+        sessionQueues.compute(sessionId, (key, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle.set(true);
+            }
+            queue.addLast(start);
+            return queue;
+        });
+        if (idle.get()) {
+            start.run();
+        }
+    }
+
+    private void runNext(String sessionId) {
+        AtomicReference<Runnable> next = new AtomicReference<>();
+        sessionQueues.computeIfPresent(sessionId, (key, queue) -> {
+            queue.pollFirst();
+            next.set(queue.peekFirst());
+            return queue.isEmpty() ? null : queue;
+        });
+        if (next.get() != null) {
+            next.get().run();
+        }
+    }
+
+    // Поток может достаться от задачи другой сессии (runNext) — контекст задаётся заново целиком
+    private static void applyContext(String sessionId, Map<String, String> mdc) {
+        if (sessionId != null) {
+            SessionContext.setSessionId(sessionId);
+        } else {
+            SessionContext.clear();
+        }
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdown);
+    }
+}
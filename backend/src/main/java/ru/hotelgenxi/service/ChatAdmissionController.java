@@ -0,0 +1,294 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import ru.hotelgenxi.util.TokenBucket;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 🚦 КОНТРОЛЬ ДОПУСКА ЗАПРОСОВ К АГЕНТАМ
+ * ✅ Глобальный лимит одновременно обрабатываемых запросов (а значит и стримов GigaChat)
+ * ✅ Token bucket на каждую сессию — один клиент не может выжечь квоту за всех
+ * ✅ Справедливая очередь: сессии обслуживаются по кругу (round-robin), ожидание ограничено
+ * ✅ Сверх лимита — мгновенный отказ «занято» вместо роста задержки
+ * ✅ Метрики: chat.admission.*
+ * <p>
+ * Слот занят, пока работает агент И пока у сессии идёт стрим GigaChat.
+ */
+@Component
+public class ChatAdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatAdmissionController.class);
+
+    /**
+     * Результат попытки допуска
+     */
+    public enum Decision {
+        STARTED, QUEUED, RATE_LIMITED, BUSY
+    }
+
+    private final GigaChatStreamRegistry streamRegistry;
+    private final AgentExecutor agentExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+
+    private final int maxConcurrent;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+    private final int sessionBurst;
+    private final Duration sessionRefillPeriod;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // Очереди по сессиям + порядок обхода; всё под монитором this
+    private final Map<String, Deque<Ticket>> queues = new HashMap<>();
+    private final Deque<String> rotation = new ArrayDeque<>();
+    private int queued;
+    private int inFlight;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-admission-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChatAdmissionController(
+            GigaChatStreamRegistry streamRegistry,
+            AgentExecutor agentExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${chat.admission.max-concurrent:16}") int maxConcurrent,
+            @Value("${chat.admission.max-queue-size:100}") int maxQueueSize,
+            @Value("${chat.admission.max-queue-wait:PT10S}") Duration maxQueueWait,
+            @Value("${chat.admission.session-burst:5}") int sessionBurst,
+            @Value("${chat.admission.session-refill-period:PT6S}") Duration sessionRefillPeriod
+    ) {
+        this.streamRegistry = streamRegistry;
+        this.agentExecutor = agentExecutor;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.sessionBurst = sessionBurst;
+        this.sessionRefillPeriod = sessionRefillPeriod;
+
+        this.queueWait = Timer.builder("chat.admission.queue.wait")
+                .description("Время ожидания запроса в очереди допуска")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.admission.in_flight", this, ChatAdmissionController::inFlight);
+        meterRegistry.gauge("chat.admission.queued", this, ChatAdmissionController::queued);
+
+        long sweepMillis = Math.max(100, maxQueueWait.toMillis() / 4);
+        sweeper.scheduleWithFixedDelay(this::expireWaiting, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 🚦 Пытается допустить запрос сессии.
+     *
+     * @param task       — обработка запроса (агент)
+     * @param onTimeout  — вызывается, если запрос простоял в очереди дольше лимита
+     * @return STARTED / QUEUED — запрос принят; RATE_LIMITED / BUSY — отклонён, task не будет вызван
+     */
+    public Decision submit(String sessionId, Runnable task, Runnable onTimeout) {
+        TokenBucket bucket = buckets.computeIfAbsent(sessionId,
+                key -> new TokenBucket(sessionBurst, sessionRefillPeriod));
+        if (!bucket.tryConsume()) {
+            count(Decision.RATE_LIMITED);
+            log.warn("[ADMISSION] Session {} rate limited", sessionId);
+            return Decision.RATE_LIMITED;
+        }
+
+        Ticket ticket = new Ticket(sessionId, task, onTimeout);
+        synchronized (this) {
+            if (inFlight < maxConcurrent && queued == 0) {
+                inFlight++;
+                start(ticket);
+                count(Decision.STARTED);
+                return Decision.STARTED;
+            }
+            if (queued >= maxQueueSize) {
+                bucket.refund();
+                count(Decision.BUSY);
+                log.warn("[ADMISSION] Queue full ({}), rejecting session {}", queued, sessionId);
+                return Decision.BUSY;
+            }
+            Deque<Ticket> queue = queues.computeIfAbsent(sessionId, key -> new ArrayDeque<>());
+            if (queue.isEmpty()) {
+                rotation.addLast(sessionId);
+            }
+            queue.addLast(ticket);
+            queued++;
+            log.info("[ADMISSION] Session {} queued ({} waiting, {} in flight)", sessionId, queued, inFlight);
+        }
+        count(Decision.QUEUED);
+        return Decision.QUEUED;
+    }
+
+    /**
+     * 🔌 Клиент отключился — забываем его бакет и выкидываем его ожидающие запросы
+     */
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        String sessionId = event.getSessionId();
+        buckets.remove(sessionId);
+        synchronized (this) {
+            Deque<Ticket> queue = queues.remove(sessionId);
+            if (queue != null) {
+                queued -= queue.size();
+                rotation.remove(sessionId);
+            }
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    private void start(Ticket ticket) {
+        queueWait.record(System.nanoTime() - ticket.enqueuedAt, TimeUnit.NANOSECONDS);
+        // Задачи одной сессии AgentExecutor выполняет строго по порядку
+        agentExecutor.execute(AgentExecutor.Workload.CHAT, ticket.sessionId, () -> {
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release();
+                }
+            };
+            try {
+                ticket.task.run();
+            } finally {
+                // Агент мог запустить стрим GigaChat — слот освобождается по его завершении
+                streamRegistry.whenIdle(ticket.sessionId, release);
+            }
+        });
+    }
+
+    /**
+     * Освобождает слот и отдаёт его следующей сессии по кругу
+     */
+    private void release() {
+        Ticket next;
+        synchronized (this) {
+            next = pollNext();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        start(next);
+    }
+
+    private Ticket pollNext() {
+        long now = System.nanoTime();
+        List<Ticket> expired = new ArrayList<>();
+        Ticket next = null;
+        while (next == null && !rotation.isEmpty()) {
+            String sessionId = rotation.pollFirst();
+            Deque<Ticket> queue = queues.get(sessionId);
+            Ticket candidate = queue.pollFirst();
+            queued--;
+            if (queue.isEmpty()) {
+                queues.remove(sessionId);
+            } else {
+                rotation.addLast(sessionId);
+            }
+            if (now - candidate.enqueuedAt > maxQueueWaitNanos) {
+                expired.add(candidate);
+            } else {
+                next = candidate;
+            }
+        }
+        if (!expired.isEmpty()) {
+            sweeper.execute(() -> expired.forEach(this::timeout));
+        }
+        return next;
+    }
+
+    /**
+     * ⏱️ Периодически снимает запросы, простоявшие в очереди дольше лимита
+     */
+    private void expireWaiting() {
+        long now = System.nanoTime();
+        List<Ticket> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Deque<Ticket>>> entries = queues.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Deque<Ticket>> entry = entries.next();
+                Deque<Ticket> queue = entry.getValue();
+                // Очередь сессии упорядочена по времени — просроченные всегда в голове
+                while (!queue.isEmpty() && now - queue.peekFirst().enqueuedAt > maxQueueWaitNanos) {
+                    expired.add(queue.pollFirst());
+                    queued--;
+                }
+                if (queue.isEmpty()) {
+                    entries.remove();
+                    rotation.remove(entry.getKey());
+                }
+            }
+        }
+        expired.forEach(this::timeout);
+    }
+
+    private void timeout(Ticket ticket) {
+        Counter.builder("chat.admission.timeouts")
+                .description("Запросы, не дождавшиеся слота в очереди")
+                .register(meterRegistry)
+                .increment();
+        log.warn("[ADMISSION] Session {} waited too long in queue", ticket.sessionId);
+        try {
+            ticket.onTimeout.run();
+        } catch (Exception e) {
+            log.error("[ADMISSION] Timeout callback failed", e);
+        }
+    }
+
+    private void count(Decision decision) {
+        Counter.builder("chat.admission.requests")
+                .tag("decision", decision.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private static final class Ticket {
+        private final String sessionId;
+        private final Runnable task;
+        private final Runnable onTimeout;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Ticket(String sessionId, Runnable task, Runnable onTimeout) {
+            this.sessionId = sessionId;
+            this.task = task;
+            this.onTimeout = onTimeout;
+        }
+    }
+}
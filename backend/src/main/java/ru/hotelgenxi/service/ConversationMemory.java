@@ -0,0 +1,168 @@
+package ru.hotelgenxi.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 💭 ПАМЯТЬ ДИАЛОГА (по WebSocket сессии)
+ * ✅ Последние реплики целиком — в пределах бюджета токенов
+ * ✅ Вытесняемые реплики сжимаются в краткую сводку (тоже с бюджетом, самое старое выпадает)
+ * ✅ Размер контекста в промпте не растёт с длиной диалога
+ * <p>
+ * Контекст отдаётся всегда в одном порядке (сводка → реплики), чтобы у GigaChat
+ * совпадал префикс запроса между ходами и работало кеширование по X-Session-ID.
+ * Сводка приходит system-сообщением: GigaChatRequestWriter вливает её в системный промпт
+ * (GigaChat принимает system только первым сообщением).
+ */
+@Component
+public class ConversationMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationMemory.class);
+
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_ASSISTANT = "assistant";
+    public static final String ROLE_SYSTEM = "system";
+
+    // Сколько символов реплики попадает в сводку
+    private static final int SUMMARY_LINE_CHARS = 160;
+
+    /**
+     * Одно сообщение контекста для /chat/completions
+     */
+    public record Message(String role, String content) {
+    }
+
+    private final Cache<String, Conversation> conversations;
+    private final int maxTokens;
+    private final int summaryMaxTokens;
+
+    public ConversationMemory(
+            @Value("${chat.memory.max-tokens:1200}") int maxTokens,
+            @Value("${chat.memory.summary-max-tokens:300}") int summaryMaxTokens,
+            @Value("${chat.memory.max-sessions:5000}") long maxSessions,
+            @Value("${chat.memory.idle-ttl:PT30M}") Duration idleTtl
+    ) {
+        this.maxTokens = maxTokens;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.conversations = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(idleTtl)
+                .build();
+    }
+
+    /**
+     * 📜 Контекст диалога для запроса: [сводка] + последние реплики
+     */
+    public List<Message> context(String sessionId) {
+        if (sessionId == null) {
+            return List.of();
+        }
+        Conversation conversation = conversations.getIfPresent(sessionId);
+        return conversation != null ? conversation.snapshot() : List.of();
+    }
+
+    /**
+     * Есть ли у сессии история: ответ тогда зависит от контекста и не годится для общего кеша ответов
+     */
+    public boolean hasHistory(String sessionId) {
+        return sessionId != null && conversations.getIfPresent(sessionId) != null;
+    }
+
+    /**
+     * ➕ Запоминает завершённый ход (вопрос + ответ)
+     */
+    public void append(String sessionId, String question, String answer) {
+        if (sessionId == null || question == null || answer == null || answer.isBlank()) {
+            return;
+        }
+        Conversation conversation = conversations.asMap().computeIfAbsent(sessionId, key -> new Conversation());
+        conversation.add(new Message(ROLE_USER, question));
+        conversation.add(new Message(ROLE_ASSISTANT, answer));
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        conversations.invalidate(event.getSessionId());
+    }
+
+    /**
+     * Грубая оценка токенов (кириллица у GigaChat — ~3 символа на токен)
+     */
+    private static int estimateTokens(String text) {
+        return text.length() / 3 + 1;
+    }
+
+    private final class Conversation {
+        private final Deque<Message> turns = new ArrayDeque<>();
+        private final Deque<String> summary = new ArrayDeque<>();
+        private int turnTokens;
+        private int summaryTokens;
+
+        private synchronized void add(Message message) {
+            turns.addLast(message);
+            turnTokens += estimateTokens(message.content());
+
+            // Превысили бюджет — сворачиваем старые реплики в сводку сразу до половины бюджета:
+            // префикс запроса меняется раз в несколько ходов, а не на каждом (последнюю реплику оставляем)
+            if (turnTokens <= maxTokens) {
+                return;
+            }
+            while (turnTokens > maxTokens / 2 && turns.size() > 1) {
+                Message evicted = turns.pollFirst();
+                turnTokens -= estimateTokens(evicted.content());
+                summarize(evicted);
+            }
+        }
+
+        private void summarize(Message message) {
+            String line = (ROLE_USER.equals(message.role()) ? "Пользователь: " : "Ассистент: ")
+                    + condense(message.content());
+            summary.addLast(line);
+            summaryTokens += estimateTokens(line);
+
+            while (summaryTokens > summaryMaxTokens && !summary.isEmpty()) {
+                summaryTokens -= estimateTokens(summary.pollFirst());
+            }
+            log.debug("[MEMORY] Turn folded into summary ({} lines, ~{} tokens)", summary.size(), summaryTokens);
+        }
+
+        private synchronized List<Message> snapshot() {
+            List<Message> messages = new ArrayList<>(turns.size() + 1);
+            if (!summary.isEmpty()) {
+                messages.add(new Message(ROLE_SYSTEM,
+                        "Краткое содержание начала диалога:\n" + String.join("\n", summary)));
+            }
+            messages.addAll(turns);
+            return messages;
+        }
+    }
+
+    /**
+     * Первое предложение реплики (не длиннее SUMMARY_LINE_CHARS)
+     */
+    private static String condense(String text) {
+        String normalized = text.replaceAll("\\s+", " ").trim();
+        int end = normalized.length();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') && i > 20) {
+                end = i + 1;
+                break;
+            }
+        }
+        end = Math.min(end, SUMMARY_LINE_CHARS);
+        return end < normalized.length() ? normalized.substring(0, end).trim() + "…" : normalized;
+    }
+}
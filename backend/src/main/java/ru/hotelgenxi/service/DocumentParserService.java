@@ -15,6 +15,7 @@ import net.sourceforge.tess4j.Tesseract;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import java.awt.image.BufferedImage;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -26,7 +27,13 @@ public class DocumentParserService {
     private static final Logger log = LoggerFactory.getLogger(DocumentParserService.class);
 
     public String parseDocument(MultipartFile file) throws IOException {
-        String filename = file.getOriginalFilename();
+        return parseDocument(file.getOriginalFilename(), file.getBytes());
+    }
+
+    /**
+     * 📄 Парсинг уже прочитанного файла (формат — по расширению имени)
+     */
+    public String parseDocument(String filename, byte[] bytes) throws IOException {
         log.info("[PARSER] Parsing: {}", filename);
 
         if (filename == null) {
@@ -34,11 +41,11 @@ public class DocumentParserService {
         }
 
         if (filename.endsWith(".pdf")) {
-            return parsePDF(file); // ✅ ИСПОЛЬЗУЕМ PDFBOX НАПРЯМУЮ
+            return parsePDF(filename, bytes); // ✅ ИСПОЛЬЗУЕМ PDFBOX НАПРЯМУЮ
         } else if (filename.endsWith(".docx")) {
-            return parseDOCX(file);
+            return parseDOCX(filename, bytes);
         } else if (filename.endsWith(".txt")) {
-            return parseTXT(file);
+            return parseTXT(filename, bytes);
         } else {
             throw new IllegalArgumentException("Неподдерживаемый формат: " + filename);
         }
@@ -47,12 +54,10 @@ public class DocumentParserService {
     /**
      * 📑 Парсинг PDF через PDFBox 3.0.1
      */
-    private String parsePDF(MultipartFile file) throws IOException {
-        log.info("[PDFBOX] Parsing PDF: {}", file.getOriginalFilename());
+    private String parsePDF(String filename, byte[] pdfBytes) throws IOException {
+        log.info("[PDFBOX] Parsing PDF: {}", filename);
 
         try {
-            byte[] pdfBytes = file.getBytes();
-
             try (PDDocument document = Loader.loadPDF(new RandomAccessReadBuffer(pdfBytes))) {
                 PDFTextStripper stripper = new PDFTextStripper();
 
@@ -89,12 +94,12 @@ public class DocumentParserService {
     /**
      * 📋 Парсинг DOCX через Tika (только для DOCX!)
      */
-    private String parseDOCX(MultipartFile file) throws IOException {
-        log.info("[TIKA] Parsing DOCX: {}", file.getOriginalFilename());
+    private String parseDOCX(String filename, byte[] bytes) throws IOException {
+        log.info("[TIKA] Parsing DOCX: {}", filename);
 
         try {
             Tika tika = new Tika();
-            String text = tika.parseToString(file.getInputStream());
+            String text = tika.parseToString(new ByteArrayInputStream(bytes));
             log.info("[TIKA] ✅ Extracted {} chars from DOCX", text.length());
             return text;
         } catch (Exception e) {
@@ -103,9 +108,9 @@ public class DocumentParserService {
         }
     }
 
-    private String parseTXT(MultipartFile file) throws IOException {
-        log.info("[PARSER] Parsing TXT: {}", file.getOriginalFilename());
-        String text = new String(file.getBytes());
+    private String parseTXT(String filename, byte[] bytes) throws IOException {
+        log.info("[PARSER] Parsing TXT: {}", filename);
+        String text = new String(bytes);
         log.info("[PARSER] ✅ Read {} chars from TXT", text.length());
         return text;
     }
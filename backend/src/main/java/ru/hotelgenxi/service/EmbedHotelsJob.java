@@ -5,16 +5,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.qdrant.client.QdrantClient;
 import io.qdrant.client.QdrantGrpcClient;
 import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.PayloadIndexParams;
+import io.qdrant.client.grpc.Collections.PayloadSchemaType;
+import io.qdrant.client.grpc.Collections.TextIndexParams;
+import io.qdrant.client.grpc.Collections.TokenizerType;
 import io.qdrant.client.grpc.Collections.VectorParams;
 import io.qdrant.client.grpc.JsonWithInt;
 import io.qdrant.client.grpc.Points.PointStruct;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
+import ru.hotelgenxi.util.HotelFeatureExtractor;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 import static io.qdrant.client.PointIdFactory.id;
 import static io.qdrant.client.ValueFactory.value;
@@ -82,6 +86,57 @@ public class EmbedHotelsJob implements CommandLineRunner {
             qdrantClient.createCollectionAsync(collectionName, vectorParams).get();
             System.out.println("✓ Коллекция создана (размер: " + vectorSize + ")");
         }
+        ensureReviewsTextIndex(collectionName);
+        ensureFeatureIndexes(collectionName);
+    }
+
+    /**
+     * 🔧 Range-индексы: признаки из описания («первая линия» = beach_distance_m <= N)
+     * и поля сортировки (order_by в Qdrant работает только по индексированным полям);
+     * keyword-индекс по id — под must_not по excludedHotelIds
+     */
+    private void ensureFeatureIndexes(String collectionName) {
+        Map<String, PayloadSchemaType> indexes = Map.of(
+                HotelFeatureExtractor.BEACH_DISTANCE_M, PayloadSchemaType.Integer,
+                HotelFeatureExtractor.REVIEW_SCORE, PayloadSchemaType.Float,
+                "price_per_night", PayloadSchemaType.Float,
+                "rating", PayloadSchemaType.Float,
+                "stars", PayloadSchemaType.Integer,
+                "id", PayloadSchemaType.Keyword
+        );
+        indexes.forEach((field, type) -> {
+            try {
+                qdrantClient.createPayloadIndexAsync(collectionName, field, type, null, true, null, null).get();
+                System.out.println("✓ Индекс " + field + " готов");
+            } catch (Exception e) {
+                System.err.println("⚠ Не удалось создать индекс " + field + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 🔧 Полнотекстовый индекс по отзывам: must_not «шум» считает Qdrant, а не Java
+     * ✅ Prefix-токенизатор индексирует начала слов: «шум» совпадает с «шумно», как в ReviewIndex
+     * (повторное создание индекса безопасно — Qdrant его просто обновит)
+     */
+    private void ensureReviewsTextIndex(String collectionName) {
+        try {
+            qdrantClient.createPayloadIndexAsync(
+                    collectionName,
+                    "reviews_text",
+                    PayloadSchemaType.Text,
+                    PayloadIndexParams.newBuilder()
+                            .setTextIndexParams(TextIndexParams.newBuilder()
+                                    .setTokenizer(TokenizerType.Prefix)
+                                    .setLowercase(true)
+                                    .build())
+                            .build(),
+                    true, null, null
+            ).get();
+            System.out.println("✓ Полнотекстовый индекс reviews_text готов");
+        } catch (Exception e) {
+            System.err.println("⚠ Не удалось создать индекс reviews_text: " + e.getMessage());
+        }
     }
 
     private List<Map<String, Object>> loadRawHotels() throws Exception {
@@ -230,6 +285,16 @@ public class EmbedHotelsJob implements CommandLineRunner {
             }
         });
 
+        // Числовые признаки из описания (до пляжа, рейтинг) — типизированными полями под range-индексы
+        HotelFeatureExtractor.extract(Objects.toString(hotel.get("description"), null))
+                .forEach((key, val) -> payload.put(key, convertToQdrantValue(val)));
+
+        // Тексты отзывов плоской строкой — под полнотекстовый индекс (так же, как в ReviewIndex)
+        String reviewsText = ReviewIndex.reviewsText(HotelCatalog.toReviews(hotel.get("reviews")));
+        if (reviewsText != null) {
+            payload.put("reviews_text", value(reviewsText));
+        }
+
         return payload;
     }
 
@@ -0,0 +1,217 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import ru.hotelgenxi.service.IntentRouter.Intent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🎯 КЛАССИФИКАТОР НАМЕРЕНИЙ ПО ЭМБЕДДИНГАМ (nearest centroid)
+ * ✅ При старте эмбеддит размеченные фразы (intent-phrases.txt) и усредняет их в центроид на намерение
+ * ✅ Запрос → один эмбеддинг → ближайший центроид по косинусу
+ * ✅ Эмбеддинг запроса возвращается вместе с решением и переиспользуется в QdrantService
+ *    и SemanticAnswerCache — классификация не стоит лишнего инференса
+ * ✅ Низкая уверенность или малый отрыв от второго места → решают ключевые слова (IntentRouter)
+ * ✅ Уверенность и источник решения пишутся в метрики
+ */
+@Service
+public class EmbeddingIntentClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingIntentClassifier.class);
+
+    public static final String SOURCE_EMBEDDING = "embedding";
+    public static final String SOURCE_KEYWORDS = "keywords";
+
+    /**
+     * Итоговое решение маршрутизации.
+     * embedding — исходный (ненормированный) эмбеддинг запроса, пустой если не считался.
+     */
+    public record Decision(Intent intent, String source, double confidence, double margin,
+                           List<Double> embedding) {
+    }
+
+    private final LocalEmbeddingService embeddingService;
+    private final MeterRegistry meterRegistry;
+    private final Resource phrases;
+    private final boolean enabled;
+    private final double minConfidence;
+    private final double minMargin;
+
+    // Заполняется один раз в init(), дальше только читается
+    private volatile Map<Intent, float[]> centroids = Map.of();
+
+    public EmbeddingIntentClassifier(
+            LocalEmbeddingService embeddingService,
+            MeterRegistry meterRegistry,
+            @Value("${chat.intent.phrases:classpath:intent-phrases.txt}") Resource phrases,
+            @Value("${chat.intent.embedding.enabled:true}") boolean enabled,
+            @Value("${chat.intent.min-confidence:0.45}") double minConfidence,
+            @Value("${chat.intent.min-margin:0.04}") double minMargin
+    ) {
+        this.embeddingService = embeddingService;
+        this.meterRegistry = meterRegistry;
+        this.phrases = phrases;
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+        this.minMargin = minMargin;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("[INTENT] Embedding classifier disabled, keyword routing only");
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Map<Intent, float[]> sums = new EnumMap<>(Intent.class);
+        Map<Intent, Integer> counts = new EnumMap<>(Intent.class);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(phrases.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                int separator = line.indexOf(':');
+                if (line.isEmpty() || line.startsWith("#") || separator <= 0) {
+                    continue;
+                }
+                Intent intent = Intent.valueOf(line.substring(0, separator).strip());
+                float[] vector = normalize(embeddingService.getEmbedding(line.substring(separator + 1).strip()));
+                if (vector.length == 0) {
+                    continue;
+                }
+                float[] sum = sums.computeIfAbsent(intent, i -> new float[vector.length]);
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += vector[i];
+                }
+                counts.merge(intent, 1, Integer::sum);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("[INTENT] Failed to load labeled phrases from {}: {}", phrases, e.getMessage());
+            return;
+        }
+
+        Map<Intent, float[]> trained = new EnumMap<>(Intent.class);
+        sums.forEach((intent, sum) -> trained.put(intent, normalize(sum)));
+        this.centroids = trained;
+        log.info("[INTENT] Trained {} centroids from {} phrases in {} ms", trained.size(),
+                counts.values().stream().mapToInt(Integer::intValue).sum(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * 🧭 Выбор маршрута: классификатор, если он уверен, иначе приоритеты ключевых слов
+     */
+    public Decision decide(String message, IntentRouter.Classification keywords) {
+        Map<Intent, float[]> trained = centroids;
+        if (trained.size() < 2) {
+            return record(fallback(keywords, 0, 0, List.of()));
+        }
+
+        List<Double> embedding = embeddingService.getEmbedding(message);
+        float[] query = normalize(embedding);
+        if (query.length == 0) {
+            return record(fallback(keywords, 0, 0, embedding));
+        }
+
+        Intent best = null;
+        double bestScore = -1;
+        double secondScore = -1;
+        for (Map.Entry<Intent, float[]> centroid : trained.entrySet()) {
+            double score = dot(query, centroid.getValue());
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = centroid.getKey();
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+
+        double margin = bestScore - secondScore;
+        DistributionSummary.builder("chat.intent.confidence")
+                .description("Косинус запроса с ближайшим центроидом намерения")
+                .tag("intent", best.name())
+                .register(meterRegistry)
+                .record(bestScore);
+
+        if (bestScore < minConfidence || margin < minMargin) {
+            log.debug("[INTENT] Low confidence {} ({}, margin {}), falling back to keywords",
+                    best, String.format("%.3f", bestScore), String.format("%.3f", margin));
+            return record(fallback(keywords, bestScore, margin, embedding));
+        }
+
+        log.debug("[INTENT] {} ({}, margin {})", best,
+                String.format("%.3f", bestScore), String.format("%.3f", margin));
+        return record(new Decision(best, SOURCE_EMBEDDING, bestScore, margin, embedding));
+    }
+
+    /**
+     * Прежние приоритеты SupervisorAgent: отели → research → общий диалог
+     */
+    private static Decision fallback(IntentRouter.Classification keywords, double confidence, double margin,
+                                     List<Double> embedding) {
+        Intent intent = keywords.matches(Intent.HOTEL_SEARCH) ? Intent.HOTEL_SEARCH
+                : keywords.matches(Intent.RESEARCH) ? Intent.RESEARCH
+                : Intent.GENERAL;
+        return new Decision(intent, SOURCE_KEYWORDS, confidence, margin, embedding);
+    }
+
+    private Decision record(Decision decision) {
+        Counter.builder("chat.intent.decisions")
+                .description("Решения маршрутизации по источнику")
+                .tag("intent", decision.intent().name())
+                .tag("source", decision.source())
+                .register(meterRegistry)
+                .increment();
+        return decision;
+    }
+
+    private static float[] normalize(List<Double> vector) {
+        float[] result = new float[vector.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i).floatValue();
+        }
+        return normalize(result);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= (float) norm;
+            }
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,310 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.dto.HotelFilters;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 📊 ФАСЕТНЫЕ СЧЁТЧИКИ (битовые индексы по каталогу)
+ * ✅ Отель = номер бита; каждое значение фасета (страна, город, звёзды, удобство, ценовой диапазон) — BitSet
+ * ✅ Фильтр = AND битсетов, счётчик = cardinality пересечения: без Qdrant и без эмбеддинга
+ * ✅ Диапазоны (цена, пляж, рейтинг отзывов) — бинарный поиск по отсортированным значениям
+ * ✅ Пересобирается из HotelCatalog при каждой (пере)загрузке
+ * ✅ Счётчики считаются по отелям, прошедшим все фильтры (в т.ч. фильтр того же фасета)
+ */
+@Component
+public class FacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetIndex.class);
+
+    public static final String KIDS_CLUB = "kids_club";
+    public static final String ALL_INCLUSIVE = "all_inclusive";
+    public static final String AQUAPARK = "aquapark";
+
+    /**
+     * Ответ /api/hotels/facets: total — сколько отелей подходит под фильтры
+     */
+    public record Facets(int total,
+                         Map<String, Integer> countries,
+                         Map<String, Integer> cities,
+                         Map<Integer, Integer> stars,
+                         Map<String, Integer> amenities,
+                         Map<String, Integer> priceBuckets) {
+    }
+
+    // Отсортированные значения числового поля и номера отелей в том же порядке
+    private record Sorted(double[] values, int[] hotels) {
+
+        static final Sorted EMPTY = new Sorted(new double[0], new int[0]);
+
+        static Sorted of(List<HotelSearchResult> hotels, Function<HotelSearchResult, Number> field) {
+            Integer[] order = new Integer[hotels.size()];
+            int size = 0;
+            for (int i = 0; i < hotels.size(); i++) {
+                if (field.apply(hotels.get(i)) != null) {
+                    order[size++] = i;
+                }
+            }
+            Integer[] present = Arrays.copyOf(order, size);
+            Arrays.sort(present, (a, b) -> Double.compare(
+                    field.apply(hotels.get(a)).doubleValue(), field.apply(hotels.get(b)).doubleValue()));
+            double[] values = new double[size];
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = present[i];
+                values[i] = field.apply(hotels.get(present[i])).doubleValue();
+            }
+            return new Sorted(values, ids);
+        }
+
+        // Отели со значением в [min, max] (null — граница не задана)
+        BitSet range(Double min, Double max, int size) {
+            int from = min != null ? lowerBound(min) : 0;
+            int to = max != null ? upperBound(max) : values.length;
+            BitSet bits = new BitSet(size);
+            for (int i = from; i < to; i++) {
+                bits.set(hotels[i]);
+            }
+            return bits;
+        }
+
+        private int lowerBound(double value) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int upperBound(double value) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // Неизменяемый индекс одной версии каталога
+    private record Index(int size,
+                         Map<String, Integer> ordinals,
+                         Map<String, BitSet> countries,
+                         Map<String, BitSet> cities,
+                         Map<Integer, BitSet> stars,
+                         Map<String, BitSet> amenities,
+                         Map<String, BitSet> priceBuckets,
+                         Sorted prices,
+                         Sorted beachDistances,
+                         Sorted reviewScores) {
+    }
+
+    private final ReviewIndex reviewIndex;
+    private final int[] priceBounds;
+    private volatile Index index = new Index(0, Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+            Sorted.EMPTY, Sorted.EMPTY, Sorted.EMPTY);
+
+    public FacetIndex(
+            HotelCatalog catalog,
+            ReviewIndex reviewIndex,
+            // Границы ценовых диапазонов, ₽/ночь: «<10000», «10000-20000», …, «40000+»
+            @Value("${hotels.facets.price-buckets:10000,20000,30000,40000}") int[] priceBounds
+    ) {
+        this.reviewIndex = reviewIndex;
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+        catalog.subscribe(this::rebuild);
+    }
+
+    /**
+     * 🔢 Счётчики по фасетам для отелей, подходящих под фильтры (null — весь каталог)
+     */
+    public Facets count(HotelFilters filters) {
+        Index current = index;
+        BitSet matched = match(current, filters);
+        return new Facets(
+                matched.cardinality(),
+                counts(current.countries(), matched),
+                counts(current.cities(), matched),
+                counts(current.stars(), matched),
+                counts(current.amenities(), matched),
+                counts(current.priceBuckets(), matched));
+    }
+
+    private BitSet match(Index current, HotelFilters filters) {
+        BitSet bits = new BitSet(current.size());
+        bits.set(0, current.size());
+        if (filters == null) {
+            return bits;
+        }
+        if (filters.getCountry() != null) {
+            bits.and(lookup(current.countries(), filters.getCountry()));
+        }
+        if (filters.getCity() != null) {
+            bits.and(lookup(current.cities(), filters.getCity()));
+        }
+        if (filters.getMinStars() != null || filters.getMaxStars() != null) {
+            BitSet stars = new BitSet(current.size());
+            current.stars().forEach((level, hotels) -> {
+                if ((filters.getMinStars() == null || level >= filters.getMinStars())
+                        && (filters.getMaxStars() == null || level <= filters.getMaxStars())) {
+                    stars.or(hotels);
+                }
+            });
+            bits.and(stars);
+        }
+        if (filters.getMinPrice() != null || filters.getMaxPrice() != null) {
+            bits.and(current.prices().range(toDouble(filters.getMinPrice()), toDouble(filters.getMaxPrice()),
+                    current.size()));
+        }
+        if (filters.getMaxBeachDistanceM() != null) {
+            bits.and(current.beachDistances().range(null, toDouble(filters.getMaxBeachDistanceM()), current.size()));
+        }
+        if (filters.getMinReviewScore() != null) {
+            bits.and(current.reviewScores().range(filters.getMinReviewScore(), null, current.size()));
+        }
+        requireAmenity(bits, current, filters.getKidsClub(), KIDS_CLUB);
+        requireAmenity(bits, current, filters.getAllInclusive(), ALL_INCLUSIVE);
+        requireAmenity(bits, current, filters.getAquapark(), AQUAPARK);
+
+        if (filters.getExcludedHotelIds() != null) {
+            exclude(bits, current, filters.getExcludedHotelIds());
+        }
+        if (filters.getExcludedReviewTerms() != null) {
+            for (String term : filters.getExcludedReviewTerms()) {
+                exclude(bits, current, reviewIndex.hotelsMentioning(term));
+            }
+        }
+        return bits;
+    }
+
+    private static void requireAmenity(BitSet bits, Index current, Boolean required, String amenity) {
+        if (Boolean.TRUE.equals(required)) {
+            bits.and(current.amenities().getOrDefault(amenity, new BitSet()));
+        }
+    }
+
+    private static void exclude(BitSet bits, Index current, Set<String> hotelIds) {
+        for (String id : hotelIds) {
+            Integer ordinal = current.ordinals().get(id);
+            if (ordinal != null) {
+                bits.clear(ordinal);
+            }
+        }
+    }
+
+    // Страны и города в фильтрах приходят в любом регистре
+    private static BitSet lookup(Map<String, BitSet> facet, String value) {
+        for (Map.Entry<String, BitSet> entry : facet.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(value)) {
+                return entry.getValue();
+            }
+        }
+        return new BitSet();
+    }
+
+    private static <K> Map<K, Integer> counts(Map<K, BitSet> facet, BitSet matched) {
+        Map<K, Integer> result = new LinkedHashMap<>();
+        facet.forEach((value, hotels) -> {
+            int count = hotels.isEmpty() ? 0 : countAnd(hotels, matched);
+            if (count > 0) {
+                result.put(value, count);
+            }
+        });
+        return result;
+    }
+
+    private static int countAnd(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private static Double toDouble(Integer value) {
+        return value != null ? value.doubleValue() : null;
+    }
+
+    private String priceBucket(double price) {
+        for (int i = 0; i < priceBounds.length; i++) {
+            if (price < priceBounds[i]) {
+                return i == 0 ? "<" + priceBounds[0] : priceBounds[i - 1] + "-" + priceBounds[i];
+            }
+        }
+        return priceBounds.length > 0 ? priceBounds[priceBounds.length - 1] + "+" : "all";
+    }
+
+    private void rebuild(HotelCatalog.Snapshot snapshot) {
+        List<HotelSearchResult> hotels = snapshot.hotels();
+        Map<String, Integer> ordinals = new HashMap<>(hotels.size() * 2);
+        Map<String, BitSet> countries = new LinkedHashMap<>();
+        Map<String, BitSet> cities = new LinkedHashMap<>();
+        Map<Integer, BitSet> stars = new TreeMap<>();
+        Map<String, BitSet> amenities = new LinkedHashMap<>();
+        Map<String, BitSet> priceBuckets = new LinkedHashMap<>();
+        // Диапазоны цен — в порядке возрастания, даже если в каталоге нет отелей из начала шкалы
+        for (int i = 0; i <= priceBounds.length; i++) {
+            priceBuckets.put(priceBucket(i < priceBounds.length ? priceBounds[i] - 1 : Double.MAX_VALUE), new BitSet());
+        }
+        for (String amenity : List.of(KIDS_CLUB, ALL_INCLUSIVE, AQUAPARK)) {
+            amenities.put(amenity, new BitSet());
+        }
+
+        for (int i = 0; i < hotels.size(); i++) {
+            HotelSearchResult hotel = hotels.get(i);
+            if (hotel.getId() != null) {
+                ordinals.put(hotel.getId(), i);
+            }
+            if (hotel.getCountry() != null) {
+                countries.computeIfAbsent(hotel.getCountry(), key -> new BitSet()).set(i);
+            }
+            if (hotel.getCity() != null) {
+                cities.computeIfAbsent(hotel.getCity(), key -> new BitSet()).set(i);
+            }
+            if (hotel.getStars() != null) {
+                stars.computeIfAbsent(hotel.getStars(), key -> new BitSet()).set(i);
+            }
+            if (hotel.getPricePerNight() != null) {
+                priceBuckets.get(priceBucket(hotel.getPricePerNight())).set(i);
+            }
+            if (Boolean.TRUE.equals(hotel.getKidsClub())) {
+                amenities.get(KIDS_CLUB).set(i);
+            }
+            if (Boolean.TRUE.equals(hotel.getAllInclusive())) {
+                amenities.get(ALL_INCLUSIVE).set(i);
+            }
+            if (Boolean.TRUE.equals(hotel.getAquapark())) {
+                amenities.get(AQUAPARK).set(i);
+            }
+        }
+
+        index = new Index(hotels.size(), ordinals, countries, cities, stars, amenities, priceBuckets,
+                Sorted.of(hotels, HotelSearchResult::getPricePerNight),
+                Sorted.of(hotels, HotelSearchResult::getBeachDistanceM),
+                Sorted.of(hotels, HotelSearchResult::getReviewScore));
+        log.info("[FACETS] Indexed {} hotels: {} countries, {} cities", hotels.size(), countries.size(), cities.size());
+    }
+}
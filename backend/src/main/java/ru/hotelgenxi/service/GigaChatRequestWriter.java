@@ -0,0 +1,205 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✍️ СБОРКА ТЕЛ ЗАПРОСОВ К GIGACHAT /chat/completions
+ * ✅ Статическая часть (модель, параметры, системный промпт) кодируется в UTF-8 JSON один раз и кешируется
+ * ✅ Динамическая часть пишется Jackson JsonGenerator'ом прямо в DataBuffer из пула Netty
+ * ✅ Корректное экранирование любых символов (включая управляющие) без цепочек String.replace
+ */
+@Component
+public class GigaChatRequestWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatRequestWriter.class);
+
+    private static final String CHAT_MODEL = "GigaChat-2";
+    private static final String VISION_MODEL = "GigaChat-Pro";
+    private static final double CHAT_TEMPERATURE = 0.7;
+
+    // Системные промпты — константы, поэтому кеш маленький; всё сверх лимита кодируется на лету
+    private static final int MAX_CACHED_PROMPTS = 32;
+
+
+    // Генератор не закрывает ни DataBuffer, ни незакрытые объекты (нужно для префикса)
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+    private final Map<String, byte[]> chatPrefixes = new ConcurrentHashMap<>();
+
+    /**
+     * 💬 Стриминговый запрос: системный промпт + сообщение пользователя
+     */
+    public BodyInserter<Object, ReactiveHttpOutputMessage> chatStream(String systemPrompt, String userMessage) {
+        return chatStream(systemPrompt, List.of(), userMessage);
+    }
+
+    /**
+     * 💬 Стриминговый запрос: системный промпт + контекст диалога + сообщение пользователя
+     */
+    public BodyInserter<Object, ReactiveHttpOutputMessage> chatStream(String systemPrompt,
+                                                                     List<ConversationMemory.Message> history,
+                                                                     String userMessage) {
+        // Сводка из памяти диалога (role=system) — в тот же системный промпт: второй system GigaChat отклоняет
+        StringBuilder summary = new StringBuilder();
+        for (ConversationMemory.Message turn : history) {
+            if (ConversationMemory.ROLE_SYSTEM.equals(turn.role())) {
+                summary.append("\n\n").append(turn.content());
+            }
+        }
+        // Сводка меняется раз в несколько ходов — такой префикс не кешируем
+        byte[] prefix = summary.isEmpty() ? chatPrefix(systemPrompt) : encodeChatPrefix(systemPrompt + summary);
+        int estimate = prefix.length + userMessage.length() * 2 + 64 + history.stream()
+                .mapToInt(turn -> turn.content().length() * 2 + 32)
+                .sum();
+        return (message, context) -> {
+            message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return write(message, estimate, buffer -> {
+                buffer.write(prefix);
+                try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+                    // Сообщения дописываются как отдельные корневые значения после «,» — массив открыт в префиксе
+                    generator.setRootValueSeparator(null);
+                    for (ConversationMemory.Message turn : history) {
+                        if (!ConversationMemory.ROLE_SYSTEM.equals(turn.role())) {
+                            writeMessage(generator, turn.role(), turn.content());
+                        }
+                    }
+                    writeMessage(generator, ConversationMemory.ROLE_USER, userMessage);
+                    generator.writeRaw("]}");
+                }
+            });
+        };
+    }
+
+    /**
+     * 👁️ Vision-запрос: промпт + ID загруженного файла во вложениях
+     */
+    public BodyInserter<Object, ReactiveHttpOutputMessage> visionWithAttachment(String prompt, String fileId) {
+        return (message, context) -> {
+            message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return write(message, prompt.length() * 2 + fileId.length() + 128, buffer -> {
+                try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+                    writeVisionStart(generator);
+                    generator.writeStringField("content", prompt);
+                    generator.writeArrayFieldStart("attachments");
+                    generator.writeString(fileId);
+                    generator.writeEndArray();
+                    writeVisionEnd(generator);
+                }
+            });
+        };
+    }
+
+    /**
+     * 👁️ Vision-запрос без вложений: ID файла передаётся в тексте
+     */
+    public BodyInserter<Object, ReactiveHttpOutputMessage> visionWithFileReference(String prompt, String fileId) {
+        return (message, context) -> {
+            message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return write(message, prompt.length() * 2 + fileId.length() + 128, buffer -> {
+                try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+                    writeVisionStart(generator);
+                    generator.writeStringField("content", prompt + " (файл ID: " + fileId + ")");
+                    writeVisionEnd(generator);
+                }
+            });
+        };
+    }
+
+    /**
+     * Неизменная часть запроса — до конца системного сообщения:
+     * {"model":…,"temperature":…,"stream":true,"messages":[{"role":"system","content":"…"}
+     */
+    private byte[] chatPrefix(String systemPrompt) {
+        byte[] cached = chatPrefixes.get(systemPrompt);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] prefix = encodeChatPrefix(systemPrompt);
+        if (chatPrefixes.size() < MAX_CACHED_PROMPTS) {
+            chatPrefixes.putIfAbsent(systemPrompt, prefix);
+        } else {
+            log.debug("[GIGACHAT] Prompt prefix cache is full, encoding on the fly");
+        }
+        return prefix;
+    }
+
+    private byte[] encodeChatPrefix(String systemPrompt) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(systemPrompt.length() * 2 + 160);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", CHAT_MODEL);
+            generator.writeNumberField("temperature", CHAT_TEMPERATURE);
+            generator.writeBooleanField("stream", true);
+            generator.writeArrayFieldStart("messages");
+            generator.writeStartObject();
+            generator.writeStringField("role", "system");
+            generator.writeStringField("content", systemPrompt);
+            generator.writeEndObject();
+            // Незакрытые массив и объект: остаток допишется на каждый запрос
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeVisionStart(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("model", VISION_MODEL);
+        generator.writeArrayFieldStart("messages");
+        generator.writeStartObject();
+        generator.writeStringField("role", "user");
+    }
+
+    private void writeVisionEnd(JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeBooleanField("stream", false);
+        generator.writeEndObject();
+    }
+
+    private void writeMessage(JsonGenerator generator, String role, String content) throws IOException {
+        generator.writeRaw(',');
+        generator.writeStartObject();
+        generator.writeStringField("role", role);
+        generator.writeStringField("content", content);
+        generator.writeEndObject();
+    }
+
+    private Mono<Void> write(ReactiveHttpOutputMessage message, int initialCapacity, BufferWriter writer) {
+        DataBuffer buffer = message.bufferFactory().allocateBuffer(initialCapacity);
+        try {
+            writer.write(buffer);
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            return Mono.error(e);
+        }
+        message.getHeaders().setContentLength(buffer.readableByteCount());
+        return message.writeWith(Mono.just(buffer));
+    }
+
+    @FunctionalInterface
+    private interface BufferWriter {
+        void write(DataBuffer buffer) throws IOException;
+    }
+}
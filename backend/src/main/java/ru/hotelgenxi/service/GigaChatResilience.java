@@ -0,0 +1,247 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+import ru.hotelgenxi.util.CircuitBreaker;
+import ru.hotelgenxi.util.RetryBudget;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 🛡️ ПОЛИТИКИ УСТОЙЧИВОСТИ ДЛЯ ВЫЗОВОВ GIGACHAT
+ * ✅ Отдельно для каждой операции: стрим чата, эмбеддинги, загрузка файла, vision-ответ
+ * ✅ Circuit breaker — при деградации API вызовы сразу отклоняются (fast-fail → fallback)
+ * ✅ Bulkhead — ограничение одновременных вызовов, чтобы не занимать все потоки
+ * ✅ Ретраи с jitter-backoff в пределах общего бюджета ретраев
+ * ✅ Метрики: gigachat.resilience.*
+ */
+@Component
+public class GigaChatResilience {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatResilience.class);
+
+    private static final Duration RETRY_MIN_BACKOFF = Duration.ofMillis(200);
+    private static final Duration RETRY_MAX_BACKOFF = Duration.ofSeconds(2);
+
+    /**
+     * Верхняя граница одного блокирующего ожидания: ретраи укладываются в неё, а не удлиняют её.
+     * Медленный GigaChat не должен держать рабочий поток дольше
+     */
+    public static final Duration MAX_BLOCK = Duration.ofSeconds(30);
+
+    /**
+     * Операции GigaChat и их таймауты / лимиты по умолчанию
+     */
+    public enum Operation {
+        // Для стрима timeout — ожидание ПЕРВОГО токена (дальше действует idle-таймаут)
+        CHAT_STREAM(Duration.ofSeconds(20), 32, 1),
+        EMBEDDINGS(Duration.ofSeconds(10), 16, 2),
+        VISION_UPLOAD(Duration.ofSeconds(20), 8, 2),
+        VISION_COMPLETION(Duration.ofSeconds(30), 8, 1);
+
+        private final Duration timeout;
+        private final int maxConcurrent;
+        private final int maxRetries;
+
+        Operation(Duration timeout, int maxConcurrent, int maxRetries) {
+            this.timeout = timeout;
+            this.maxConcurrent = maxConcurrent;
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Вызов отклонён без обращения к GigaChat (открыт circuit breaker или переполнен bulkhead)
+     */
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(Operation operation, String reason) {
+            super("GigaChat " + operation.tag() + " rejected: " + reason);
+        }
+    }
+
+    private final Map<Operation, Policy> policies = new EnumMap<>(Operation.class);
+    private final MeterRegistry meterRegistry;
+    private final Duration streamIdleTimeout;
+
+    public GigaChatResilience(
+            MeterRegistry meterRegistry,
+            @Value("${gigachat.resilience.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${gigachat.resilience.open-duration:PT30S}") Duration openDuration,
+            @Value("${gigachat.resilience.retry-budget-ratio:0.2}") double retryBudgetRatio,
+            @Value("${gigachat.resilience.stream-idle-timeout:PT30S}") Duration streamIdleTimeout
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.streamIdleTimeout = streamIdleTimeout;
+
+        for (Operation operation : Operation.values()) {
+            Policy policy = new Policy(
+                    operation,
+                    new CircuitBreaker(20, 10, failureRateThreshold, openDuration, 3),
+                    new Semaphore(operation.maxConcurrent),
+                    new RetryBudget(retryBudgetRatio, 5, 50)
+            );
+            policies.put(operation, policy);
+
+            Gauge.builder("gigachat.resilience.circuit.state", policy.circuitBreaker, cb -> cb.getState().ordinal())
+                    .description("0 — CLOSED, 1 — OPEN, 2 — HALF_OPEN")
+                    .tag("operation", operation.tag())
+                    .register(meterRegistry);
+            Gauge.builder("gigachat.resilience.circuit.failure_rate", policy.circuitBreaker, CircuitBreaker::getFailureRate)
+                    .tag("operation", operation.tag())
+                    .register(meterRegistry);
+            Gauge.builder("gigachat.resilience.bulkhead.available", policy.bulkhead, Semaphore::availablePermits)
+                    .tag("operation", operation.tag())
+                    .register(meterRegistry);
+            Gauge.builder("gigachat.resilience.retry_budget.tokens", policy.retryBudget, RetryBudget::available)
+                    .tag("operation", operation.tag())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 🛡️ Оборачивает одиночный вызов (эмбеддинги, загрузка файла, vision)
+     */
+    public <T> Mono<T> decorate(Operation operation, Mono<T> call) {
+        Policy policy = policies.get(operation);
+        return Mono.defer(() -> {
+            RejectedException rejected = policy.tryEnter();
+            if (rejected != null) {
+                return Mono.error(rejected);
+            }
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .timeout(operation.timeout)
+                    .retryWhen(retrySpec(policy, () -> true))
+                    .doOnError(e -> failed.set(true))
+                    .doFinally(signal -> policy.exit(signal, failed.get()));
+        });
+    }
+
+    /**
+     * 🛡️ Оборачивает стрим: таймаут на первый токен + idle-таймаут между токенами.
+     * Ретрай возможен только пока клиенту ещё ничего не отправлено.
+     */
+    public <T> Flux<T> decorateStream(Operation operation, Flux<T> call) {
+        Policy policy = policies.get(operation);
+        return Flux.defer(() -> {
+            RejectedException rejected = policy.tryEnter();
+            if (rejected != null) {
+                return Flux.error(rejected);
+            }
+            AtomicBoolean emitted = new AtomicBoolean();
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .timeout(Mono.delay(operation.timeout), item -> Mono.delay(streamIdleTimeout))
+                    .retryWhen(retrySpec(policy, () -> !emitted.get()))
+                    .doOnNext(item -> emitted.set(true))
+                    .doOnError(e -> failed.set(true))
+                    .doFinally(signal -> policy.exit(signal, failed.get()));
+        });
+    }
+
+    public CircuitBreaker.State state(Operation operation) {
+        return policies.get(operation).circuitBreaker.getState();
+    }
+
+    private Retry retrySpec(Policy policy, BooleanSupplier retryAllowed) {
+        return Retry.backoff(policy.operation.maxRetries, RETRY_MIN_BACKOFF)
+                .maxBackoff(RETRY_MAX_BACKOFF)
+                .jitter(0.5)
+                .filter(e -> isRetryable(e) && retryAllowed.getAsBoolean() && policy.retryBudget.tryWithdraw())
+                .doBeforeRetry(signal -> {
+                    policy.count("retry");
+                    log.warn("[RESILIENCE] Retry #{} for {}: {}", signal.totalRetries() + 1,
+                            policy.operation.tag(), signal.failure().getMessage());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Повторяем только то, что имеет смысл повторять: сеть, таймауты, 429 и 5xx
+     */
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientRequestException || e instanceof TimeoutException) {
+            return true;
+        }
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return false;
+    }
+
+    private final class Policy {
+        private final Operation operation;
+        private final CircuitBreaker circuitBreaker;
+        private final Semaphore bulkhead;
+        private final RetryBudget retryBudget;
+
+        private Policy(Operation operation, CircuitBreaker circuitBreaker, Semaphore bulkhead, RetryBudget retryBudget) {
+            this.operation = operation;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+            this.retryBudget = retryBudget;
+        }
+
+        private RejectedException tryEnter() {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                count("rejected_circuit_open");
+                return new RejectedException(operation, "circuit open");
+            }
+            if (!bulkhead.tryAcquire()) {
+                circuitBreaker.onIgnored();
+                count("rejected_bulkhead_full");
+                return new RejectedException(operation, "bulkhead full");
+            }
+            retryBudget.deposit();
+            return null;
+        }
+
+        private void exit(SignalType signal, boolean failed) {
+            bulkhead.release();
+            if (signal == SignalType.CANCEL) {
+                circuitBreaker.onIgnored();
+                count("cancelled");
+            } else if (failed) {
+                circuitBreaker.onError();
+                count("failure");
+            } else {
+                circuitBreaker.onSuccess();
+                count("success");
+            }
+        }
+
+        private void count(String outcome) {
+            Counter.builder("gigachat.resilience.calls")
+                    .tag("operation", operation.tag())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
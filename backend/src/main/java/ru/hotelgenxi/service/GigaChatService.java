@@ -2,28 +2,29 @@ package ru.hotelgenxi.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import ru.hotelgenxi.config.OutboundHttpClients;
+import ru.hotelgenxi.config.OutboundHttpProperties;
 import ru.hotelgenxi.dto.ChatMessage;
 import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.util.CircuitBreaker;
 
-import javax.net.ssl.SSLException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * 💬 GIGACHAT SERVICE — потоковая генерация текста + Vision API
@@ -34,93 +35,153 @@ import java.util.*;
 public class GigaChatService {
 
     private static final Logger log = LoggerFactory.getLogger(GigaChatService.class);
+
+    private static final String SESSION_ID_HEADER = "X-Session-ID";
+
+    private static final String GENERAL_SYSTEM_PROMPT = """
+            Ты — HotelGenix AI, профессиональный интеллектуальный ассистент по поиску и бронированию отелей.
+            
+            ** ТВОЯ РОЛЬ: Помощник по путешествиям**
+            Ты анализируешь запросы пользователя и даёшь рекомендации по отелям, дестинациям, путешествиям.
+            
+            ** ОСНОВНЫЕ ЗАДАЧИ:**
+            1. Помогать найти идеальный отель по критериям (локация, бюджет, звёзды, удобства)
+            2. Давать рекомендации на основе описания желаемого отдыха
+            3. Сравнивать варианты отелей и объяснять преимущества
+            4. Отвечать на вопросы о бронировании, ценах, услугах
+            5. Предлагать альтернативы, если вариант не подходит
+            
+            ** КАК ОБЩАТЬСЯ:**
+            - Всегда отвечай на русском языке ТОЛЬКО
+            - Будь дружелюбным, профессиональным и внимательным
+            - Держи фокус на теме отелей и путешествий
+            """;
+
     private final GigaChatAuthService authService;
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
     private final WebClient webClient;
+    private final GigaChatStreamRegistry streamRegistry;
+    private final GigaChatResilience resilience;
+    private final GigaChatRequestWriter requestWriter;
+    private final ConversationMemory conversationMemory;
+    private final VisionResultCache visionCache;
+    private final SearchResultsPublisher resultsPublisher;
+    private final HotelCardRenderer cardRenderer;
+    private final Duration visionDeadline;
 
     public GigaChatService(GigaChatAuthService authService,
-                           SimpMessagingTemplate messagingTemplate) {
+                           SimpMessagingTemplate messagingTemplate,
+                           GigaChatStreamRegistry streamRegistry,
+                           OutboundHttpClients httpClients,
+                           GigaChatResilience resilience,
+                           GigaChatRequestWriter requestWriter,
+                           ConversationMemory conversationMemory,
+                           VisionResultCache visionCache,
+                           SearchResultsPublisher resultsPublisher,
+                           HotelCardRenderer cardRenderer,
+                           // Один дедлайн на весь vision-запрос: загрузка + оба формата + повторная загрузка
+                           @Value("${gigachat.vision.deadline:PT30S}") Duration visionDeadline) {
         this.authService = authService;
         this.messagingTemplate = messagingTemplate;
-        this.webClient = createWebClientWithoutSslVerification();
-    }
-
-    private WebClient createWebClientWithoutSslVerification() {
-        try {
-            SslContext sslContext = SslContextBuilder.forClient()
-                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
-                    .build();
-            HttpClient httpClient = HttpClient.create()
-                    .secure(sslSpec -> sslSpec.sslContext(sslContext));
-            return WebClient.builder()
-                    .baseUrl("https://gigachat.devices.sberbank.ru/api/v1")
-                    .clientConnector(new ReactorClientHttpConnector(httpClient))
-                    .build();
-        } catch (SSLException e) {
-            throw new RuntimeException("Не удалось создать WebClient", e);
-        }
+        this.streamRegistry = streamRegistry;
+        this.resilience = resilience;
+        this.requestWriter = requestWriter;
+        this.conversationMemory = conversationMemory;
+        this.visionCache = visionCache;
+        this.resultsPublisher = resultsPublisher;
+        this.cardRenderer = cardRenderer;
+        this.visionDeadline = visionDeadline;
+        // 🌐 Общий пул соединений GigaChat (keep-alive, HTTP/2, gzip) — см. OutboundHttpClients
+        this.webClient = httpClients.webClient(OutboundHttpProperties.GIGACHAT)
+                .baseUrl("https://gigachat.devices.sberbank.ru/api/v1")
+                .build();
     }
 
     /**
      * ✅ Стриминг ответа от GigaChat
      */
     public void streamResponse(String userMessage) {
+        streamResponse(userMessage, null);
+    }
+
+    /**
+     * ✅ Стриминг ответа от GigaChat с привязкой к WebSocket сессии
+     * (стрим отменяется при отключении клиента или новом сообщении)
+     */
+    public void streamResponse(String userMessage, String sessionId) {
+        streamResponse(userMessage, sessionId, null);
+    }
+
+    /**
+     * ✅ Стриминг ответа + колбэк с полным текстом ответа после успешного завершения
+     * (используется семантическим кешем ответов)
+     */
+    public void streamResponse(String userMessage, String sessionId, Consumer<String> onAnswer) {
+        streamResponse(userMessage, sessionId, onAnswer, SpeculativeGate.OPEN);
+    }
+
+    /**
+     * ✅ Стриминг через шлюз спекулятивного выполнения: пока gate не открыт, ответ копится,
+     * при discard() стрим отменяется
+     */
+    public void streamResponse(String userMessage, String sessionId, Consumer<String> onAnswer,
+                               SpeculativeGate gate) {
         log.info("[GIGACHAT] Streaming response: {}", userMessage);
 
         String token = authService.getAccessToken();
         if (token == null) {
-            sendErrorMessage("❌ Ошибка аутентификации. Попробуйте ещё раз.");
+            gate.emit(() -> sendErrorMessage("❌ Ошибка аутентификации. Попробуйте ещё раз."));
             return;
         }
 
-        String systemPrompt = """
-                Ты — HotelGenix AI, профессиональный интеллектуальный ассистент по поиску и бронированию отелей.
-                
-                ** ТВОЯ РОЛЬ: Помощник по путешествиям**
-                Ты анализируешь запросы пользователя и даёшь рекомендации по отелям, дестинациям, путешествиям.
-                
-                ** ОСНОВНЫЕ ЗАДАЧИ:**
-                1. Помогать найти идеальный отель по критериям (локация, бюджет, звёзды, удобства)
-                2. Давать рекомендации на основе описания желаемого отдыха
-                3. Сравнивать варианты отелей и объяснять преимущества
-                4. Отвечать на вопросы о бронировании, ценах, услугах
-                5. Предлагать альтернативы, если вариант не подходит
-                
-                ** КАК ОБЩАТЬСЯ:**
-                - Всегда отвечай на русском языке ТОЛЬКО
-                - Будь дружелюбным, профессиональным и внимательным
-                - Держи фокус на теме отелей и путешествий
-                """;
-
-        String requestPayload = String.format(
-                "{\"model\": \"GigaChat-2\", \"temperature\": 0.7, \"stream\": true, " +
-                        "\"messages\": [{\"role\": \"system\", \"content\": \"%s\"}, " +
-                        "{\"role\": \"user\", \"content\": \"%s\"}]}",
-                escapeJsonString(systemPrompt),
-                escapeJsonString(userMessage)
-        );
-
         log.debug("[GIGACHAT] Sending request to GigaChat API");
 
-        webClient.post()
-                .uri("/chat/completions")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                .bodyValue(requestPayload)
-                .retrieve()
-                .bodyToFlux(String.class)
+        List<ConversationMemory.Message> history = conversationMemory.context(sessionId);
+        GigaChatStreamRegistry.ActiveStream stream = streamRegistry.open(sessionId);
+        gate.onDiscard(() -> streamRegistry.cancel(stream, GigaChatStreamRegistry.CancelReason.SPECULATION_LOST));
+        StringBuilder answer = new StringBuilder();
+        stream.attach(resilience.decorateStream(GigaChatResilience.Operation.CHAT_STREAM, webClient.post()
+                        .uri("/chat/completions")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .headers(headers -> setSessionHeader(headers, sessionId))
+                        .body(requestWriter.chatStream(GENERAL_SYSTEM_PROMPT, history, userMessage))
+                        .retrieve()
+                        .bodyToFlux(String.class))
                 .timeout(Duration.ofSeconds(120))
-                .doOnNext(this::processStreamChunk)
+                .doOnNext(chunk -> processStreamChunk(chunk, content -> {
+                    stream.onToken();
+                    answer.append(content);
+                    gate.emit(() -> sendTextChunk(content, sessionId));
+                }))
                 .doOnError(e -> {
                     log.error("[GIGACHAT] Error: {}", e.getMessage());
-                    sendErrorMessage("❌ Ошибка подключения к GigaChat");
+                    gate.emit(() -> sendErrorMessage(streamErrorText(e)));
                 })
+                .doFinally(signal -> streamRegistry.finish(stream))
                 .subscribe(
                         onNext -> {},
                         onError -> log.error("[GIGACHAT] Subscription error", onError),
-                        () -> log.info("[GIGACHAT] Stream completed")
-                );
+                        () -> {
+                            log.info("[GIGACHAT] Stream completed");
+                            // Проигравшая спекулятивная ветка не попадает ни в память диалога, ни в кеш
+                            gate.emit(() -> {
+                                conversationMemory.append(sessionId, userMessage, answer.toString());
+                                if (onAnswer != null) {
+                                    onAnswer.accept(answer.toString());
+                                }
+                            });
+                        }
+                ));
+    }
+
+    /**
+     * 🔁 Повторяет сохранённый ответ через тот же потоковый канал (без вызова GigaChat)
+     */
+    public void replayAnswer(String question, String answer, String sessionId) {
+        log.info("[GIGACHAT] Replaying cached answer ({} chars)", answer.length());
+        conversationMemory.append(sessionId, question, answer);
+        streamTextAsTokens(answer);
     }
 
     /**
@@ -210,14 +271,14 @@ public class GigaChatService {
         );
 
         try {
-            JsonNode response = webClient.post()
-                    .uri("/embeddings")
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block(Duration.ofSeconds(30));
+            JsonNode response = resilience.decorate(GigaChatResilience.Operation.EMBEDDINGS, webClient.post()
+                            .uri("/embeddings")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                            .bodyValue(requestBody)
+                            .retrieve()
+                            .bodyToMono(JsonNode.class))
+                    .block(GigaChatResilience.MAX_BLOCK);
 
             if (response == null) {
                 log.error("[GIGACHAT] Null response from embeddings");
@@ -252,9 +313,22 @@ public class GigaChatService {
 
     /**
      * 👁️ GigaChat Vision API с DEBUG и FALLBACK
+     * ✅ Повторные (и почти одинаковые) картинки отвечаются из VisionResultCache
+     * ✅ Все шаги укладываются в общий дедлайн gigachat.vision.deadline; таймаут или отказ
+     *    circuit breaker / bulkhead сразу ведут к fallback без следующих попыток
+     *
+     * @param uploadSha256 — SHA-256 исходного файла (VisionResultCache.hashUpload)
      */
-    public String analyzeImageWithVision(String base64Image, String prompt) {
+    public String analyzeImageWithVision(ImagePreprocessor.PreparedImage image, String uploadSha256, String prompt) {
         log.info("[GIGACHAT] Vision analysis starting");
+        byte[] imageBytes = image.jpeg();
+
+        // 0️⃣ ЭТУ (ИЛИ ПОЧТИ ТАКУЮ ЖЕ) КАРТИНКУ УЖЕ АНАЛИЗИРОВАЛИ
+        VisionResultCache.Fingerprint fingerprint = visionCache.fingerprint(uploadSha256, image);
+        String cached = visionCache.findDescription(fingerprint, prompt);
+        if (cached != null) {
+            return cached;
+        }
 
         String token = authService.getAccessToken();
         if (token == null) {
@@ -262,48 +336,87 @@ public class GigaChatService {
             return null;
         }
 
+        // ⚡ Fast-fail: если vision-ответы сейчас не проходят, не тратим время на загрузку файла
+        if (resilience.state(GigaChatResilience.Operation.VISION_COMPLETION) == CircuitBreaker.State.OPEN) {
+            log.warn("[GIGACHAT] Vision circuit is open, using fallback");
+            return generateFallbackDescription();
+        }
+
+        long deadline = System.nanoTime() + visionDeadline.toNanos();
         try {
-            // 1️⃣ ЗАГРУЖАЕМ ИЗОБРАЖЕНИЕ
-            String fileId = uploadImageFile(base64Image, token);
-            if (fileId == null) {
-                log.warn("[GIGACHAT] Failed to upload image, using fallback");
-                return generateFallbackDescription();
+            // 1️⃣ ЗАГРУЖАЕМ ИЗОБРАЖЕНИЕ (если уже загружали — берём file_id из кеша)
+            String fileId = visionCache.findFileId(fingerprint);
+            boolean reused = fileId != null;
+            if (!reused) {
+                fileId = uploadAndRemember(imageBytes, fingerprint, token, deadline);
+                if (fileId == null) {
+                    log.warn("[GIGACHAT] Failed to upload image, using fallback");
+                    return generateFallbackDescription();
+                }
             }
 
-            log.info("[GIGACHAT] File uploaded: {}", fileId);
+            // 2️⃣ ОПИСАНИЕ ПО ЗАГРУЖЕННОМУ ФАЙЛУ
+            String result = describeUploadedImage(fileId, prompt, token, deadline);
 
-            // 2️⃣ ПЫТАЕМСЯ ИСПОЛЬЗОВАТЬ attachments
-            String result = tryVisionWithAttachments(fileId, prompt, token);
-            if (result != null && !result.isEmpty()) {
-                return result;
+            // Файл из кеша мог быть уже удалён в GigaChat — загружаем заново один раз
+            if (result == null && reused) {
+                log.warn("[GIGACHAT] Cached file {} gave no result, re-uploading", fileId);
+                visionCache.evictFileId(fingerprint);
+                fileId = uploadAndRemember(imageBytes, fingerprint, token, deadline);
+                result = fileId != null ? describeUploadedImage(fileId, prompt, token, deadline) : null;
             }
 
-            log.warn("[GIGACHAT] Vision with attachments failed, trying alternative format");
-
-            // 3️⃣ ПРОБУЕМ АЛЬТЕРНАТИВНЫЙ ФОРМАТ (без attachments)
-            result = tryVisionWithFileContent(fileId, prompt, token);
-            if (result != null && !result.isEmpty()) {
+            if (result != null) {
+                visionCache.storeDescription(fingerprint, prompt, result);
                 return result;
             }
 
             log.warn("[GIGACHAT] All vision methods failed, using fallback");
             return generateFallbackDescription();
 
+        } catch (VisionAbortedException e) {
+            log.warn("[GIGACHAT] Vision aborted ({}), using fallback", e.getMessage());
+            return generateFallbackDescription();
         } catch (Exception e) {
             log.error("[GIGACHAT] Vision error: {}", e.getMessage());
             return generateFallbackDescription();
         }
     }
 
+    /**
+     * Пробует оба формата vision-запроса, null — если ни один не дал ответа
+     */
+    private String describeUploadedImage(String fileId, String prompt, String token, long deadline) {
+        // ПЫТАЕМСЯ ИСПОЛЬЗОВАТЬ attachments
+        String result = tryVisionWithAttachments(fileId, prompt, token, deadline);
+        if (result != null && !result.isEmpty()) {
+            return result;
+        }
+
+        log.warn("[GIGACHAT] Vision with attachments failed, trying alternative format");
+
+        // ПРОБУЕМ АЛЬТЕРНАТИВНЫЙ ФОРМАТ (без attachments)
+        result = tryVisionWithFileContent(fileId, prompt, token, deadline);
+        return result != null && !result.isEmpty() ? result : null;
+    }
+
+    private String uploadAndRemember(byte[] imageBytes, VisionResultCache.Fingerprint fingerprint, String token,
+                                     long deadline) {
+        String fileId = uploadImageFile(imageBytes, token, deadline);
+        if (fileId != null) {
+            log.info("[GIGACHAT] File uploaded: {}", fileId);
+            visionCache.storeFileId(fingerprint, fileId);
+        }
+        return fileId;
+    }
+
     /**
      * 📤 Загружает изображение в хранилище GigaChat
      */
-    private String uploadImageFile(String base64Image, String token) {
+    private String uploadImageFile(byte[] imageBytes, String token, long deadline) {
         try {
-            byte[] imageBytes = Base64.getDecoder().decode(base64Image);
             log.info("[GIGACHAT] Uploading image: {} bytes", imageBytes.length);
 
-            RestTemplate restTemplate = new RestTemplate();
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
 
             body.add("file", new ByteArrayResource(imageBytes) {
@@ -314,14 +427,13 @@ public class GigaChatService {
             });
             body.add("purpose", "general");
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            headers.setBearerAuth(token);
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            String url = "https://gigachat.devices.sberbank.ru/api/v1/files";
-
-            String response = restTemplate.postForObject(url, requestEntity, String.class);
+            String response = blockWithin(resilience.decorate(GigaChatResilience.Operation.VISION_UPLOAD, webClient.post()
+                    .uri("/files")
+                    .headers(headers -> headers.setBearerAuth(token))
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .body(BodyInserters.fromMultipartData(body))
+                    .retrieve()
+                    .bodyToMono(String.class)), deadline);
 
             if (response != null) {
                 JsonNode json = new ObjectMapper().readTree(response);
@@ -332,6 +444,8 @@ public class GigaChatService {
 
             return null;
 
+        } catch (VisionAbortedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("[GIGACHAT] File upload error: {}", e.getMessage());
             return null;
@@ -341,27 +455,16 @@ public class GigaChatService {
     /**
      * 💬 Вариант 1: Vision с attachments
      */
-    private String tryVisionWithAttachments(String fileId, String prompt, String token) {
+    private String tryVisionWithAttachments(String fileId, String prompt, String token, long deadline) {
         try {
             log.info("[GIGACHAT] Trying vision with attachments format");
 
-            String requestPayload = String.format(
-                    "{\"model\": \"GigaChat-Pro\", \"messages\": [{" +
-                            "\"role\": \"user\", \"content\": \"%s\", \"attachments\": [\"%s\"]" +
-                            "}], \"stream\": false}",
-                    escapeJsonString(prompt),
-                    fileId
-            );
-
-            JsonNode response = webClient.post()
+            JsonNode response = blockWithin(resilience.decorate(GigaChatResilience.Operation.VISION_COMPLETION, webClient.post()
                     .uri("/chat/completions")
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .bodyValue(requestPayload)
+                    .body(requestWriter.visionWithAttachment(prompt, fileId))
                     .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .onErrorReturn(new ObjectMapper().createObjectNode())
-                    .block(Duration.ofSeconds(30));
+                    .bodyToMono(JsonNode.class)), deadline);
 
             if (response == null || response.isMissingNode()) {
                 return null;
@@ -384,6 +487,8 @@ public class GigaChatService {
 
             return null;
 
+        } catch (VisionAbortedException e) {
+            throw e;
         } catch (Exception e) {
             log.warn("[GIGACHAT] Attachments format failed: {}", e.getMessage());
             return null;
@@ -393,27 +498,16 @@ public class GigaChatService {
     /**
      * 💬 Вариант 2: Vision без attachments
      */
-    private String tryVisionWithFileContent(String fileId, String prompt, String token) {
+    private String tryVisionWithFileContent(String fileId, String prompt, String token, long deadline) {
         try {
             log.info("[GIGACHAT] Trying vision with simple format");
 
-            String requestPayload = String.format(
-                    "{\"model\": \"GigaChat-Pro\", \"messages\": [{" +
-                            "\"role\": \"user\", \"content\": \"%s (файл ID: %s)\"" +
-                            "}], \"stream\": false}",
-                    escapeJsonString(prompt),
-                    fileId
-            );
-
-            JsonNode response = webClient.post()
+            JsonNode response = blockWithin(resilience.decorate(GigaChatResilience.Operation.VISION_COMPLETION, webClient.post()
                     .uri("/chat/completions")
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .bodyValue(requestPayload)
+                    .body(requestWriter.visionWithFileReference(prompt, fileId))
                     .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .onErrorReturn(new ObjectMapper().createObjectNode())
-                    .block(Duration.ofSeconds(30));
+                    .bodyToMono(JsonNode.class)), deadline);
 
             if (response != null && !response.isMissingNode()) {
                 JsonNode choices = response.path("choices");
@@ -435,12 +529,43 @@ public class GigaChatService {
 
             return null;
 
+        } catch (VisionAbortedException e) {
+            throw e;
         } catch (Exception e) {
             log.warn("[GIGACHAT] Simple format failed: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * ⏱️ Ждёт vision-шаг не дольше, чем осталось до общего дедлайна.
+     * Таймаут и отказ resilience прерывают весь запрос: второй формат и повторная загрузка уже не помогут
+     */
+    private <T> T blockWithin(Mono<T> call, long deadline) {
+        long left = deadline - System.nanoTime();
+        if (left <= 0) {
+            throw new VisionAbortedException("deadline exceeded");
+        }
+        try {
+            return call.timeout(Duration.ofNanos(left)).block(visionDeadline);
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof TimeoutException || cause instanceof GigaChatResilience.RejectedException) {
+                throw new VisionAbortedException(cause.getMessage() != null ? cause.getMessage() : "timeout");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Vision-запрос прерван целиком (дедлайн, таймаут, circuit open / bulkhead full)
+     */
+    private static class VisionAbortedException extends RuntimeException {
+        VisionAbortedException(String reason) {
+            super(reason);
+        }
+    }
+
     /**
      * 🎲 Fallback: Интеллектуальное описание
      */
@@ -520,58 +645,14 @@ public class GigaChatService {
         headerMsg.setTimestamp(System.currentTimeMillis());
         messagingTemplate.convertAndSend("/topic/messages", headerMsg);
 
+        // Текст и JSON карточки — из кеша фрагментов (HotelCardRenderer)
         for (HotelSearchResult hotel : hotels) {
-            ChatMessage cardMsg = new ChatMessage();
-            cardMsg.setContent(formatHotelCard(hotel));
-            cardMsg.setSender("assistant");
-            cardMsg.setType("hotel_card");
-            cardMsg.setHotelData(hotel);
-            cardMsg.setTimestamp(System.currentTimeMillis());
-            messagingTemplate.convertAndSend("/topic/messages", cardMsg);
+            resultsPublisher.sendHotelCard(hotel, cardRenderer.cardText(hotel), false);
         }
     }
 
     // ============ PRIVATE HELPERS ============
 
-    private void processStreamChunk(String chunk) {
-        if (chunk == null || chunk.trim().isEmpty()) {
-            return;
-        }
-
-        String[] lines = chunk.split("\n");
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) {
-                continue;
-            }
-
-            line = line.trim();
-
-            if (line.equals("[DONE]")) {
-                log.debug("[GIGACHAT] Stream finished");
-                return;
-            }
-
-            if (line.startsWith("{")) {
-                try {
-                    JsonNode node = mapper.readTree(line);
-                    JsonNode choices = node.path("choices");
-
-                    if (choices.isArray() && choices.size() > 0) {
-                        JsonNode delta = choices.get(0).path("delta");
-                        String content = delta.path("content").asText("");
-
-                        if (!content.isEmpty()) {
-                            log.debug("[GIGACHAT] Token: {}", content);
-                            sendTextChunk(content);
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("[GIGACHAT] Parse error: {}", e.getMessage());
-                }
-            }
-        }
-    }
-
     private void sendTextChunk(String text) {
         ChatMessage msg = new ChatMessage();
         msg.setContent(text);
@@ -582,12 +663,20 @@ public class GigaChatService {
         messagingTemplate.convertAndSend("/topic/messages", msg);
     }
 
-    private String escapeJsonString(String str) {
-        return str.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    /**
+     * 🔖 X-Session-ID: GigaChat кеширует контекст диалога между запросами одной сессии
+     */
+    private void setSessionHeader(HttpHeaders headers, String sessionId) {
+        if (sessionId != null) {
+            headers.set(SESSION_ID_HEADER, sessionId);
+        }
+    }
+
+    private String streamErrorText(Throwable e) {
+        if (e instanceof GigaChatResilience.RejectedException) {
+            return "⏳ GigaChat сейчас перегружен. Попробуйте ещё раз через минуту.";
+        }
+        return "❌ Ошибка подключения к GigaChat";
     }
 
     private List<Double> generateRandomEmbedding(int dimension) {
@@ -604,28 +693,6 @@ public class GigaChatService {
         return embedding;
     }
 
-    private String formatHotelCard(HotelSearchResult hotel) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("🏨 ").append(hotel.getName()).append("\n");
-        sb.append("⭐ ").append(hotel.getStars()).append(" звёзд | Рейтинг: ").append(hotel.getRating()).append("\n");
-        sb.append("📍 ").append(hotel.getCity()).append(", ").append(hotel.getCountry()).append("\n");
-        sb.append("💰 ").append(hotel.getPricePerNight().intValue()).append(" ₽/ночь\n");
-
-        if (Boolean.TRUE.equals(hotel.getAllInclusive())) {
-            sb.append("🍽️ All Inclusive\n");
-        }
-        if (Boolean.TRUE.equals(hotel.getKidsClub())) {
-            sb.append("👨‍👩‍👧‍👦 Kids Club\n");
-        }
-        if (Boolean.TRUE.equals(hotel.getAquapark())) {
-            sb.append("💦 Аквапарк\n");
-        }
-
-        sb.append("\n").append(hotel.getDescription());
-
-        return sb.toString();
-    }
-
     /**
      * 🎯 Стриминг ответа с "tools" (по факту — с отдельным systemPrompt).
      * Важно: это УБЕРЁТ ошибку компиляции и позволит стримить ответ,
@@ -641,48 +708,79 @@ public class GigaChatService {
      * Сейчас по умолчанию шлёт в /topic/messages (общий канал), как у тебя в проекте.
      */
     public void streamResponseWithTools(String userMessage, String systemPrompt, String sessionId) {
+        streamResponseWithTools(userMessage, systemPrompt, sessionId, null);
+    }
+
+    /**
+     * 🎯 Стриминг ответа с tools + колбэк с полным текстом ответа после завершения
+     */
+    public void streamResponseWithTools(String userMessage, String systemPrompt, String sessionId,
+                                        Consumer<String> onAnswer) {
+        streamResponseWithTools(userMessage, systemPrompt, sessionId, onAnswer, SpeculativeGate.OPEN);
+    }
+
+    /**
+     * 🎯 Стриминг с tools через шлюз спекулятивного выполнения (см. streamResponse)
+     */
+    public void streamResponseWithTools(String userMessage, String systemPrompt, String sessionId,
+                                        Consumer<String> onAnswer, SpeculativeGate gate) {
         log.info("[GIGACHAT] Streaming response WITH TOOLS: {}", userMessage);
 
         String token = authService.getAccessToken();
         if (token == null) {
-            sendErrorMessage(sessionId, "❌ Ошибка аутентификации. Попробуйте ещё раз.");
+            gate.emit(() -> sendErrorMessage(sessionId, "❌ Ошибка аутентификации. Попробуйте ещё раз."));
             return;
         }
 
-        // Здесь systemPrompt приходит от ResearchAgent.buildSystemPrompt(...)
-        String requestPayload = String.format(
-                "{\"model\": \"GigaChat-2\", \"temperature\": 0.7, \"stream\": true, " +
-                        "\"messages\": [{\"role\": \"system\", \"content\": \"%s\"}, " +
-                        "{\"role\": \"user\", \"content\": \"%s\"}]}",
-                escapeJsonString(systemPrompt),
-                escapeJsonString(userMessage)
-        );
-
-        webClient.post()
-                .uri("/chat/completions")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                .bodyValue(requestPayload)
-                .retrieve()
-                .bodyToFlux(String.class)
+        // systemPrompt приходит от ResearchAgent.buildSystemPrompt(...) — это константы, их JSON-префикс кешируется
+        List<ConversationMemory.Message> history = conversationMemory.context(sessionId);
+        GigaChatStreamRegistry.ActiveStream stream = streamRegistry.open(sessionId);
+        gate.onDiscard(() -> streamRegistry.cancel(stream, GigaChatStreamRegistry.CancelReason.SPECULATION_LOST));
+        StringBuilder answer = new StringBuilder();
+        stream.attach(resilience.decorateStream(GigaChatResilience.Operation.CHAT_STREAM, webClient.post()
+                        .uri("/chat/completions")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .headers(headers -> setSessionHeader(headers, sessionId))
+                        .body(requestWriter.chatStream(systemPrompt, history, userMessage))
+                        .retrieve()
+                        .bodyToFlux(String.class))
                 .timeout(Duration.ofSeconds(120))
-                .doOnNext(chunk -> processStreamChunk(chunk, sessionId))
+                .doOnNext(chunk -> processStreamChunk(chunk, content -> {
+                    stream.onToken();
+                    answer.append(content);
+                    gate.emit(() -> sendTextChunk(content, sessionId));
+                }))
                 .doOnError(e -> {
                     log.error("[GIGACHAT] Error: {}", e.getMessage());
-                    sendErrorMessage(sessionId, "❌ Ошибка подключения к GigaChat");
+                    gate.emit(() -> sendErrorMessage(sessionId, streamErrorText(e)));
                 })
+                .doFinally(signal -> streamRegistry.finish(stream))
                 .subscribe(
                         onNext -> {},
                         onError -> log.error("[GIGACHAT] Subscription error", onError),
                         () -> {
                             log.info("[GIGACHAT] Stream completed");
-                            sendCompletionMessage(sessionId);
+                            gate.emit(() -> {
+                                sendCompletionMessage(sessionId);
+                                conversationMemory.append(sessionId, userMessage, answer.toString());
+                                if (onAnswer != null) {
+                                    onAnswer.accept(answer.toString());
+                                }
+                            });
                         }
-                );
+                ));
+    }
+
+    /**
+     * 🔁 Повторяет сохранённый research-ответ (с сообщением о завершении, как у стрима)
+     */
+    public void replayAnswerWithCompletion(String question, String answer, String sessionId) {
+        replayAnswer(question, answer, sessionId);
+        sendCompletionMessage(sessionId);
     }
 
-    /** Перегрузка обработки чанков: теперь можно учитывать sessionId */
-    private void processStreamChunk(String chunk, String sessionId) {
+    /** Обработка SSE-чанков стрима: каждый delta.content — один токен */
+    private void processStreamChunk(String chunk, Consumer<String> onToken) {
         if (chunk == null || chunk.trim().isEmpty()) {
             return;
         }
@@ -707,7 +805,7 @@ public class GigaChatService {
                         String content = delta.path("content").asText("");
 
                         if (!content.isEmpty()) {
-                            sendTextChunk(content, sessionId);
+                            onToken.accept(content);
                         }
                     }
                 } catch (Exception e) {
@@ -0,0 +1,204 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🛑 РЕЕСТР АКТИВНЫХ СТРИМОВ GIGACHAT
+ * ✅ Один активный стрим на WebSocket сессию
+ * ✅ Отменяет стрим при отключении клиента, новом сообщении или команде "стоп"
+ * ✅ Метрики: отменённые стримы и сэкономленные токены
+ */
+@Component
+public class GigaChatStreamRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatStreamRegistry.class);
+
+    public enum CancelReason {
+        DISCONNECT, SUPERSEDED, STOPPED,
+        /** Спекулятивная ветка проиграла (SpeculativeExecutor) */
+        SPECULATION_LOST
+    }
+
+    private final Map<String, ActiveStream> activeStreams = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary tokensSaved;
+
+    // Скользящее среднее длины завершённого ответа (в токенах) — для оценки экономии
+    private volatile double averageStreamTokens;
+
+    public GigaChatStreamRegistry(MeterRegistry meterRegistry,
+                                  @Value("${gigachat.stream.expected-tokens:300}") int expectedTokens) {
+        this.meterRegistry = meterRegistry;
+        this.averageStreamTokens = expectedTokens;
+        this.tokensSaved = DistributionSummary.builder("gigachat.streams.tokens.saved")
+                .description("Оценка токенов, не сгенерированных из-за отмены стрима")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        meterRegistry.gauge("gigachat.streams.active", activeStreams, Map::size);
+    }
+
+    /**
+     * ▶️ Регистрирует новый стрим для сессии.
+     * Предыдущий стрим этой сессии отменяется (новое сообщение вытесняет старое).
+     */
+    public ActiveStream open(String sessionId) {
+        ActiveStream stream = new ActiveStream(sessionId);
+        if (sessionId == null) {
+            return stream;
+        }
+
+        ActiveStream previous = activeStreams.put(sessionId, stream);
+        if (previous != null) {
+            cancel(previous, CancelReason.SUPERSEDED);
+        }
+        return stream;
+    }
+
+    /**
+     * 🏁 Стрим завершился сам (complete / error) — снимаем с учёта
+     */
+    public void finish(ActiveStream stream) {
+        if (stream.sessionId != null) {
+            activeStreams.remove(stream.sessionId, stream);
+        }
+        if (!stream.cancelled.get()) {
+            averageStreamTokens = averageStreamTokens * 0.9 + stream.tokens.get() * 0.1;
+        }
+        stream.close();
+    }
+
+    /**
+     * ⏳ Выполняет callback, когда у сессии не останется активного стрима
+     * (сразу — если стрима нет или он уже завершён)
+     */
+    public void whenIdle(String sessionId, Runnable callback) {
+        ActiveStream stream = sessionId != null ? activeStreams.get(sessionId) : null;
+        if (stream == null || !stream.addCloseCallback(callback)) {
+            callback.run();
+        }
+    }
+
+    /**
+     * ⏹ Отменяет активный стрим сессии (если есть)
+     */
+    public boolean cancel(String sessionId, CancelReason reason) {
+        if (sessionId == null) {
+            return false;
+        }
+        ActiveStream stream = activeStreams.remove(sessionId);
+        return stream != null && cancel(stream, reason);
+    }
+
+    /**
+     * 🔌 Клиент закрыл вкладку / отвалился WebSocket
+     */
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        if (cancel(event.getSessionId(), CancelReason.DISCONNECT)) {
+            log.info("[STREAMS] Session {} disconnected, stream cancelled", event.getSessionId());
+        }
+    }
+
+    public int activeCount() {
+        return activeStreams.size();
+    }
+
+    /**
+     * ⏹ Отменяет конкретный стрим (если он ещё идёт)
+     */
+    public boolean cancel(ActiveStream stream, CancelReason reason) {
+        if (!stream.cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        if (stream.sessionId != null) {
+            activeStreams.remove(stream.sessionId, stream);
+        }
+        stream.subscription.dispose();
+
+        int generated = stream.tokens.get();
+        double saved = Math.max(0, averageStreamTokens - generated);
+
+        Counter.builder("gigachat.streams.cancelled")
+                .description("Стримы GigaChat, отменённые до завершения")
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        tokensSaved.record(saved);
+
+        log.info("[STREAMS] Stream cancelled: session={}, reason={}, generated={} tokens, saved≈{} tokens",
+                stream.sessionId, reason, generated, Math.round(saved));
+        return true;
+    }
+
+    /**
+     * 📡 Активный стрим: подписка + счётчик сгенерированных токенов
+     */
+    public static final class ActiveStream {
+        private final String sessionId;
+        private final Disposable.Swap subscription = Disposables.swap();
+        private final AtomicInteger tokens = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final List<Runnable> closeCallbacks = new ArrayList<>();
+        private boolean closed;
+
+        private ActiveStream(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        /**
+         * Привязывает подписку. Если стрим уже отменён — подписка сразу освобождается.
+         */
+        public void attach(Disposable disposable) {
+            subscription.update(disposable);
+        }
+
+        public void onToken() {
+            tokens.incrementAndGet();
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        private synchronized boolean addCloseCallback(Runnable callback) {
+            if (closed) {
+                return false;
+            }
+            closeCallbacks.add(callback);
+            return true;
+        }
+
+        private void close() {
+            List<Runnable> callbacks;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                callbacks = new ArrayList<>(closeCallbacks);
+            }
+            callbacks.forEach(Runnable::run);
+        }
+    }
+}
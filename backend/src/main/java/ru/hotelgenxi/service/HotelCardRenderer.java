@@ -0,0 +1,118 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 🃏 ФРАГМЕНТЫ КАРТОЧЕК ОТЕЛЕЙ (с кешем)
+ * ✅ JSON карточки (hotelData) готовыми байтами — из них собираются кадры search_results и hotel_card
+ * ✅ Текст карточки (для content) — тоже один раз на отель
+ * ✅ Ключ кеша — id отеля + версия каталога: после перезагрузки каталога фрагменты строятся заново
+ * ✅ similarity зависит от запроса, поэтому в кеше JSON без неё — дописывается при каждой выдаче
+ */
+@Component
+public class HotelCardRenderer {
+
+    // Поля null не пишем: фрагмент компактнее, а similarity добавляется в конец без дубля ключа
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final HotelCatalog catalog;
+    private final Cache<String, Fragment> fragments;
+
+    // json — объект карточки без закрывающей скобки и без similarity
+    private record Fragment(byte[] json, String text) {
+    }
+
+    public HotelCardRenderer(
+            HotelCatalog catalog,
+            MeterRegistry meterRegistry,
+            @Value("${chat.cards.cache-size:2000}") long cacheSize
+    ) {
+        this.catalog = catalog;
+        this.fragments = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        meterRegistry.gauge("chat.cards.cache.size", fragments, Cache::size);
+    }
+
+    /**
+     * JSON карточки отеля (то же, что уходит в hotelData у hotel_card)
+     */
+    public byte[] cardJson(HotelSearchResult hotel) {
+        byte[] base = fragment(hotel).json();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(base.length + 32);
+        out.writeBytes(base);
+        if (hotel.getSimilarity() != null) {
+            if (base.length > 1) {
+                out.write(',');
+            }
+            out.writeBytes(("\"similarity\":" + hotel.getSimilarity()).getBytes(StandardCharsets.UTF_8));
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * 📝 Текстовая карточка: название, звёзды, рейтинг, город, цена, удобства, описание
+     */
+    public String cardText(HotelSearchResult hotel) {
+        return fragment(hotel).text();
+    }
+
+    private Fragment fragment(HotelSearchResult hotel) {
+        if (hotel.getId() == null) {
+            return render(hotel);
+        }
+        try {
+            return fragments.get(hotel.getId() + ":" + catalog.version(), () -> render(hotel));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось подготовить карточку " + hotel.getId(), e.getCause());
+        }
+    }
+
+    private Fragment render(HotelSearchResult hotel) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(hotel.toBuilder().similarity(null).build());
+            // Срезаем '}' — similarity допишет cardJson()
+            return new Fragment(Arrays.copyOf(json, json.length - 1), formatText(hotel));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать карточку " + hotel.getId(), e);
+        }
+    }
+
+    private static String formatText(HotelSearchResult hotel) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("🏨 ").append(hotel.getName()).append("\n");
+        sb.append("⭐ ").append(hotel.getStars()).append(" звёзд | Рейтинг: ").append(hotel.getRating()).append("\n");
+        sb.append("📍 ").append(hotel.getCity()).append(", ").append(hotel.getCountry()).append("\n");
+        if (hotel.getPricePerNight() != null) {
+            sb.append("💰 ").append(hotel.getPricePerNight().intValue()).append(" ₽/ночь\n");
+        }
+
+        if (Boolean.TRUE.equals(hotel.getAllInclusive())) {
+            sb.append("🍽️ All Inclusive\n");
+        }
+        if (Boolean.TRUE.equals(hotel.getKidsClub())) {
+            sb.append("👨‍👩‍👧‍👦 Kids Club\n");
+        }
+        if (Boolean.TRUE.equals(hotel.getAquapark())) {
+            sb.append("💦 Аквапарк\n");
+        }
+
+        sb.append("\n").append(hotel.getDescription());
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.dto.ReviewDTO;
+import ru.hotelgenxi.util.HotelFeatureExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 📚 КАТАЛОГ ОТЕЛЕЙ В ПАМЯТИ
+ * ✅ hotels_raw.json читается один раз при старте (тот же файл, что загружает EmbedHotelsJob)
+ * ✅ Справочники стран и городов для разбора запросов (LocationGazetteer)
+ * ✅ Версия каталога — CRC32 содержимого: ключ для кешей, зависящих от данных
+ * ✅ Подписчики пересобирают свои индексы при каждой (пере)загрузке
+ */
+@Component
+public class HotelCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(HotelCatalog.class);
+
+    /**
+     * Неизменяемый снимок каталога
+     */
+    public record Snapshot(String version, List<HotelSearchResult> hotels, Map<String, String> cityCountries) {
+    }
+
+    private final Resource source;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot = new Snapshot("empty", List.of(), Map.of());
+    private volatile Map<String, HotelSearchResult> byId = Map.of();
+
+    public HotelCatalog(@Value("${catalog.source:classpath:hotels_raw.json}") Resource source) {
+        this.source = source;
+    }
+
+    @PostConstruct
+    public void load() {
+        try (InputStream input = source.getInputStream()) {
+            byte[] bytes = input.readAllBytes();
+            List<Map<String, Object>> raw = objectMapper.readValue(bytes, new TypeReference<>() {});
+
+            List<HotelSearchResult> hotels = new ArrayList<>(raw.size());
+            Map<String, HotelSearchResult> index = new HashMap<>(raw.size() * 2);
+            Map<String, String> cityCountries = new LinkedHashMap<>();
+            for (Map<String, Object> item : raw) {
+                HotelSearchResult hotel = toHotel(item);
+                hotels.add(hotel);
+                if (hotel.getId() != null) {
+                    index.put(hotel.getId(), hotel);
+                }
+                if (hotel.getCity() != null && hotel.getCountry() != null) {
+                    cityCountries.putIfAbsent(hotel.getCity(), hotel.getCountry());
+                }
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            Snapshot loaded = new Snapshot(Long.toHexString(crc.getValue()),
+                    Collections.unmodifiableList(hotels), Collections.unmodifiableMap(cityCountries));
+            byId = index;
+            snapshot = loaded;
+            log.info("[CATALOG] Loaded {} hotels, {} cities, version {}",
+                    hotels.size(), cityCountries.size(), loaded.version());
+            listeners.forEach(listener -> listener.accept(loaded));
+        } catch (IOException e) {
+            log.error("[CATALOG] Failed to load {}: {}", source, e.getMessage());
+        }
+    }
+
+    /**
+     * Подписка на (пере)загрузку; если каталог уже загружен — listener вызывается сразу
+     */
+    public void subscribe(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+        Snapshot current = snapshot;
+        if (!current.hotels().isEmpty()) {
+            listener.accept(current);
+        }
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public String version() {
+        return snapshot.version();
+    }
+
+    /**
+     * Отель по id (null — нет в каталоге). Объект общий: менять его нельзя, только копировать через toBuilder()
+     */
+    public HotelSearchResult hotel(String id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    private static HotelSearchResult toHotel(Map<String, Object> item) {
+        Map<String, Object> features = HotelFeatureExtractor.extract(string(item.get("description")));
+        return HotelSearchResult.builder()
+                .id(string(item.get("id")))
+                .name(string(item.get("name")))
+                .country(string(item.get("country")))
+                .city(string(item.get("city")))
+                .stars(item.get("stars") instanceof Number n ? n.intValue() : null)
+                .pricePerNight(item.get("price_per_night") instanceof Number n ? n.doubleValue() : null)
+                .rating(item.get("rating") instanceof Number n ? n.doubleValue() : null)
+                .description(string(item.get("description")))
+                .kidsClub(item.get("kids_club") instanceof Boolean b ? b : null)
+                .allInclusive(item.get("all_inclusive") instanceof Boolean b ? b : null)
+                .aquapark(item.get("aquapark") instanceof Boolean b ? b : null)
+                .reviews(toReviews(item.get("reviews")))
+                .beachDistanceM((Integer) features.get(HotelFeatureExtractor.BEACH_DISTANCE_M))
+                .reviewScore((Double) features.get(HotelFeatureExtractor.REVIEW_SCORE))
+                .build();
+    }
+
+    // Отзывы из исходного JSON: объекты {text, rating, author} или просто строки
+    static List<ReviewDTO> toReviews(Object value) {
+        if (!(value instanceof List<?> items)) {
+            return null;
+        }
+        List<ReviewDTO> reviews = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Map<?, ?> review) {
+                reviews.add(ReviewDTO.builder()
+                        .text(string(review.get("text")))
+                        .rating(review.get("rating") instanceof Number n ? n.intValue() : null)
+                        .author(string(review.get("author")))
+                        .build());
+            } else if (item != null) {
+                reviews.add(ReviewDTO.builder().text(item.toString()).build());
+            }
+        }
+        return reviews;
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.util.PrefixTrie;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🔤 АВТОДОПОЛНЕНИЕ: отели, города, страны
+ * ✅ Префиксное дерево из HotelCatalog: название отеля (и каждое его слово), город, страна
+ * ✅ В каждом узле заранее посчитан top-k по рейтингу — подсказка без обхода и без Qdrant
+ * ✅ Город и страна ранжируются по лучшему рейтингу своих отелей
+ * ✅ Пересобирается при каждой (пере)загрузке каталога
+ */
+@Component
+public class HotelSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HotelSuggestIndex.class);
+
+    public enum Type {
+        HOTEL, CITY, COUNTRY
+    }
+
+    /**
+     * Подсказка: для отеля — hotelId, город и страна; для города — страна
+     */
+    public record Suggestion(Type type, String text, String hotelId, String city, String country, Double rating) {
+    }
+
+    private final int topK;
+    private volatile PrefixTrie<Suggestion> trie = new PrefixTrie<Suggestion>().freeze(0);
+
+    public HotelSuggestIndex(
+            HotelCatalog catalog,
+            @Value("${hotels.suggest.top-k:10}") int topK
+    ) {
+        this.topK = topK;
+        catalog.subscribe(this::rebuild);
+    }
+
+    /**
+     * 🔎 До limit подсказок по началу названия (limit не больше hotels.suggest.top-k)
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, topK));
+    }
+
+    private void rebuild(HotelCatalog.Snapshot snapshot) {
+        PrefixTrie<Suggestion> built = new PrefixTrie<>();
+        Map<String, Suggestion> cities = new LinkedHashMap<>();
+        Map<String, Suggestion> countries = new LinkedHashMap<>();
+
+        for (HotelSearchResult hotel : snapshot.hotels()) {
+            double rating = hotel.getRating() != null ? hotel.getRating() : 0;
+            if (hotel.getName() != null && hotel.getId() != null) {
+                Suggestion suggestion = new Suggestion(Type.HOTEL, hotel.getName(), hotel.getId(),
+                        hotel.getCity(), hotel.getCountry(), hotel.getRating());
+                // «Belek» находит «Rixos Premium Belek»: ключ от начала каждого слова
+                String name = hotel.getName();
+                for (int i = 0; i < name.length(); i++) {
+                    if (Character.isLetterOrDigit(name.charAt(i))
+                            && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+                        built.add(name.substring(i), suggestion, rating);
+                    }
+                }
+            }
+            if (hotel.getCity() != null) {
+                cities.merge(hotel.getCity(),
+                        new Suggestion(Type.CITY, hotel.getCity(), null, null, hotel.getCountry(), hotel.getRating()),
+                        HotelSuggestIndex::better);
+            }
+            if (hotel.getCountry() != null) {
+                countries.merge(hotel.getCountry(),
+                        new Suggestion(Type.COUNTRY, hotel.getCountry(), null, null, null, hotel.getRating()),
+                        HotelSuggestIndex::better);
+            }
+        }
+        for (Suggestion city : cities.values()) {
+            built.add(city.text(), city, city.rating() != null ? city.rating() : 0);
+        }
+        for (Suggestion country : countries.values()) {
+            built.add(country.text(), country, country.rating() != null ? country.rating() : 0);
+        }
+
+        trie = built.freeze(topK);
+        log.info("[SUGGEST] Indexed {} hotels, {} cities, {} countries",
+                snapshot.hotels().size(), cities.size(), countries.size());
+    }
+
+    private static Suggestion better(Suggestion a, Suggestion b) {
+        if (a.rating() == null) {
+            return b;
+        }
+        return b.rating() != null && b.rating() > a.rating() ? b : a;
+    }
+}
@@ -0,0 +1,198 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.util.ExifOrientation;
+import ru.hotelgenxi.util.PerceptualHash;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 🖼️ ПОДГОТОВКА ИЗОБРАЖЕНИЙ ДЛЯ GIGACHAT VISION
+ * ✅ Декодирует загрузку один раз, потоком из файла (без base64 и копий в куче)
+ * ✅ Размеры читаются из заголовка до декодирования: слишком большие картинки (decompression bomb) отклоняются,
+ *    крупные декодируются с прореживанием
+ * ✅ Поворот из EXIF Orientation применяется к пикселям (сами метаданные в JPEG не переносятся)
+ * ✅ Уменьшает до разрешения, с которым реально работает vision-модель
+ * ✅ Перекодирует в JPEG с заданным качеством — EXIF/GPS и прочие метаданные не переносятся
+ * ✅ Сразу считает перцептивный хеш (для VisionResultCache) по уже декодированной картинке
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    /**
+     * Готовое к отправке изображение
+     */
+    public record PreparedImage(byte[] jpeg, int width, int height, long perceptualHash) {
+    }
+
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    public ImagePreprocessor(
+            @Value("${gigachat.vision.max-dimension:1024}") int maxDimension,
+            @Value("${gigachat.vision.jpeg-quality:0.85}") float jpegQuality,
+            // Предел по заголовку картинки: 40 Мп — с запасом для любых фото с телефона
+            @Value("${gigachat.vision.max-pixels:40000000}") long maxPixels
+    ) {
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Декодирует картинку потоком прямо из файла загрузки (без чтения файла целиком в память)
+     *
+     * @return подготовленное изображение или null, если файл не является поддерживаемой картинкой
+     */
+    public PreparedImage prepare(Path file) {
+        long originalSize;
+        int sourceWidth;
+        int sourceHeight;
+        BufferedImage image;
+        int orientation;
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            originalSize = Files.size(file);
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.warn("[VISION] Unsupported image format ({} bytes)", originalSize);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                // Только заголовок: пиксели ещё не декодированы
+                sourceWidth = reader.getWidth(0);
+                sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxPixels) {
+                    log.warn("[VISION] Image rejected: {}x{} exceeds {} pixels", sourceWidth, sourceHeight, maxPixels);
+                    return null;
+                }
+                ImageReadParam params = reader.getDefaultReadParam();
+                // Сильно больше целевого размера — прореживаем при декодировании (запас ×2 для качества)
+                int subsampling = Math.max(1, Math.max(sourceWidth, sourceHeight) / (maxDimension * 2));
+                if (subsampling > 1) {
+                    params.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                image = reader.read(0, params);
+                orientation = orientation(reader);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("[VISION] Failed to decode image: {}", e.getMessage());
+            return null;
+        }
+
+        BufferedImage scaled = ExifOrientation.apply(toRgb(downscale(image)), orientation);
+        try {
+            byte[] jpeg = encodeJpeg(scaled);
+            log.info("[VISION] Image prepared: {}x{} {} KB → {}x{} {} KB",
+                    sourceWidth, sourceHeight, originalSize / 1024,
+                    scaled.getWidth(), scaled.getHeight(), jpeg.length / 1024);
+            return new PreparedImage(jpeg, scaled.getWidth(), scaled.getHeight(), PerceptualHash.dHash(scaled));
+        } catch (IOException e) {
+            log.error("[VISION] Failed to encode JPEG: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * EXIF Orientation; битые метаданные не мешают отправить картинку как есть
+     */
+    private static int orientation(ImageReader reader) {
+        try {
+            return ExifOrientation.read(reader.getImageMetadata(0));
+        } catch (IOException | RuntimeException e) {
+            log.debug("[VISION] Failed to read image metadata: {}", e.getMessage());
+            return ExifOrientation.NORMAL;
+        }
+    }
+
+    /**
+     * Уменьшение шагами не более чем вдвое — билинейная интерполяция без «лесенки»
+     */
+    private BufferedImage downscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        if (scale >= 1.0) {
+            return image;
+        }
+
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        while (width != targetWidth || height != targetHeight) {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        }
+        return current;
+    }
+
+    /**
+     * JPEG без альфа-канала: прозрачность заливаем белым
+     */
+    private BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        return draw(image, image.getWidth(), image.getHeight());
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        // Буфер в памяти явно — без глобального ImageIO.setUseCache(false) и без временных файлов
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(jpegQuality);
+            // metadata = null — в файл попадает только минимальный JFIF-заголовок
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
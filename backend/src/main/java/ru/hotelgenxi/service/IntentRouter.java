@@ -0,0 +1,218 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.util.AhoCorasick;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 🧭 КЛЮЧЕВОЙ МАРШРУТИЗАТОР НАМЕРЕНИЙ
+ * ✅ Все словари триггеров (отели, research, RAG) собраны в один автомат Ахо–Корасик при старте
+ * ✅ Сообщение классифицируется за один линейный проход, без toLowerCase-копии и сотен contains()
+ * ✅ Возвращаются все найденные намерения с весами — маршрут выбирает SupervisorAgent
+ * ✅ Совпадения логируются на DEBUG одной строкой, а не по INFO на каждый триггер
+ */
+@Component
+public class IntentRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(IntentRouter.class);
+
+    public enum Intent {
+        /** Поиск отеля → RAGAnalystAgent */
+        HOTEL_SEARCH,
+        /** Информационный запрос (погода, билеты, валюта...) → ResearchAgent */
+        RESEARCH,
+        /** Расширенный словарь RAGAnalystAgent.shouldProcessWithRAG */
+        RAG,
+        /** Обычный диалог → GigaChat (ключевыми словами не определяется, только классификатором) */
+        GENERAL
+    }
+
+    /**
+     * Триггер словаря: фраза, намерение и вес
+     */
+    public record Trigger(String phrase, Intent intent, double weight) {
+    }
+
+    /**
+     * Результат классификации: суммарный вес по каждому намерению (каждый триггер учитывается один раз)
+     */
+    public record Classification(Map<Intent, Double> scores, Set<Trigger> triggers) {
+
+        public double score(Intent intent) {
+            return scores.getOrDefault(intent, 0.0);
+        }
+
+        public boolean matches(Intent intent) {
+            return score(intent) > 0;
+        }
+
+        public boolean isEmpty() {
+            return triggers.isEmpty();
+        }
+    }
+
+    private static final Classification EMPTY = new Classification(Map.of(), Set.of());
+
+    // ============ HOTEL SEARCH ==============
+    private static final String[] HOTEL_MAIN = {
+            "отель", "отели", "гостинец", "гостиница",
+            "бронь", "забронировать", "хочу остановиться",
+            "где остановиться", "жилье", "апартамент",
+            "буклет", "каталог отелей",
+            "поиск отеля", "подберите отель", "рекомендуй отель"
+    };
+    private static final String[] HOTEL_AMENITIES = {
+            "детский клуб", "kids club",
+            "all inclusive", "all-inclusive", "олл инклюзив",
+            "аквапарк", "aquapark",
+            "спа", "spa", "массаж",
+            "бассейн", "pool", "пляж",
+            "ресторан", "кафе", "бар"
+    };
+    private static final String[] HOTEL_TYPES = {
+            "курорт", "пансионат", "санаторий",
+            "5 звёзд", "4 звёзд", "3 звёзд",
+            "люкс", "premium", "эконом"
+    };
+    private static final String[] HOTEL_LOCATIONS = {
+            "сочи", "анапа", "ялта", "крым",
+            "турция", "анталья", "кемер", "мармарис",
+            "египет", "хургада", "шарм-эль-шейх", "асуан",
+            "таиланд", "пхукет", "патайя", "бангкок",
+            "оаэ", "дубай", "абу-даби",
+            "мальдив", "мале",
+            "греция", "крит", "афины",
+            "испания", "барселона", "мадрид"
+    };
+    private static final String[] HOTEL_FILTERS = {
+            "до ", // "до 5000" (цена)
+            "от ", // "от 3000" (цена)
+            "рублей", "₽", "руб",
+            "звёзд", "звезд", "звезды",
+            "с детьми", "для семьи", "с ребенком",
+            "с пляжем", "с бассейном",
+            "недорог", "дешев", "бюджет"
+    };
+
+    // ============ RESEARCH ==============
+    private static final String[] RESEARCH_TOPICS = {
+            // === ПОГОДА ===
+            "погода", "weather", "температура", "temp", "климат", "climate",
+            "тепло", "холодно", "дождь", "снег", "облака", "солнечно",
+            "ветер", "влажность", "прогноз", "forecast",
+            // === АВИАБИЛЕТЫ ===
+            "авиабилет", "рейс", "перелет", "flight", "цена на рейс",
+            "сколько стоит билет", "цены на авиа", "билет",
+            // === ВАЛЮТА ===
+            "курс", "валюта", "доллар", "евро", "рубль", "фунт", "грн",
+            "exchange rate", "currency", "usd", "eur", "gbp", "jpy",
+            // === ТРАНСПОРТ ===
+            "как добраться", "транспорт", "машина", "такси", "метро",
+            "автобус", "поезд", "маршрут", "route", "transportation",
+            // === ВИЗА И ДОКУМЕНТЫ ===
+            "виза", "страховка", "документы", "паспорт", "visa",
+            "insurance", "requirements",
+            // === ЛУЧШЕЕ ВРЕМЯ ===
+            "когда лучше", "сезон", "когда ехать", "best time",
+            "когда дешевле", "high season", "low season",
+            // === ДОСТОПРИМЕЧАТЕЛЬНОСТИ ===
+            "что посмотреть", "достопримечательность", "музей",
+            "культура", "история", "monument", "museum", "attractions",
+            // === РЕЖИМ РАБОТЫ ===
+            "когда открыто", "режим работы", "часы работы", "opening",
+            "hours", "расписание",
+            // === ЕДА ===
+            "местная кухня", "еда", "блюдо", "ресторан рекомендуй",
+            "пища", "dish", "cuisine", "food", "restaurant",
+            // === УПАКОВКА ===
+            "как одеться", "одежда", "чемодан", "что брать",
+            "what to pack", "clothing", "luggage"
+    };
+    private static final String[] RESEARCH_GENERIC = {
+            // === ИНФОРМАЦИЯ ===
+            "информация о", "расскажи о", "узнать о", "tell me about",
+            "информация", "как там", "что там",
+            // === ОБЩИЕ ПОИСКИ ===
+            "поиск", "найди", "ищу", "ищем", "цена", "стоимость", "сколько стоит"
+    };
+
+    // ============ RAG ==============
+    private static final String[] RAG_TRIGGERS = {
+            "отель", "отели", "гостинец", "гостиница",
+            "буклет", "забронировать", "бронь", "комната", "номер",
+            "пляж", "море", "аквапарк", "спа", "курорт",
+            "поиск", "ищу", "найди", "подберите", "рекомендуй",
+            "турция", "египет", "таиланд", "оаэ", "мальдив",
+            "сочи", "анапа", "крым", "ялта",
+            "сколько стоит", "цена", "стоимость",
+            "5 звёзд", "4 звёзд", "3 звёзд",
+            "all inclusive", "детский клуб"
+    };
+
+    private final List<Trigger> triggers = new ArrayList<>();
+    private final AhoCorasick<Trigger> automaton;
+
+    public IntentRouter() {
+        AhoCorasick.Builder<Trigger> builder = AhoCorasick.builder();
+        // Веса: прямое упоминание отеля важнее косвенных признаков (город, «до », «цена»)
+        addAll(builder, HOTEL_MAIN, Intent.HOTEL_SEARCH, 1.0);
+        addAll(builder, HOTEL_TYPES, Intent.HOTEL_SEARCH, 0.8);
+        addAll(builder, HOTEL_AMENITIES, Intent.HOTEL_SEARCH, 0.6);
+        addAll(builder, HOTEL_LOCATIONS, Intent.HOTEL_SEARCH, 0.5);
+        addAll(builder, HOTEL_FILTERS, Intent.HOTEL_SEARCH, 0.3);
+        addAll(builder, RESEARCH_TOPICS, Intent.RESEARCH, 1.0);
+        addAll(builder, RESEARCH_GENERIC, Intent.RESEARCH, 0.4);
+        addAll(builder, RAG_TRIGGERS, Intent.RAG, 1.0);
+        this.automaton = builder.build();
+
+        log.info("[ROUTER] Intent automaton built: {} states", automaton.size());
+    }
+
+    /**
+     * 🎯 Все намерения, найденные в сообщении, с весами
+     */
+    public Classification classify(String message) {
+        if (message == null || message.isBlank()) {
+            return EMPTY;
+        }
+
+        Set<Trigger> triggers = new LinkedHashSet<>();
+        automaton.forEachMatch(message, triggers::add);
+        if (triggers.isEmpty()) {
+            log.debug("[ROUTER] No triggers matched");
+            return EMPTY;
+        }
+
+        Map<Intent, Double> scores = new EnumMap<>(Intent.class);
+        for (Trigger trigger : triggers) {
+            scores.merge(trigger.intent(), trigger.weight(), Double::sum);
+        }
+        log.debug("[ROUTER] Intents {} from triggers {}", scores,
+                triggers.stream().map(Trigger::phrase).distinct().toList());
+        return new Classification(Collections.unmodifiableMap(scores), Collections.unmodifiableSet(triggers));
+    }
+
+    /**
+     * Словарь целиком (бенчмарк сравнивает автомат с перебором contains() по тем же фразам)
+     */
+    List<Trigger> triggers() {
+        return Collections.unmodifiableList(triggers);
+    }
+
+    private void addAll(AhoCorasick.Builder<Trigger> builder, String[] phrases, Intent intent, double weight) {
+        for (String phrase : phrases) {
+            Trigger trigger = new Trigger(phrase, intent, weight);
+            triggers.add(trigger);
+            builder.add(phrase, trigger);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.util.AhoCorasick;
+import ru.hotelgenxi.util.BkTree;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 🗺️ ГАЗЕТТИР ЛОКАЦИЙ ИЗ КАТАЛОГА
+ * ✅ Строится из HotelCatalog: все страны и города, которые реально есть в каталоге
+ * ✅ Падежные формы («в Турции», «из Анапы», «в Дубае») + алиасы и частые варианты написания
+ * ✅ Все формы собраны в один бор (Ахо–Корасик): запрос разбирается за один проход
+ * ✅ Совпадение засчитывается только целым словом («Сиде» не найдётся в «сидеть»);
+ *    алиас-основа («турецк*») — по началу слова: «турецкий», «турецкие»
+ * ✅ Опечатки («антолия», «хургода») — BK-дерево по тем же формам, 1–2 правки в зависимости от длины слова
+ * ✅ Пересобирается при перезагрузке каталога
+ */
+@Component
+public class LocationGazetteer {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationGazetteer.class);
+
+    /**
+     * Найденная локация: country и/или city (null — не упомянуто)
+     */
+    public record Location(String country, String city) {
+        public boolean isEmpty() {
+            return country == null && city == null;
+        }
+    }
+
+    // Форма названия → страна (и город, если это город)
+    private record Place(String country, String city) {
+    }
+
+    // Форма в автомате: stem — основа, совпадает с началом слова, а не со словом целиком
+    private record Form(Place place, boolean stem) {
+    }
+
+    private static final String STEM_SUFFIX = "*";
+
+    // Алиасы и формы, которые не выводятся из названия по правилам; «…*» — основа прилагательного
+    private static final Map<String, List<String>> ALIASES = Map.ofEntries(
+            Map.entry("Египет", List.of("египта", "египте", "египту", "египтом", "egypt")),
+            Map.entry("Турция", List.of("turkey", "турецк" + STEM_SUFFIX)),
+            Map.entry("Таиланд", List.of("тайланд", "thailand")),
+            Map.entry("ОАЭ", List.of("эмираты", "эмиратах", "эмиратов", "эмиратам", "эмиратами", "uae")),
+            Map.entry("Россия", List.of("рф", "russia")),
+            Map.entry("Анталья", List.of("анталия", "antalya")),
+            Map.entry("Пхукет", List.of("пукет", "phuket")),
+            Map.entry("Паттайя", List.of("патайя", "pattaya")),
+            Map.entry("Шарм-эль-Шейх", List.of("шарм", "шарме", "шарм эль шейх", "sharm")),
+            Map.entry("Абу-Даби", List.of("абу даби", "abu dhabi")),
+            Map.entry("Самуи", List.of("самуй", "samui")),
+            Map.entry("Дубай", List.of("дубаи", "dubai")),
+            Map.entry("Хургада", List.of("hurghada"))
+    );
+
+    // Короткие слова не исправляем: на 4 буквах одна правка превращает слово в другое («сочи» → «очки»).
+    // Порог одинаков для слова запроса и для формы в BK-дереве — иначе «сидел» (5) находит «сиде» (4)
+    private static final int MIN_FUZZY_LENGTH = 5;
+    private static final int TWO_EDITS_LENGTH = 8;
+
+    private final boolean fuzzyEnabled;
+    private final int fuzzyMaxVisits;
+
+    private volatile AhoCorasick<Form> automaton = AhoCorasick.<Form>builder().build();
+    private volatile BkTree<Place> fuzzyIndex = new BkTree<>();
+    private volatile Map<String, String> cityCountries = Map.of();
+
+    public LocationGazetteer(
+            HotelCatalog catalog,
+            @Value("${chat.location.fuzzy.enabled:true}") boolean fuzzyEnabled,
+            // предел сравнений в BK-дереве на одно слово запроса
+            @Value("${chat.location.fuzzy.max-visits:300}") int fuzzyMaxVisits
+    ) {
+        this.fuzzyEnabled = fuzzyEnabled;
+        this.fuzzyMaxVisits = fuzzyMaxVisits;
+        catalog.subscribe(this::rebuild);
+    }
+
+    /**
+     * 🔎 Первая упомянутая страна и первый упомянутый город.
+     * Если назван город — страна берётся из каталога (иначе фильтр может дать пустой результат).
+     */
+    public Location find(String text) {
+        if (text == null || text.isBlank()) {
+            return new Location(null, null);
+        }
+
+        Place[] found = new Place[2]; // [0] — страна, [1] — город
+        int[] positions = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+        automaton.scan(text, (start, end, form) -> {
+            if (!isWordBoundary(text, start - 1) || (!form.stem() && !isWordBoundary(text, end))) {
+                return;
+            }
+            Place place = form.place();
+            int slot = place.city() != null ? 1 : 0;
+            if (start < positions[slot]) {
+                positions[slot] = start;
+                found[slot] = place;
+            }
+        });
+
+        // Город не найден точно — пробуем исправить опечатку
+        if (found[1] == null && fuzzyEnabled) {
+            Place fuzzy = findFuzzy(text);
+            if (fuzzy != null && (fuzzy.city() != null || found[0] == null)) {
+                found[fuzzy.city() != null ? 1 : 0] = fuzzy;
+            }
+        }
+
+        if (found[1] != null) {
+            return new Location(found[1].country(), found[1].city());
+        }
+        return new Location(found[0] != null ? found[0].country() : null, null);
+    }
+
+    /**
+     * Страна города по каталогу (null — город неизвестен)
+     */
+    public String countryOf(String city) {
+        return cityCountries.get(city);
+    }
+
+    /**
+     * 🩹 Ближайшая локация для слов с опечаткой (город важнее страны, при равенстве — первое слово).
+     * Слово, одинаково близкое к двум разным локациям, пропускается.
+     */
+    private Place findFuzzy(String text) {
+        BkTree<Place> index = fuzzyIndex;
+        Place best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        int i = 0;
+        while (i < text.length()) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            String word = text.substring(start, i);
+            if (word.length() < MIN_FUZZY_LENGTH) {
+                continue;
+            }
+
+            int maxDistance = word.length() >= TWO_EDITS_LENGTH ? 2 : 1;
+            BkTree.Match<Place> match = closest(index.search(word, maxDistance, fuzzyMaxVisits));
+            if (match == null) {
+                continue;
+            }
+            Place place = match.payload();
+            int distance = match.distance();
+            boolean better = best == null
+                    || (place.city() != null && best.city() == null)
+                    || ((place.city() != null) == (best.city() != null) && distance < bestDistance);
+            if (better) {
+                log.debug("[GAZETTEER] Fuzzy '{}' → {} (distance {})",
+                        word, place.city() != null ? place.city() : place.country(), distance);
+                best = place;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Единственная локация на минимальном расстоянии (null — ничего или неоднозначно)
+     */
+    private static BkTree.Match<Place> closest(List<BkTree.Match<Place>> matches) {
+        if (matches.isEmpty() || matches.get(0).distance() == 0) {
+            return null; // точные совпадения уже учтены автоматом
+        }
+        BkTree.Match<Place> nearest = matches.get(0);
+        for (BkTree.Match<Place> match : matches) {
+            if (match.distance() == nearest.distance() && !match.payload().equals(nearest.payload())) {
+                return null;
+            }
+        }
+        return nearest;
+    }
+
+    private void rebuild(HotelCatalog.Snapshot snapshot) {
+        AhoCorasick.Builder<Form> builder = AhoCorasick.builder();
+        BkTree<Place> fuzzy = new BkTree<>();
+        Set<String> countries = new LinkedHashSet<>(snapshot.cityCountries().values());
+        int forms = 0;
+
+        for (String country : countries) {
+            forms += addForms(builder, fuzzy, country, new Place(country, null));
+        }
+        for (Map.Entry<String, String> city : snapshot.cityCountries().entrySet()) {
+            forms += addForms(builder, fuzzy, city.getKey(), new Place(city.getValue(), city.getKey()));
+        }
+
+        automaton = builder.build();
+        fuzzyIndex = fuzzy;
+        cityCountries = snapshot.cityCountries();
+        log.info("[GAZETTEER] Built from catalog {}: {} countries, {} cities, {} forms",
+                snapshot.version(), countries.size(), snapshot.cityCountries().size(), forms);
+    }
+
+    private static int addForms(AhoCorasick.Builder<Form> builder, BkTree<Place> fuzzy, String name, Place place) {
+        Set<String> forms = new LinkedHashSet<>(inflect(name));
+        int stems = 0;
+        for (String alias : ALIASES.getOrDefault(name, List.of())) {
+            if (alias.endsWith(STEM_SUFFIX)) {
+                // Основа не склоняется и в BK-дерево не попадает: опечатки в ней не исправляем
+                builder.add(alias.substring(0, alias.length() - STEM_SUFFIX.length()), new Form(place, true));
+                stems++;
+            } else {
+                forms.addAll(inflect(alias));
+            }
+        }
+        for (String form : forms) {
+            builder.add(form, new Form(place, false));
+            // В BK-дерево — только однословные формы не короче порога: запрос сравнивается по словам
+            if (form.length() >= MIN_FUZZY_LENGTH && form.chars().allMatch(c -> isWordChar((char) c))) {
+                fuzzy.add(form, place);
+            }
+        }
+        return forms.size() + stems;
+    }
+
+    /**
+     * Падежные формы по окончанию (для топонимов этого хватает; исключения — в ALIASES)
+     */
+    static List<String> inflect(String name) {
+        String lower = name.toLowerCase();
+        List<String> forms = new ArrayList<>();
+        forms.add(lower);
+
+        if (name.length() > 1 && name.equals(name.toUpperCase())) {
+            return forms; // аббревиатура (ОАЭ) не склоняется
+        }
+
+        char last = lower.charAt(lower.length() - 1);
+        String stem = lower.substring(0, lower.length() - 1);
+        switch (last) {
+            // Турция → Турции, Турцию; Анталья → Анталье
+            case 'я' -> addEndings(forms, stem, "и", "ю", "ей", "е");
+            // Анапа → Анапы, Анапе, Анапу
+            case 'а' -> addEndings(forms, stem, "ы", "и", "у", "е", "ой");
+            // Дубай → Дубае, Дубая
+            case 'й' -> addEndings(forms, stem, "я", "е", "ю", "ем");
+            // Сочи, Сиде, Самуи — несклоняемые
+            case 'и', 'е', 'о', 'у', 'ы', 'э', 'ю' -> { }
+            // Кемер → Кемере, Кемера; латиница не склоняется
+            default -> {
+                if (Character.UnicodeBlock.of(last) == Character.UnicodeBlock.CYRILLIC) {
+                    addEndings(forms, lower, "а", "е", "у", "ом");
+                }
+            }
+        }
+        return forms;
+    }
+
+    private static void addEndings(List<String> forms, String stem, String... endings) {
+        for (String ending : endings) {
+            forms.add(stem + ending);
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c) || c == '-';
+    }
+
+    private static boolean isWordBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+}
@@ -11,6 +11,7 @@ import io.qdrant.client.grpc.Points.PointStruct;
 import jakarta.annotation.PostConstruct;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
+import ru.hotelgenxi.util.HotelFeatureExtractor;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -180,6 +181,10 @@ public class QdrantInitService {
             }
         });
 
+        // Числовые признаки из описания (до пляжа, рейтинг)
+        HotelFeatureExtractor.extract(Objects.toString(hotel.get("description"), null))
+                .forEach((key, val) -> payload.put(key, convertToQdrantValue(val)));
+
         // Создаём точку
         return PointStruct.newBuilder()
                 .setId(id(numericId))
@@ -1,22 +1,41 @@
 package ru.hotelgenxi.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.qdrant.client.QdrantClient;
 import io.qdrant.client.grpc.Common;
 import io.qdrant.client.grpc.JsonWithInt;
 import io.qdrant.client.grpc.Points;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.hotelgenxi.dto.HotelFilters;
 import ru.hotelgenxi.dto.HotelSearchResult;
-
+import ru.hotelgenxi.dto.ReviewDTO;
+import ru.hotelgenxi.dto.SortBy;
+import ru.hotelgenxi.util.HotelFeatureExtractor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static io.qdrant.client.PointIdFactory.id;
+
 @Service
 public class QdrantService {
 
+    private static final Logger log = LoggerFactory.getLogger(QdrantService.class);
+
     private final QdrantClient qdrantClient;
     private final LocalEmbeddingService embeddingService;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     public QdrantService(QdrantClient qdrantClient,
                          LocalEmbeddingService embeddingService) {
@@ -32,17 +51,54 @@ public class QdrantService {
             HotelFilters filters,
             int topK
     ) throws Exception {
+        return searchHotels(query, null, filters, topK);
+    }
+
+    /**
+     * 🔧 Семантический поиск с уже посчитанным эмбеддингом запроса
+     * (его отдаёт EmbeddingIntentClassifier — повторный инференс не нужен)
+     *
+     * @param queryEmbedding — эмбеддинг query или null/пустой, тогда считаем здесь
+     */
+    public List<HotelSearchResult> searchHotels(
+            String query,
+            List<Double> queryEmbedding,
+            HotelFilters filters,
+            int topK
+    ) throws Exception {
+        List<HotelSearchResult> hotelResults = searchRanked(query, queryEmbedding, filters, topK * 5)  // Берём с запасом
+                .stream()
+                .limit(topK)
+                .collect(Collectors.toList());
+
+        System.out.println("✓ Итоговый результат: " + hotelResults.size() + " отелей");
+
+        return hotelResults;
+    }
+
+    /**
+     * 🔧 Весь ранжированный список кандидатов (до limit), без обрезки до topK
+     * (SearchCursorCache листает его на «покажи ещё»)
+     */
+    public List<HotelSearchResult> searchRanked(
+            String query,
+            List<Double> queryEmbedding,
+            HotelFilters filters,
+            int limit
+    ) throws Exception {
 
         if (query == null || query.trim().isEmpty()) {
             throw new IllegalArgumentException("Query не может быть пустым");
         }
 
-        List<Double> queryEmbedding = embeddingService.getEmbedding(query);
+        if (queryEmbedding == null || queryEmbedding.isEmpty()) {
+            queryEmbedding = embeddingService.getEmbedding(query);
+        }
         List<Float> floatVector = queryEmbedding.stream()
                 .map(Double::floatValue)
                 .collect(Collectors.toList());
 
-        System.out.println("🔍 Ищем: \"" + query + "\" (топ " + topK + ")");
+        System.out.println("🔍 Ищем: \"" + query + "\" (кандидатов " + limit + ")");
         System.out.println("📊 Фильтры: " + filters);
 
         // 🔧 FIX: ИСПОЛЬЗУЕМ ПОЛНЫЙ ФИЛЬТР, А НЕ buildNumericOnlyFilter()
@@ -53,7 +109,7 @@ public class QdrantService {
                         .setCollectionName("hotels")
                         .addAllVector(floatVector)
                         .setFilter(qdrantFilter)
-                        .setLimit(topK * 5)  // Берём с запасом
+                        .setLimit(limit)
                         .setWithPayload(Points.WithPayloadSelector.newBuilder()
                                 .setEnable(true)
                                 .build())
@@ -63,14 +119,131 @@ public class QdrantService {
         System.out.println("✓ Найдено в Qdrant (с фильтрами): " + results.size());
 
         // Преобразуем результаты в удобный формат
-        List<HotelSearchResult> hotelResults = results.stream()
+        return results.stream()
                 .map(this::parseHotelResult)
-                .limit(topK)
                 .collect(Collectors.toList());
+    }
 
-        System.out.println("✓ Итоговый результат: " + hotelResults.size() + " отелей");
+    /**
+     * Страница сортированного просмотра; nextCursor == null — дальше ничего нет
+     */
+    public record SortedPage(List<HotelSearchResult> hotels, String nextCursor) {
+    }
 
-        return hotelResults;
+    /**
+     * Курсор order_by: значение поля у последнего отеля страницы + id точек с этим значением
+     */
+    record SortCursor(double value, Set<Long> tied) {
+
+        /**
+         * Разбирает nextCursor (null — первая страница)
+         */
+        static SortCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split("\\|", -1);
+                Set<Long> tied = new LinkedHashSet<>();
+                for (String pointId : parts[1].split(",")) {
+                    if (!pointId.isEmpty()) {
+                        tied.add(Long.parseLong(pointId));
+                    }
+                }
+                return new SortCursor(Double.parseDouble(parts[0]), tied);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+            }
+        }
+
+        /**
+         * Курсор после полной страницы (null — у последнего отеля нет значения поля).
+         * Если значение не сдвинулось с начала страницы, точки прошлых страниц с ним тоже исключаются —
+         * иначе длинная серия равных значений листалась бы по кругу.
+         *
+         * @param values — значения поля у точек страницы, в порядке выдачи
+         */
+        static SortCursor after(SortCursor start, List<Long> pointIds, List<Double> values) {
+            Double last = values.isEmpty() ? null : values.get(values.size() - 1);
+            if (last == null) {
+                return null;
+            }
+            Set<Long> tied = new LinkedHashSet<>();
+            if (start != null && start.value() == last) {
+                tied.addAll(start.tied());
+            }
+            for (int i = 0; i < values.size(); i++) {
+                if (last.equals(values.get(i))) {
+                    tied.add(pointIds.get(i));
+                }
+            }
+            return new SortCursor(last, tied);
+        }
+
+        String encode() {
+            String text = value + "|" + tied.stream().map(String::valueOf).collect(Collectors.joining(","));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 🔃 Сортированный просмотр: scroll с order_by по индексированному полю, без эмбеддинга
+     * <p>
+     * order_by не отдаёт offset следующей страницы, поэтому курсор — значение поля у последнего
+     * отеля + id точек с этим значением: следующая страница стартует с него (start_from)
+     * и исключает уже показанные точки (must_not has_id).
+     *
+     * @param cursor — nextCursor прошлой страницы или null для первой
+     */
+    public SortedPage browseSorted(HotelFilters filters, SortBy sortBy, int limit, String cursor) throws Exception {
+        Common.Filter.Builder filter = buildQdrantFilter(filters).toBuilder();
+        Points.OrderBy.Builder orderBy = Points.OrderBy.newBuilder()
+                .setKey(sortBy.field())
+                .setDirection(sortBy.ascending() ? Points.Direction.Asc : Points.Direction.Desc);
+
+        SortCursor start = SortCursor.decode(cursor);
+        if (start != null) {
+            orderBy.setStartFrom(sortBy.integer()
+                    ? Points.StartFrom.newBuilder().setInteger((long) start.value()).build()
+                    : Points.StartFrom.newBuilder().setFloat(start.value()).build());
+            if (!start.tied().isEmpty()) {
+                Common.HasIdCondition.Builder seen = Common.HasIdCondition.newBuilder();
+                start.tied().forEach(pointId -> seen.addHasId(id(pointId)));
+                filter.addMustNot(Common.Condition.newBuilder().setHasId(seen.build()).build());
+            }
+        }
+
+        List<Points.RetrievedPoint> points = qdrantClient.scrollAsync(
+                Points.ScrollPoints.newBuilder()
+                        .setCollectionName("hotels")
+                        .setFilter(filter.build())
+                        .setLimit(limit)
+                        .setOrderBy(orderBy.build())
+                        .setWithPayload(Points.WithPayloadSelector.newBuilder()
+                                .setEnable(true)
+                                .build())
+                        .build()
+        ).get().getResultList();
+
+        List<HotelSearchResult> hotels = new ArrayList<>(points.size());
+        for (Points.RetrievedPoint point : points) {
+            hotels.add(parseHotelResult(point.getPayloadMap(), null));
+        }
+        log.debug("[QDRANT] Sorted browse {}: {} hotels", sortBy, hotels.size());
+
+        if (points.size() < limit) {
+            return new SortedPage(hotels, null);
+        }
+
+        List<Long> pointIds = new ArrayList<>(points.size());
+        List<Double> values = new ArrayList<>(points.size());
+        for (Points.RetrievedPoint point : points) {
+            pointIds.add(point.getId().getNum());
+            values.add(getDouble(point.getPayloadMap(), sortBy.field()));
+        }
+        SortCursor next = SortCursor.after(start, pointIds, values);
+        return new SortedPage(hotels, next != null ? next.encode() : null);
     }
 
     /**
@@ -121,6 +294,32 @@ public class QdrantService {
             System.out.println("  ✓ Фильтр звёзд: " + filters.getMinStars() + " - " + filters.getMaxStars());
         }
 
+        // ✅ ФИЛЬТР ПО РАССТОЯНИЮ ДО ПЛЯЖА («первая линия», «у моря»)
+        if (filters.getMaxBeachDistanceM() != null) {
+            filterBuilder.addMust(Common.Condition.newBuilder()
+                    .setField(Common.FieldCondition.newBuilder()
+                            .setKey(HotelFeatureExtractor.BEACH_DISTANCE_M)
+                            .setRange(Common.Range.newBuilder()
+                                    .setLte(filters.getMaxBeachDistanceM())
+                                    .build())
+                            .build())
+                    .build());
+            log.debug("[QDRANT] Filter beach distance <= {} m", filters.getMaxBeachDistanceM());
+        }
+
+        // ✅ ФИЛЬТР ПО РЕЙТИНГУ ИЗ ОПИСАНИЯ
+        if (filters.getMinReviewScore() != null) {
+            filterBuilder.addMust(Common.Condition.newBuilder()
+                    .setField(Common.FieldCondition.newBuilder()
+                            .setKey(HotelFeatureExtractor.REVIEW_SCORE)
+                            .setRange(Common.Range.newBuilder()
+                                    .setGte(filters.getMinReviewScore())
+                                    .build())
+                            .build())
+                    .build());
+            log.debug("[QDRANT] Filter review score >= {}", filters.getMinReviewScore());
+        }
+
         // ✅ ФИЛЬТР ПО СТРАНЕ
         if (filters.getCountry() != null && !filters.getCountry().isEmpty()) {
             filterBuilder.addMust(Common.Condition.newBuilder()
@@ -184,6 +383,39 @@ public class QdrantService {
             System.out.println("  ✓ Фильтр: аквапарк");
         }
 
+        // ✅ ИСКЛЮЧЕНИЯ ПО ОТЗЫВАМ (must_not): полнотекстовый индекс reviews_text...
+        if (filters.getExcludedReviewTerms() != null) {
+            for (String term : filters.getExcludedReviewTerms()) {
+                if (term == null || term.isBlank()) {
+                    continue;
+                }
+                filterBuilder.addMustNot(Common.Condition.newBuilder()
+                        .setField(Common.FieldCondition.newBuilder()
+                                .setKey("reviews_text")
+                                .setMatch(Common.Match.newBuilder()
+                                        .setText(term)
+                                        .build())
+                                .build())
+                        .build());
+                log.debug("[QDRANT] Exclude reviews mentioning '{}'", term);
+            }
+        }
+
+        // ...и id отелей из инвертированного индекса (работает и для точек без reviews_text)
+        if (filters.getExcludedHotelIds() != null && !filters.getExcludedHotelIds().isEmpty()) {
+            filterBuilder.addMustNot(Common.Condition.newBuilder()
+                    .setField(Common.FieldCondition.newBuilder()
+                            .setKey("id")
+                            .setMatch(Common.Match.newBuilder()
+                                    .setKeywords(Common.RepeatedStrings.newBuilder()
+                                            .addAllStrings(filters.getExcludedHotelIds())
+                                            .build())
+                                    .build())
+                            .build())
+                    .build());
+            log.debug("[QDRANT] Exclude {} hotels by reviews", filters.getExcludedHotelIds().size());
+        }
+
         return filterBuilder.build();
     }
 
@@ -191,7 +423,10 @@ public class QdrantService {
      * 🔧 FIX: Правильный парсинг результатов из Qdrant
      */
     private HotelSearchResult parseHotelResult(Points.ScoredPoint point) {
-        var payload = point.getPayloadMap();
+        return parseHotelResult(point.getPayloadMap(), (double) point.getScore());
+    }
+
+    private HotelSearchResult parseHotelResult(Map<String, JsonWithInt.Value> payload, Double similarity) {
 
         return HotelSearchResult.builder()
                 .id(getString(payload, "id"))
@@ -202,13 +437,31 @@ public class QdrantService {
                 .pricePerNight(getDouble(payload, "price_per_night"))
                 .rating(getDouble(payload, "rating"))
                 .description(getString(payload, "description"))
-                .similarity((double) point.getScore())
+                .similarity(similarity)
                 .kidsClub(getBoolean(payload, "kids_club"))
                 .allInclusive(getBoolean(payload, "all_inclusive"))
                 .aquapark(getBoolean(payload, "aquapark"))
+                .reviews(getReviews(payload))
+                .beachDistanceM(getInt(payload, HotelFeatureExtractor.BEACH_DISTANCE_M))
+                .reviewScore(getDouble(payload, HotelFeatureExtractor.REVIEW_SCORE))
                 .build();
     }
 
+    /**
+     * Отзывы: EmbedHotelsJob сохраняет списки как JSON-строку
+     */
+    private List<ReviewDTO> getReviews(Map<String, JsonWithInt.Value> payload) {
+        String json = getString(payload, "reviews");
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<ReviewDTO>>() {});
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * 🔧 FIX: Правильный парсинг boolean из Qdrant
      * Так как мы сохраняли как строку "true"/"false", парсим как строку
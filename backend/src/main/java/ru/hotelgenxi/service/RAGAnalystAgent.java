@@ -3,14 +3,19 @@ package ru.hotelgenxi.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import ru.hotelgenxi.dto.ChatMessage;
 import ru.hotelgenxi.dto.HotelFilters;
 import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.dto.SortBy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
@@ -18,14 +23,83 @@ public class RAGAnalystAgent {
 
     private static final Logger log = LoggerFactory.getLogger(RAGAnalystAgent.class);
 
+    // Компилируются один раз (раньше — на каждый запрос)
+    private static final Pattern PRICE_MAX_PATTERN =
+            Pattern.compile("(?:не дороже|до|максимум|дешевле|не более)\\s+(\\d+)");
+    private static final Pattern PRICE_MIN_PATTERN =
+            Pattern.compile("(?:от|минимум|свыше)\\s+(\\d+)");
+    // «первая линия», «на первой береговой линии»
+    private static final Pattern FIRST_LINE_PATTERN = Pattern.compile("перв\\S*\\s+(?:береговой\\s+)?лини\\S*");
+    // «у моря», «рядом с пляжем»
+    private static final Pattern NEAR_BEACH_PATTERN = Pattern.compile(
+            "(?:у|возле|около|рядом с|близко к)\\s+(?:моря|морем|морю|пляжа|пляжем|пляжу)");
+    // «200 м от пляжа», «до моря не больше 300 метров»
+    private static final Pattern BEACH_DISTANCE_PATTERN = Pattern.compile(
+            "(\\d+)\\s*(?:м|метр\\S*)\\s+(?:от|до)\\s+(?:пляжа|моря)"
+                    + "|до\\s+(?:пляжа|моря)\\s+(?:не больше|не более|не дальше|до|максимум)?\\s*(\\d+)\\s*(?:м|метр\\S*)");
+    // «рейтинг от 4.5», «оценка не ниже 4»
+    private static final Pattern REVIEW_SCORE_PATTERN = Pattern.compile(
+            "(?:рейтинг\\S*|оценк\\S*)\\s+(?:от|не ниже|выше|больше|минимум)\\s+(\\d+(?:[.,]\\d+)?)");
+    // «самые дешёвые», «по рейтингу», «больше всего звёзд» — сортированный просмотр
+    private static final Map<SortBy, Pattern> SORT_PATTERNS = Map.of(
+            SortBy.PRICE_ASC, Pattern.compile(
+                    "(?:сам\\S*|наиболее)\\s+(?:дешёв|дешев|недорог|бюджетн)\\S*|подешевле|сначала\\s+(?:дешёв|дешев)\\S*"
+                            + "|по\\s+возрастанию\\s+цены"),
+            SortBy.RATING_DESC, Pattern.compile(
+                    "(?:с\\s+)?(?:лучш|высок|самым\\s+высок)\\S*\\s+рейтинг\\S*|по\\s+рейтингу|лучшие\\s+по\\s+отзывам"),
+            SortBy.STARS_DESC, Pattern.compile(
+                    "(?:больше\\s+всего|максимум)\\s+зв[её]зд|по\\s+зв[её]здам|сам\\S*\\s+зв[её]здн\\S*")
+    );
+    // Слова, после которых в «чистом» запросе на сортировку (и в уточнении «покажи ещё») ничего не остаётся для семантики
+    private static final Set<String> SORT_NOISE_WORDS = Set.of(
+            "отель", "отели", "отелей", "отеля", "гостиница", "гостиницы", "гостиниц",
+            "покажи", "показать", "найди", "подбери", "хочу", "нужны", "нужен", "какие", "есть", "мне", "все",
+            "в", "во", "на", "по", "и", "с", "со", "до", "от", "за", "не", "дороже", "дешевле", "больше", "более",
+            "руб", "рублей", "р", "₽", "ночь", "сутки", "звезды", "звёзды", "звезд", "звёзд", "звезда", "звёзда", "зв");
+    // «покажи ещё», «а ещё в Кемере?», «давай следующие», «другие варианты» — продолжение прошлой выдачи.
+    // Хвост после ключевой фразы (group 1) допустим только из фильтров — см. isFilterOnly
+    private static final Pattern SHOW_MORE_PATTERN = Pattern.compile(
+            "^\\s*(?:(?:а|и|ну|покажи|покажите|показать|давай|давайте|можно)\\s+)*"
+                    + "(?:ещё|еще|дальше|следующие|другие\\s+(?:отели|варианты))\\b"
+                    + "(?:\\s+(?:отели|отелей|варианты|вариантов|пожалуйста))*(.*)$",
+            Pattern.UNICODE_CHARACTER_CLASS | Pattern.DOTALL);
+
+    private static final int PAGE_SIZE = 5;
+
     private final QdrantService qdrantService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final IntentRouter intentRouter;
+    private final LocationGazetteer locationGazetteer;
+    private final ReviewIndex reviewIndex;
+    private final SearchCursorCache cursorCache;
+    private final SearchResultsPublisher resultsPublisher;
+    private final int cursorDepth;
+    private final int firstLineMaxMeters;
+    private final int nearBeachMaxMeters;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public RAGAnalystAgent(QdrantService qdrantService,
-                           SimpMessagingTemplate messagingTemplate) {
+                           SimpMessagingTemplate messagingTemplate,
+                           IntentRouter intentRouter,
+                           LocationGazetteer locationGazetteer,
+                           ReviewIndex reviewIndex,
+                           SearchCursorCache cursorCache,
+                           SearchResultsPublisher resultsPublisher,
+                           // сколько кандидатов запоминать для «покажи ещё»
+                           @Value("${chat.search.cursor.depth:50}") int cursorDepth,
+                           // «первая линия» и «у моря» — в метрах до пляжа
+                           @Value("${chat.search.first-line-max-m:100}") int firstLineMaxMeters,
+                           @Value("${chat.search.near-beach-max-m:300}") int nearBeachMaxMeters) {
         this.qdrantService = qdrantService;
         this.messagingTemplate = messagingTemplate;
+        this.intentRouter = intentRouter;
+        this.locationGazetteer = locationGazetteer;
+        this.reviewIndex = reviewIndex;
+        this.cursorCache = cursorCache;
+        this.resultsPublisher = resultsPublisher;
+        this.cursorDepth = cursorDepth;
+        this.firstLineMaxMeters = firstLineMaxMeters;
+        this.nearBeachMaxMeters = nearBeachMaxMeters;
     }
 
     /**
@@ -33,76 +107,172 @@ public class RAGAnalystAgent {
      * Supervisor Agent вызывает этот метод, если запрос содержит слова про отели
      */
     public boolean shouldProcessWithRAG(String query) {
+        return intentRouter.classify(query).matches(IntentRouter.Intent.RAG);
+    }
+
+    /**
+     * 🔧 Поиск отелей (эмбеддинг запроса — от классификатора намерений или null)
+     *
+     * @param sessionId — чья выдача: для неё запоминается курсор «покажи ещё» (null — без курсора)
+     */
+    public void handleHotelSearch(String query, List<Double> queryEmbedding, String sessionId) {
+        try {
+            showSearchResults(query, findHotels(query, queryEmbedding), sessionId);
+        } catch (Exception e) {
+            log.error("[RAG] Ошибка поиска", e);
+            sendMessage("❌ Произошла техническая ошибка. Попробуйте ещё раз.");
+        }
+    }
+
+    /**
+     * 🔃 Запрос только про порядок («самые дешёвые отели в Сочи») — сортированный просмотр
+     * Проверяется до классификатора намерений: ни эмбеддинга, ни векторного поиска
+     *
+     * @return false — в запросе есть что искать по смыслу, маршрутизирует вызывающий
+     */
+    public boolean handlePureSort(String query, String sessionId) {
         String lower = query.toLowerCase();
+        SortBy sortBy = detectSort(lower);
+        if (sortBy == null || !isPureSort(lower, sortBy)) {
+            return false;
+        }
+        try {
+            showSearchResults(query, browseSorted(parseFiltersFromQuery(query), sortBy), sessionId);
+        } catch (Exception e) {
+            log.error("[RAG] Ошибка сортированного просмотра", e);
+            sendMessage("❌ Произошла техническая ошибка. Попробуйте ещё раз.");
+        }
+        return true;
+    }
+
+    /**
+     * 🔎 Только поиск, без отправки пользователю и без курсора «покажи ещё»
+     * (SpeculativeExecutor сначала оценивает результат, потом решает, показывать ли его)
+     *
+     * @return кандидаты по порядку выдачи, с запасом для «покажи ещё» (показывать — через showSearchResults)
+     */
+    public List<HotelSearchResult> findHotels(String query, List<Double> queryEmbedding) throws Exception {
+        log.info("[RAG] Обработка запроса: {}", query);
 
-        // Ключевые слова для активации RAG
-        String[] ragTriggers = {
-                "отель", "отели", "гостинец", "гостиница",
-                "буклет", "забронировать", "бронь", "комната", "номер",
-                "пляж", "море", "аквапарк", "спа", "курорт",
-                "поиск", "ищу", "найди", "подберите", "рекомендуй",
-                "турция", "египет", "таиланд", "оаэ", "мальдив",
-                "сочи", "анапа", "крым", "ялта",
-                "сколько стоит", "цена", "стоимость",
-                "5 звёзд", "4 звёзд", "3 звёзд",
-                "all inclusive", "детский клуб", "аквапарк"
-        };
-
-        for (String trigger : ragTriggers) {
-            if (lower.contains(trigger)) {
-                log.info("[RAG] RAG триггер найден: '{}'", trigger);
-                return true;
+        // 1. Парсим ТОЛЬКО явные фильтры
+        HotelFilters filters = parseFiltersFromQuery(query);
+        log.info("[RAG] Фильтры: {}", filters);
+
+        List<HotelSearchResult> ranked;
+        String lower = query.toLowerCase();
+        SortBy sortBy = detectSort(lower);
+        if (sortBy != null && isPureSort(lower, sortBy)) {
+            // 2a. Запрос только про порядок — order_by scroll, без эмбеддинга
+            ranked = browseSorted(filters, sortBy);
+        } else {
+            // 2. Делаем semantic search (весь запрос как вектор), кандидатов — с запасом для «покажи ещё»
+            ranked = qdrantService.searchRanked(query, queryEmbedding, filters, searchDepth());
+            if (sortBy != null) {
+                ranked = ranked.stream().sorted(sortBy.comparator()).toList();
             }
         }
+        log.info("[RAG] Найдено кандидатов: {}", ranked.size());
+        return ranked;
+    }
+
+    private List<HotelSearchResult> browseSorted(HotelFilters filters, SortBy sortBy) throws Exception {
+        log.info("[RAG] Сортированный просмотр: {}, фильтры: {}", sortBy, filters);
+        return qdrantService.browseSorted(filters, sortBy, searchDepth(), null).hotels();
+    }
 
-        return false;
+    private int searchDepth() {
+        return Math.max(cursorDepth, PAGE_SIZE * 5);
     }
 
     /**
-     * 🔧 Основной метод поиска отелей
+     * 📤 Показывает первую страницу найденного и запоминает остальных кандидатов для «покажи ещё»
      */
-    public void handleHotelSearch(String query) {
-        try {
-            log.info("[RAG] Обработка запроса: {}", query);
-
-            // 1. Парсим ТОЛЬКО явные фильтры
-            HotelFilters filters = parseFiltersFromQuery(query);
-            log.info("[RAG] Фильтры: {}", filters);
-
-            // 2. Делаем semantic search (весь запрос как вектор)
-            List<HotelSearchResult> results = qdrantService.searchHotels(query, filters, 5);
-            log.info("[RAG] Найдено {} отелей", results.size());
-
-            // 3. Отправляем результаты
-            if (results.isEmpty()) {
-                String notFoundMessage = "😢 К сожалению, я не нашёл отелей, соответствующих вашим критериям.\n\n" +
-                        "Попробуйте изменить:\n" +
-                        "• Диапазон цен\n" +
-                        "• Количество звёзд\n" +
-                        "• Страну или город\n\n" +
-                        "Я всегда готов помочь! 🏨";
-                sendMessage(notFoundMessage);
-            } else {
-                String header = "🎉 Я нашёл для вас " + results.size() + " отелей:\n\n";
-                sendMessage(header);
-
-                for (int i = 0; i < results.size(); i++) {
-                    HotelSearchResult hotel = results.get(i);
-                    sendHotelCard(hotel);
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {}
-                }
-
-                String footer = "\n\n💡 Хотите узнать больше об одном из этих отелей? " +
-                        "Спросите меня подробнее! 🌟";
-                sendMessage(footer);
+    public void showSearchResults(String query, List<HotelSearchResult> ranked, String sessionId) {
+        List<HotelSearchResult> page = ranked.stream().limit(PAGE_SIZE).toList();
+        cursorCache.store(sessionId, query, ranked, page.size());
+        sendSearchResults(page);
+    }
+
+    /**
+     * ⏭ «Покажи ещё»: следующая страница из курсора прошлой выдачи (без эмбеддинга и Qdrant)
+     *
+     * @return false — это не продолжение или курсора нет; запрос маршрутизируется как обычно
+     */
+    public boolean handleShowMore(String query, String sessionId) {
+        Matcher matcher = SHOW_MORE_PATTERN.matcher(query.toLowerCase());
+        if (!matcher.matches() || !cursorCache.hasCursor(sessionId)) {
+            return false;
+        }
+
+        // Уточнение в продолжении («а ещё в Кемере?») — фильтруем оставшихся кандидатов локально.
+        // Хвост не из фильтров («ещё вопрос: нужна ли виза?») — это новый запрос, а не листание
+        String rest = matcher.group(1).trim();
+        if (!isFilterOnly(rest)) {
+            return false;
+        }
+        HotelFilters refine = rest.isEmpty() ? null : parseFiltersFromQuery(rest);
+        SearchCursorCache.Page page = cursorCache.next(sessionId, PAGE_SIZE, refine);
+        if (page == null) {
+            return false;
+        }
+
+        log.info("[RAG] Продолжение выдачи: {} отелей, ещё есть: {}", page.hotels().size(), page.hasMore());
+        if (page.hotels().isEmpty()) {
+            sendMessage("🤷 Больше подходящих отелей в этой подборке нет.\n\n" +
+                    "Попробуйте изменить критерии поиска — я поищу заново! 🏨");
+            return true;
+        }
+        sendHotelCards("👀 Ещё " + page.hotels().size() + " отелей:\n\n", page.hotels(),
+                page.hasMore() ? "\n\n💡 Напишите «покажи ещё», чтобы увидеть следующие варианты."
+                        : "\n\n✅ Это все отели из подборки.");
+        return true;
+    }
+
+    /**
+     * 📤 Отправляет найденные отели (или сообщение «не нашёл»)
+     */
+    public void sendSearchResults(List<HotelSearchResult> results) {
+        if (results.isEmpty()) {
+            String notFoundMessage = "😢 К сожалению, я не нашёл отелей, соответствующих вашим критериям.\n\n" +
+                    "Попробуйте изменить:\n" +
+                    "• Диапазон цен\n" +
+                    "• Количество звёзд\n" +
+                    "• Страну или город\n\n" +
+                    "Я всегда готов помочь! 🏨";
+            sendMessage(notFoundMessage);
+            return;
+        }
+
+        String header = "🎉 Я нашёл для вас " + results.size() + " отелей:\n\n";
+        String footer = "\n\n💡 Хотите узнать больше об одном из этих отелей? " +
+                "Спросите меня подробнее! 🌟";
+        sendHotelCards(header, results, footer);
+    }
+
+    /**
+     * 📦 Выдача одним кадром search_results
+     * ✅ chat.search.legacy-frames=true — следом дубль в прежнем формате для старых клиентов, сразу, без пауз
+     * ✅ Прежний формат с паузами — только если кадр собрать не удалось
+     */
+    private void sendHotelCards(String header, List<HotelSearchResult> results, String footer) {
+        boolean batched = resultsPublisher.publish(header, results, footer);
+        if (batched) {
+            if (resultsPublisher.legacyFramesEnabled()) {
+                sendMessage(header, true);
+                results.forEach(hotel -> sendHotelCard(hotel, true));
+                sendMessage(footer, true);
             }
+            return;
+        }
 
-        } catch (Exception e) {
-            log.error("[RAG] Ошибка поиска", e);
-            sendMessage("❌ Произошла техническая ошибка. Попробуйте ещё раз.");
+        sendMessage(header);
+        for (HotelSearchResult hotel : results) {
+            sendHotelCard(hotel, false);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {}
         }
+        sendMessage(footer);
     }
 
     /**
@@ -114,49 +284,48 @@ public class RAGAnalystAgent {
 
         log.debug("[RAG] Парсим явные фильтры из: {}", lower);
 
+        // ============ ДО ПЛЯЖА И РЕЙТИНГ (числовые признаки из описания) ============
+        // Найденные фрагменты затираем, чтобы «от 4.5» или «200 м» не попали в цену
+        StringBuilder priceScope = new StringBuilder(lower);
+
+        Matcher beachMatcher = BEACH_DISTANCE_PATTERN.matcher(lower);
+        if (beachMatcher.find()) {
+            String meters = beachMatcher.group(1) != null ? beachMatcher.group(1) : beachMatcher.group(2);
+            builder.maxBeachDistanceM(Integer.parseInt(meters));
+            blank(priceScope, beachMatcher);
+        } else if (FIRST_LINE_PATTERN.matcher(lower).find()) {
+            builder.maxBeachDistanceM(firstLineMaxMeters);
+        } else if (NEAR_BEACH_PATTERN.matcher(lower).find()) {
+            builder.maxBeachDistanceM(nearBeachMaxMeters);
+        }
+
+        Matcher reviewMatcher = REVIEW_SCORE_PATTERN.matcher(lower);
+        if (reviewMatcher.find()) {
+            builder.minReviewScore(Double.parseDouble(reviewMatcher.group(1).replace(',', '.')));
+            blank(priceScope, reviewMatcher);
+        }
+
         // ============ ЦЕНА (regex, очень надежно) ============
-        Pattern priceMaxPattern = Pattern.compile("(?:не дороже|до|максимум|дешевле|не более)\\s+(\\d+)");
-        var priceMaxMatcher = priceMaxPattern.matcher(lower);
+        var priceMaxMatcher = PRICE_MAX_PATTERN.matcher(priceScope);
         if (priceMaxMatcher.find()) {
             int maxPrice = Integer.parseInt(priceMaxMatcher.group(1));
             builder.maxPrice(maxPrice);
             log.debug("[RAG] Макс цена: {}", maxPrice);
         }
 
-        Pattern priceMinPattern = Pattern.compile("(?:от|минимум|свыше)\\s+(\\d+)");
-        var priceMinMatcher = priceMinPattern.matcher(lower);
+        var priceMinMatcher = PRICE_MIN_PATTERN.matcher(priceScope);
         if (priceMinMatcher.find()) {
             int minPrice = Integer.parseInt(priceMinMatcher.group(1));
             builder.minPrice(minPrice);
             log.debug("[RAG] Мин цена: {}", minPrice);
         }
 
-        // ============ СТРАНА ============
-        if (lower.contains("египет")) builder.country("Египет");
-        else if (lower.contains("турц")) builder.country("Турция");
-        else if (lower.contains("таиланд") || lower.contains("тайланд")) builder.country("Таиланд");
-        else if (lower.contains("оаэ") || lower.contains("эмират") || lower.contains("дубай")) builder.country("ОАЭ");
-        else if (lower.contains("мальдив")) builder.country("Мальдивы");
-        else if (lower.contains("росси")) builder.country("Россия");
-
-        HotelFilters temp = builder.build();
-        if (temp.getCountry() != null) {
-            log.debug("[RAG] Страна: {}", temp.getCountry());
-        }
-
-        // ============ ГОРОД ============
-        if (lower.contains("антал")) builder.city("Анталья");
-        else if (lower.contains("кемер")) builder.city("Кемер");
-        else if (lower.contains("сочи")) builder.city("Сочи");
-        else if (lower.contains("анап")) builder.city("Анапа");
-        else if (lower.contains("ялт")) builder.city("Ялта");
-        else if (lower.contains("дубай")) builder.city("Дубай");
-        else if (lower.contains("хургад")) builder.city("Хургада");
-        else if (lower.contains("пхукет") || lower.contains("пукет")) builder.city("Пхукет");
-
-        temp = builder.build();
-        if (temp.getCity() != null) {
-            log.debug("[RAG] Город: {}", temp.getCity());
+        // ============ СТРАНА И ГОРОД (газеттир по каталогу, один проход) ============
+        LocationGazetteer.Location location = locationGazetteer.find(lower);
+        builder.country(location.country());
+        builder.city(location.city());
+        if (!location.isEmpty()) {
+            log.debug("[RAG] Локация: страна={}, город={}", location.country(), location.city());
         }
 
         // ============ ЗВЁЗДЫ ============
@@ -166,24 +335,92 @@ public class RAGAnalystAgent {
         }
 
         HotelFilters filters = builder.build();
-        log.info("[RAG] Явные фильтры: цена={}, страна={}, город={}",
+        log.info("[RAG] Явные фильтры: цена={}, страна={}, город={}, до пляжа={}, рейтинг={}",
                 filters.getMaxPrice(),
                 filters.getCountry(),
-                filters.getCity());
+                filters.getCity(),
+                filters.getMaxBeachDistanceM(),
+                filters.getMinReviewScore());
         return filters;
     }
 
+    private static SortBy detectSort(String lower) {
+        for (Map.Entry<SortBy, Pattern> entry : SORT_PATTERNS.entrySet()) {
+            if (entry.getValue().matcher(lower).find()) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Кроме сортировки в запросе только фильтры (локация, цена, звёзды) — семантике нечего искать
+     */
+    private boolean isPureSort(String lower, SortBy sortBy) {
+        return onlyFilterWords(SORT_PATTERNS.get(sortBy).matcher(lower).replaceAll(" "));
+    }
+
+    /**
+     * Текст целиком из фильтров: цена, пляж, рейтинг, звёзды, локация (пустой — тоже)
+     */
+    private boolean isFilterOnly(String lower) {
+        String rest = lower;
+        for (Pattern filter : List.of(BEACH_DISTANCE_PATTERN, FIRST_LINE_PATTERN, NEAR_BEACH_PATTERN,
+                REVIEW_SCORE_PATTERN, PRICE_MAX_PATTERN, PRICE_MIN_PATTERN)) {
+            rest = filter.matcher(rest).replaceAll(" ");
+        }
+        return onlyFilterWords(rest);
+    }
+
+    // Остались только служебные слова, числа и названия мест
+    private boolean onlyFilterWords(String rest) {
+        for (String word : rest.split("[^\\p{L}\\p{N}₽]+")) {
+            if (word.isEmpty() || SORT_NOISE_WORDS.contains(word) || word.chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            if (locationGazetteer.find(word).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void blank(StringBuilder text, Matcher matcher) {
+        for (int i = matcher.start(); i < matcher.end(); i++) {
+            text.setCharAt(i, ' ');
+        }
+    }
+
     /**
      * 🔧 Отправка текстового сообщения потоком в /topic/messages
      * ✅ Используем convertAndSend (публичный канал)
      */
     private void sendMessage(String text) {
+        sendMessage(text, false);
+    }
+
+    /**
+     * @param legacy — дубль выдачи search_results в старом формате (новый клиент его пропустит):
+     *                 уходит одним кадром, без пословной нарезки и пауз
+     */
+    private void sendMessage(String text, boolean legacy) {
         if (text == null || text.isEmpty()) {
             return;
         }
 
         log.debug("[RAG] Отправляю текст ({} chars)", text.length());
 
+        if (legacy) {
+            ChatMessage message = new ChatMessage();
+            message.setContent(text);
+            message.setSender("assistant");
+            message.setType("text");
+            message.setTimestamp(System.currentTimeMillis());
+            message.setLegacy(true);
+            messagingTemplate.convertAndSend("/topic/messages", message);
+            return;
+        }
+
         // Разбиваем на слова и отправляем с задержкой (для эффекта стриминга)
         String[] parts = text.split("(?=\\s|\\n)");
 
@@ -206,6 +443,7 @@ public class RAGAnalystAgent {
 
     /**
      * 🔧 Поиск отелей с фильтрацией по отрицательным отзывам
+     * ✅ negativeKeyword ищется как начало слова отзыва: «шум» исключит и отель с «шумно»
      */
     public List<HotelSearchResult> searchHotelsByReviews(
             String query,
@@ -215,14 +453,17 @@ public class RAGAnalystAgent {
     ) {
         log.info("[RAG] searchHotelsByReviews: query='{}', negative='{}'", query, negativeKeyword);
 
-        // 1. Поиск отелей по основному запросу
-        List<HotelSearchResult> results = searchHotels(query, filters, topK * 2);
+        if (negativeKeyword == null || negativeKeyword.isBlank()) {
+            return searchHotels(query, filters, topK);
+        }
 
-        // 2. Фильтруем по отрицательным ключевым словам в отзывах
-        return results.stream()
-                .filter(hotel -> !containsNegativeReview(hotel, negativeKeyword))
-                .limit(topK)
-                .toList();
+        // Исключение выполняет Qdrant (must_not) — в выдаче сразу topK подходящих отелей
+        HotelFilters base = filters != null ? filters : new HotelFilters();
+        HotelFilters withExclusions = base.toBuilder()
+                .excludedReviewTerms(List.of(negativeKeyword))
+                .excludedHotelIds(reviewIndex.hotelsMentioning(negativeKeyword))
+                .build();
+        return searchHotels(query, withExclusions, topK);
     }
 
     /**
@@ -245,41 +486,12 @@ public class RAGAnalystAgent {
         }
     }
 
-    /**
-     * 🔧 Проверка отрицательных отзывов
-     */
-    private boolean containsNegativeReview(HotelSearchResult hotel, String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            return false;
-        }
-
-        if (hotel.getReviews() == null || hotel.getReviews().isEmpty()) {
-            return false;
-        }
-
-        String lower = keyword.toLowerCase();
-        return hotel.getReviews().stream()
-                .anyMatch(review -> review.getText().toLowerCase().contains(lower));
-    }
-
     /**
      * 🔧 Отправка карточки отеля в /topic/messages
-     * ✅ Используем convertAndSend (публичный канал)
+     * ✅ Кадр собирается из кешированного JSON-фрагмента карточки (HotelCardRenderer)
      */
-    private void sendHotelCard(HotelSearchResult hotel) {
-        try {
-            log.info("[RAG] Отправляю карточку: {}", hotel.getName());
-
-            ChatMessage hotelMessage = new ChatMessage();
-            hotelMessage.setType("hotel_card");
-            hotelMessage.setHotelData(hotel);
-            hotelMessage.setSender("assistant");
-            hotelMessage.setTimestamp(System.currentTimeMillis());
-
-            messagingTemplate.convertAndSend("/topic/messages", hotelMessage);  // ✅ В публичный канал
-
-        } catch (Exception e) {
-            log.error("[RAG] Ошибка отправки карточки", e);
-        }
+    private void sendHotelCard(HotelSearchResult hotel, boolean legacy) {
+        log.info("[RAG] Отправляю карточку: {}", hotel.getName());
+        resultsPublisher.sendHotelCard(hotel, null, legacy);  // ✅ В публичный канал
     }
 }
\ No newline at end of file
@@ -13,13 +13,19 @@ public class ResearchAgent {
     private static final Logger log = LoggerFactory.getLogger(ResearchAgent.class);
     private final GigaChatService gigaChatService;
     private final TavilySearchService tavilySearchService;
+    private final SemanticAnswerCache answerCache;
+    private final ConversationMemory conversationMemory;
 
     public ResearchAgent(
             GigaChatService gigaChatService,
-            TavilySearchService tavilySearchService
+            TavilySearchService tavilySearchService,
+            SemanticAnswerCache answerCache,
+            ConversationMemory conversationMemory
     ) {
         this.gigaChatService = gigaChatService;
         this.tavilySearchService = tavilySearchService;
+        this.answerCache = answerCache;
+        this.conversationMemory = conversationMemory;
     }
 
     /**
@@ -65,8 +71,34 @@ public class ResearchAgent {
      * 🎯 Главный метод - обработка запроса через GigaChat с tools
      */
     public void processResearchQuery(String userQuery, String sessionId) {
+        processResearchQuery(userQuery, sessionId, null);
+    }
+
+    /**
+     * 🎯 То же, с эмбеддингом запроса от классификатора: кеш не считает его повторно
+     */
+    public void processResearchQuery(String userQuery, String sessionId, List<Double> queryEmbedding) {
+        processResearchQuery(userQuery, sessionId, queryEmbedding, SpeculativeGate.OPEN);
+    }
+
+    /**
+     * 🎯 То же, но вывод идёт через шлюз спекулятивного выполнения
+     */
+    public void processResearchQuery(String userQuery, String sessionId, List<Double> queryEmbedding,
+                                     SpeculativeGate gate) {
+        // 🧠 Кеш ответов (для research по умолчанию отключён: данные быстро устаревают).
+        // С историей диалога ответ зависит от контекста сессии — в общий кеш не ходим
+        SemanticAnswerCache.Lookup cached = conversationMemory.hasHistory(sessionId)
+                ? SemanticAnswerCache.Lookup.disabled(SemanticAnswerCache.ROUTE_RESEARCH)
+                : answerCache.lookup(SemanticAnswerCache.ROUTE_RESEARCH, userQuery, queryEmbedding);
+        if (cached.isHit()) {
+            gate.emit(() -> gigaChatService.replayAnswerWithCompletion(userQuery, cached.answer(), sessionId));
+            return;
+        }
+
         String systemPrompt = buildSystemPrompt(userQuery);
-        gigaChatService.streamResponseWithTools(userQuery, systemPrompt, sessionId);
+        gigaChatService.streamResponseWithTools(userQuery, systemPrompt, sessionId,
+                answer -> answerCache.store(cached, userQuery, answer), gate);
     }
 
     /**
@@ -0,0 +1,127 @@
+package ru.hotelgenxi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.dto.ReviewDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 🗂️ ИНВЕРТИРОВАННЫЙ ИНДЕКС ОТЗЫВОВ
+ * ✅ Слово отзыва → id отелей, в отзывах которых оно встречается (строится из HotelCatalog)
+ * ✅ «Без шумных отелей» = проход по отсортированному словарю, без перебора отзывов в Java
+ * ✅ Найденные id уходят в Qdrant как must_not: выдача не «проседает» после фильтрации
+ * ✅ Токенизация совпадает с полнотекстовым индексом Qdrant (слова, нижний регистр)
+ * ✅ Совпадение — по началу слова: «шум» находит «шум», «шумно», «шумный»
+ *    (как и must_not по reviews_text: в Qdrant у него prefix-токенизатор)
+ */
+@Component
+public class ReviewIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewIndex.class);
+
+    // Отсортирован: все слова с общим началом лежат подряд
+    private volatile NavigableMap<String, Set<String>> postings = new TreeMap<>();
+
+    public ReviewIndex(HotelCatalog catalog) {
+        catalog.subscribe(this::rebuild);
+    }
+
+    /**
+     * 🔎 Отели, в отзывах которых каждое слово фразы начинает какое-то слово отзыва
+     * (пустое множество — таких нет)
+     */
+    public Set<String> hotelsMentioning(String phrase) {
+        List<String> tokens = tokenize(phrase);
+        if (tokens.isEmpty()) {
+            return Set.of();
+        }
+        NavigableMap<String, Set<String>> index = postings;
+        Set<String> result = null;
+        for (String token : tokens) {
+            Set<String> hotels = withPrefix(index, token);
+            if (result == null) {
+                result = new HashSet<>(hotels);
+            } else {
+                result.retainAll(hotels);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Тексты отзывов одной строкой — для полнотекстового payload-поля reviews_text
+     */
+    public static String reviewsText(List<ReviewDTO> reviews) {
+        if (reviews == null || reviews.isEmpty()) {
+            return null;
+        }
+        List<String> texts = new ArrayList<>(reviews.size());
+        for (ReviewDTO review : reviews) {
+            if (review.getText() != null) {
+                texts.add(review.getText());
+            }
+        }
+        return String.join("\n", texts);
+    }
+
+    private static Set<String> withPrefix(NavigableMap<String, Set<String>> index, String prefix) {
+        Set<String> hotels = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : index.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            hotels.addAll(entry.getValue());
+        }
+        return hotels;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            tokens.add(text.substring(start, i).toLowerCase());
+        }
+        return tokens;
+    }
+
+    private void rebuild(HotelCatalog.Snapshot snapshot) {
+        Map<String, Set<String>> index = new HashMap<>();
+        int reviewed = 0;
+        for (HotelSearchResult hotel : snapshot.hotels()) {
+            String text = reviewsText(hotel.getReviews());
+            if (text == null || hotel.getId() == null) {
+                continue;
+            }
+            reviewed++;
+            for (String token : tokenize(text)) {
+                index.computeIfAbsent(token, key -> new HashSet<>()).add(hotel.getId());
+            }
+        }
+        postings = new TreeMap<>(index);
+        log.info("[REVIEWS] Indexed {} hotels with reviews, {} terms", reviewed, index.size());
+    }
+}
@@ -0,0 +1,161 @@
+package ru.hotelgenxi.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import ru.hotelgenxi.dto.HotelFilters;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 📑 КУРСОРЫ ПОИСКА ПО СЕССИЯМ («покажи ещё»)
+ * ✅ После поиска отелей запоминаем весь ранжированный список кандидатов: id отеля + similarity
+ * ✅ «Покажи ещё» листает этот список — без нового эмбеддинга и без запроса в Qdrant
+ * ✅ Уточнение в продолжении («а ещё в Кемере?») фильтрует оставшихся кандидатов локально
+ * ✅ Отели берутся из HotelCatalog; курсор устаревает по TTL, при смене каталога и при отключении сессии
+ */
+@Component
+public class SearchCursorCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchCursorCache.class);
+
+    /**
+     * Кандидат из выдачи Qdrant
+     */
+    public record Candidate(String hotelId, double score) {
+    }
+
+    /**
+     * Страница продолжения: hasMore — в курсоре остались кандидаты
+     */
+    public record Page(List<HotelSearchResult> hotels, boolean hasMore) {
+    }
+
+    // offset — сколько кандидатов уже просмотрено (показано или отброшено уточнением)
+    private record Cursor(String query, List<Candidate> ranked, int offset, String catalogVersion) {
+    }
+
+    private final HotelCatalog catalog;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Cursor> cursors;
+
+    public SearchCursorCache(
+            HotelCatalog catalog,
+            MeterRegistry meterRegistry,
+            @Value("${chat.search.cursor.ttl:PT15M}") Duration ttl,
+            @Value("${chat.search.cursor.max-sessions:1000}") long maxSessions
+    ) {
+        this.catalog = catalog;
+        this.meterRegistry = meterRegistry;
+        this.cursors = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterWrite(ttl)
+                .build();
+        meterRegistry.gauge("chat.search.cursors", cursors, Cache::size);
+    }
+
+    /**
+     * 💾 Запоминает выдачу; первые shown кандидатов пользователь уже видел
+     */
+    public void store(String sessionId, String query, List<HotelSearchResult> ranked, int shown) {
+        if (sessionId == null || ranked.isEmpty()) {
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(ranked.size());
+        for (HotelSearchResult hotel : ranked) {
+            if (hotel.getId() != null) {
+                candidates.add(new Candidate(hotel.getId(),
+                        hotel.getSimilarity() != null ? hotel.getSimilarity() : 0));
+            }
+        }
+        cursors.put(sessionId, new Cursor(query, List.copyOf(candidates),
+                Math.min(shown, candidates.size()), catalog.version()));
+        log.debug("[CURSOR] Session {}: {} candidates for '{}'", sessionId, candidates.size(), query);
+    }
+
+    public boolean hasCursor(String sessionId) {
+        return sessionId != null && cursors.getIfPresent(sessionId) != null;
+    }
+
+    /**
+     * ⏭ Следующая страница (null — курсора нет, нужен обычный поиск)
+     *
+     * @param refine — уточняющие фильтры из продолжения (null — без уточнения)
+     */
+    public Page next(String sessionId, int pageSize, HotelFilters refine) {
+        if (sessionId == null) {
+            return null;
+        }
+        Page[] page = new Page[1];
+        cursors.asMap().computeIfPresent(sessionId, (key, cursor) -> {
+            if (!cursor.catalogVersion().equals(catalog.version())) {
+                return null; // каталог перезагружен — id могли измениться
+            }
+            List<HotelSearchResult> hotels = new ArrayList<>(pageSize);
+            int offset = cursor.offset();
+            while (offset < cursor.ranked().size() && hotels.size() < pageSize) {
+                Candidate candidate = cursor.ranked().get(offset++);
+                HotelSearchResult hotel = catalog.hotel(candidate.hotelId());
+                if (hotel != null && matches(hotel, refine)) {
+                    hotels.add(hotel.toBuilder().similarity(candidate.score()).build());
+                }
+            }
+            page[0] = new Page(hotels, offset < cursor.ranked().size());
+            return new Cursor(cursor.query(), cursor.ranked(), offset, cursor.catalogVersion());
+        });
+        record(page[0] == null ? "miss" : "hit");
+        return page[0];
+    }
+
+    /**
+     * Локальная проверка тех же условий, что QdrantService кладёт в фильтр
+     */
+    static boolean matches(HotelSearchResult hotel, HotelFilters filters) {
+        if (filters == null) {
+            return true;
+        }
+        return inRange(hotel.getPricePerNight(), filters.getMinPrice(), filters.getMaxPrice())
+                && inRange(hotel.getStars() != null ? hotel.getStars().doubleValue() : null,
+                        filters.getMinStars(), filters.getMaxStars())
+                && (filters.getMaxBeachDistanceM() == null || (hotel.getBeachDistanceM() != null
+                        && hotel.getBeachDistanceM() <= filters.getMaxBeachDistanceM()))
+                && (filters.getMinReviewScore() == null || (hotel.getReviewScore() != null
+                        && hotel.getReviewScore() >= filters.getMinReviewScore()))
+                && (filters.getCountry() == null || filters.getCountry().equalsIgnoreCase(hotel.getCountry()))
+                && (filters.getCity() == null || filters.getCity().equalsIgnoreCase(hotel.getCity()))
+                && (!Boolean.TRUE.equals(filters.getKidsClub()) || Boolean.TRUE.equals(hotel.getKidsClub()))
+                && (!Boolean.TRUE.equals(filters.getAllInclusive()) || Boolean.TRUE.equals(hotel.getAllInclusive()))
+                && (!Boolean.TRUE.equals(filters.getAquapark()) || Boolean.TRUE.equals(hotel.getAquapark()))
+                && (filters.getExcludedHotelIds() == null || !filters.getExcludedHotelIds().contains(hotel.getId()));
+    }
+
+    private static boolean inRange(Double value, Integer min, Integer max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        return value != null && (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        cursors.invalidate(event.getSessionId());
+    }
+
+    private void record(String outcome) {
+        Counter.builder("chat.search.cursor")
+                .description("Продолжения поиска из курсора")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
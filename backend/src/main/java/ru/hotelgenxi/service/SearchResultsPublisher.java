@@ -0,0 +1,121 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 📦 ВЫДАЧА ПОИСКА ОДНИМ КАДРОМ (search_results)
+ * ✅ Заголовок, карточки и подвал — одно STOMP-сообщение вместо десятков пословных кадров и пауз
+ * ✅ Кадр собирается из готовых JSON-фрагментов карточек (HotelCardRenderer), без повторной сериализации
+ * ✅ У кадра нет content/hotelData — старый клиент его просто пропускает
+ * ✅ Для старых клиентов можно включить дубль в прежнем формате (text + hotel_card) с пометкой legacy:
+ *    новый клиент такие кадры игнорирует. Включается chat.search.legacy-frames=true (по умолчанию выключен —
+ *    канал /topic/messages общий, и дубль получил бы каждый клиент)
+ * ✅ Одиночные hotel_card тоже собираются из кешированного фрагмента, без сериализации ChatMessage
+ */
+@Component
+public class SearchResultsPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchResultsPublisher.class);
+
+    public static final String TYPE = "search_results";
+    private static final String DESTINATION = "/topic/messages";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final HotelCardRenderer cardRenderer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean legacyFrames;
+
+    public SearchResultsPublisher(
+            SimpMessagingTemplate messagingTemplate,
+            HotelCardRenderer cardRenderer,
+            @Value("${chat.search.legacy-frames:false}") boolean legacyFrames
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.cardRenderer = cardRenderer;
+        this.legacyFrames = legacyFrames;
+    }
+
+    /**
+     * Нужно ли вызывающему досылать прежний формат
+     */
+    public boolean legacyFramesEnabled() {
+        return legacyFrames;
+    }
+
+    /**
+     * 📤 Отправляет выдачу одним кадром:
+     * {"type":"search_results","sender":"assistant","timestamp":…,"searchResults":{"header":…,"cards":[…],"footer":…}}
+     *
+     * @return false — кадр собрать не удалось, вызывающий шлёт прежний формат без пометки legacy
+     */
+    public boolean publish(String header, List<HotelSearchResult> hotels, String footer) {
+        try {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(512 + hotels.size() * 1024);
+            write(frame, "{\"type\":\"" + TYPE + "\",\"sender\":\"assistant\",\"timestamp\":"
+                    + System.currentTimeMillis() + ",\"searchResults\":{\"header\":");
+            frame.writeBytes(objectMapper.writeValueAsBytes(header));
+            write(frame, ",\"cards\":[");
+            for (int i = 0; i < hotels.size(); i++) {
+                if (i > 0) {
+                    frame.write(',');
+                }
+                frame.writeBytes(cardRenderer.cardJson(hotels.get(i)));
+            }
+            write(frame, "],\"footer\":");
+            frame.writeBytes(objectMapper.writeValueAsBytes(footer));
+            write(frame, "}}");
+
+            send(frame.toByteArray());
+            log.info("[RESULTS] search_results: {} cards, {} bytes", hotels.size(), frame.size());
+            return true;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("[RESULTS] Failed to build search_results frame", e);
+            return false;
+        }
+    }
+
+    /**
+     * 🏨 Кадр hotel_card из кешированного фрагмента (формат как у ChatMessage)
+     *
+     * @param content — текст карточки (null — без текста)
+     * @param legacy  — дубль кадра search_results для старых клиентов
+     */
+    public void sendHotelCard(HotelSearchResult hotel, String content, boolean legacy) {
+        try {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(1024);
+            write(frame, "{\"content\":");
+            frame.writeBytes(objectMapper.writeValueAsBytes(content));
+            write(frame, ",\"sender\":\"assistant\",\"timestamp\":" + System.currentTimeMillis()
+                    + ",\"type\":\"hotel_card\",\"hotelData\":");
+            frame.writeBytes(cardRenderer.cardJson(hotel));
+            write(frame, legacy ? ",\"legacy\":true}" : "}");
+            send(frame.toByteArray());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("[RESULTS] Failed to send hotel card {}", hotel.getId(), e);
+        }
+    }
+
+    private void send(byte[] payload) {
+        messagingTemplate.send(DESTINATION, MessageBuilder.withPayload(payload)
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                .build());
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,213 @@
+package ru.hotelgenxi.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🧠 СЕМАНТИЧЕСКИЙ КЕШ ОТВЕТОВ
+ * ✅ Вопрос → эмбеддинг (LocalEmbeddingService) → ищем похожий вопрос по косинусу
+ * ✅ Если похожесть выше порога — повторяем сохранённый ответ без вызова GigaChat
+ * ✅ ...и только при тех же сущностях (место из LocationGazetteer, числа): AllMiniLmL6V2 англоязычная,
+ *    на коротких русских вопросах «виза в Турцию» и «виза в Египет» у неё почти одинаковые векторы
+ * ✅ TTL, ограничение размера, отключение по маршрутам, метрики попаданий
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    public static final String ROUTE_GENERAL = "general";
+    public static final String ROUTE_RESEARCH = "research";
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[.,]\\d+)?");
+
+    private final LocalEmbeddingService embeddingService;
+    private final MeterRegistry meterRegistry;
+    private final LocationGazetteer gazetteer;
+    private final Cache<String, Entry> entries;
+    private final double threshold;
+    private final Set<String> disabledRoutes;
+
+    public SemanticAnswerCache(
+            LocalEmbeddingService embeddingService,
+            MeterRegistry meterRegistry,
+            LocationGazetteer gazetteer,
+            @Value("${chat.semantic-cache.max-size:500}") long maxSize,
+            @Value("${chat.semantic-cache.ttl:PT6H}") Duration ttl,
+            @Value("${chat.semantic-cache.threshold:0.92}") double threshold,
+            // research-ответы зависят от актуальных данных (погода, курсы) — по умолчанию не кешируем
+            @Value("${chat.semantic-cache.disabled-routes:research}") Set<String> disabledRoutes
+    ) {
+        this.embeddingService = embeddingService;
+        this.meterRegistry = meterRegistry;
+        this.gazetteer = gazetteer;
+        this.threshold = threshold;
+        this.disabledRoutes = disabledRoutes;
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        meterRegistry.gauge("chat.semantic_cache.size", entries, Cache::size);
+    }
+
+    /**
+     * 🔍 Ищет ответ на похожий вопрос.
+     * Возвращённый Lookup хранит эмбеддинг, чтобы при сохранении не считать его повторно.
+     */
+    public Lookup lookup(String route, String question) {
+        return lookup(route, question, null);
+    }
+
+    /**
+     * 🔍 То же, но с уже посчитанным эмбеддингом вопроса (null/пустой — посчитаем сами)
+     */
+    public Lookup lookup(String route, String question, List<Double> questionEmbedding) {
+        if (!isEnabled(route) || question == null || question.isBlank()) {
+            return Lookup.disabled(route);
+        }
+
+        String key = cacheKey(route, question);
+        Entry exact = entries.getIfPresent(key);
+        if (exact != null) {
+            record(route, "hit");
+            log.info("[ANSWER-CACHE] Exact hit: '{}'", question);
+            return new Lookup(route, key, exact.embedding(), exact.entities(), exact.answer());
+        }
+
+        Entities entities = entities(question);
+
+        float[] embedding = normalize(questionEmbedding != null && !questionEmbedding.isEmpty()
+                ? questionEmbedding
+                : embeddingService.getEmbedding(question));
+        if (embedding.length == 0) {
+            record(route, "miss");
+            return new Lookup(route, key, embedding, entities, null);
+        }
+
+        Entry best = null;
+        double bestScore = threshold;
+        for (Entry entry : entries.asMap().values()) {
+            if (!entry.route().equals(route) || !entry.entities().equals(entities)) {
+                continue;
+            }
+            double score = dot(embedding, entry.embedding());
+            if (score >= bestScore) {
+                bestScore = score;
+                best = entry;
+            }
+        }
+
+        if (best == null) {
+            record(route, "miss");
+            return new Lookup(route, key, embedding, entities, null);
+        }
+
+        record(route, "hit");
+        log.info("[ANSWER-CACHE] Semantic hit ({}): '{}' ≈ '{}'",
+                String.format("%.3f", bestScore), question, best.question());
+        return new Lookup(route, key, embedding, entities, best.answer());
+    }
+
+    /**
+     * 💾 Сохраняет ответ GigaChat для вопроса из lookup
+     */
+    public void store(Lookup lookup, String question, String answer) {
+        if (lookup == null || lookup.key() == null || lookup.embedding().length == 0
+                || answer == null || answer.isBlank()) {
+            return;
+        }
+        entries.put(lookup.key(), new Entry(lookup.route(), question, lookup.embedding(), lookup.entities(), answer));
+        log.debug("[ANSWER-CACHE] Stored answer ({} chars) for '{}'", answer.length(), question);
+    }
+
+    public boolean isEnabled(String route) {
+        return !disabledRoutes.contains(route);
+    }
+
+    private void record(String route, String result) {
+        Counter.builder("chat.semantic_cache.requests")
+                .description("Обращения к семантическому кешу ответов")
+                .tag("route", route)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Entities entities(String question) {
+        LocationGazetteer.Location location = gazetteer.find(question);
+        List<String> numbers = new ArrayList<>();
+        Matcher matcher = NUMBER.matcher(question);
+        while (matcher.find()) {
+            numbers.add(matcher.group().replace(',', '.'));
+        }
+        return new Entities(location.country(), location.city(), numbers);
+    }
+
+    private static String cacheKey(String route, String question) {
+        return route + ":" + question.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+
+    private static float[] normalize(List<Double> vector) {
+        float[] result = new float[vector.size()];
+        double norm = 0;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i).floatValue();
+            norm += result[i] * result[i];
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= (float) norm;
+            }
+        }
+        return result;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(String route, String question, float[] embedding, Entities entities, String answer) {}
+
+    /**
+     * Сущности вопроса, которые должны совпасть для семантического попадания (числа — по порядку)
+     */
+    public record Entities(String country, String city, List<String> numbers) {
+
+        static final Entities NONE = new Entities(null, null, List.of());
+    }
+
+    /**
+     * 📦 Результат поиска в кеше: answer != null — попадание
+     */
+    public record Lookup(String route, String key, float[] embedding, Entities entities, String answer) {
+
+        static Lookup disabled(String route) {
+            return new Lookup(route, null, new float[0], Entities.NONE, null);
+        }
+
+        public boolean isHit() {
+            return answer != null;
+        }
+    }
+}
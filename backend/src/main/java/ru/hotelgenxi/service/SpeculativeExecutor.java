@@ -0,0 +1,134 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.hotelgenxi.dto.HotelSearchResult;
+import ru.hotelgenxi.service.IntentRouter.Intent;
+import ru.hotelgenxi.util.TokenBucket;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 🏎️ СПЕКУЛЯТИВНОЕ ВЫПОЛНЕНИЕ НЕОДНОЗНАЧНЫХ МАРШРУТОВ
+ * ✅ Когда маршрут выбран ключевыми словами «на грани» (отель + research, или только слабые
+ *    триггеры вроде «до »/«от »), обе ветки стартуют сразу
+ * ✅ LLM-ветка (research или общий диалог) стримит в SpeculativeGate — пользователю ничего не уходит
+ * ✅ RAG-ветка (локальный поиск в Qdrant) выполняется тут же и оценивается по similarity лучшего отеля
+ * ✅ Победитель показывается, проигравший отменяется (стрим GigaChat обрывается через реестр)
+ * ✅ Бюджет: не больше N спекуляций с пополнением во времени — LLM-квота не сгорает на каждом запросе
+ */
+@Service
+public class SpeculativeExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(SpeculativeExecutor.class);
+
+    private final RAGAnalystAgent ragAnalystAgent;
+    private final ResearchAgent researchAgent;
+    private final GigaChatService gigaChatService;
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+    private final double ragMinScore;
+    private final double strongHotelScore;
+    private final TokenBucket budget;
+
+    public SpeculativeExecutor(
+            RAGAnalystAgent ragAnalystAgent,
+            ResearchAgent researchAgent,
+            GigaChatService gigaChatService,
+            MeterRegistry meterRegistry,
+            @Value("${chat.speculation.enabled:true}") boolean enabled,
+            // similarity лучшего отеля, с которой RAG-ответ считается удачным
+            @Value("${chat.speculation.rag-min-score:0.5}") double ragMinScore,
+            // суммарный вес отельных триггеров, начиная с которого маршрут не считается сомнительным
+            @Value("${chat.speculation.strong-hotel-score:1.0}") double strongHotelScore,
+            @Value("${chat.speculation.budget:20}") int budgetBurst,
+            @Value("${chat.speculation.refill-period:PT30S}") Duration budgetRefillPeriod
+    ) {
+        this.ragAnalystAgent = ragAnalystAgent;
+        this.researchAgent = researchAgent;
+        this.gigaChatService = gigaChatService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ragMinScore = ragMinScore;
+        this.strongHotelScore = strongHotelScore;
+        this.budget = new TokenBucket(budgetBurst, budgetRefillPeriod);
+    }
+
+    /**
+     * 🎲 Выполняет запрос спекулятивно, если маршрут сомнительный и бюджет позволяет
+     *
+     * @return false — спекуляция не нужна или бюджет исчерпан, маршрутизирует вызывающий
+     */
+    public boolean tryExecute(String userMessage, String sessionId,
+                              EmbeddingIntentClassifier.Decision decision, IntentRouter.Classification intents) {
+        if (!enabled || !isAmbiguous(decision, intents)) {
+            return false;
+        }
+        if (!budget.tryConsume()) {
+            record("budget_exhausted");
+            log.debug("[SPECULATION] Budget exhausted, routing by keywords");
+            return false;
+        }
+
+        Intent alternative = intents.matches(Intent.RESEARCH) ? Intent.RESEARCH : Intent.GENERAL;
+        log.info("[SPECULATION] Ambiguous route: HOTEL_SEARCH vs {}", alternative);
+
+        // 1. LLM-ветка стартует первой: у неё самая долгая задержка до первого токена
+        SpeculativeGate gate = SpeculativeGate.pending();
+        if (alternative == Intent.RESEARCH) {
+            researchAgent.processResearchQuery(userMessage, sessionId, decision.embedding(), gate);
+        } else {
+            gigaChatService.streamResponse(userMessage, sessionId, null, gate);
+        }
+
+        // 2. RAG-ветка — локальная и быстрая, выполняем здесь, пока LLM думает
+        List<HotelSearchResult> hotels;
+        try {
+            hotels = ragAnalystAgent.findHotels(userMessage, decision.embedding());
+        } catch (Exception e) {
+            log.warn("[SPECULATION] RAG branch failed: {}", e.getMessage());
+            hotels = List.of();
+        }
+
+        // 3. Коммит победителя
+        double topScore = hotels.isEmpty() || hotels.get(0).getSimilarity() == null
+                ? 0 : hotels.get(0).getSimilarity();
+        if (topScore >= ragMinScore) {
+            gate.discard();
+            // Курсор «покажи ещё» сохраняется только здесь — когда выдача RAG действительно показана
+            ragAnalystAgent.showSearchResults(userMessage, hotels, sessionId);
+            record("hotel_search");
+            log.info("[SPECULATION] → RAG wins (top similarity {}), {} branch cancelled",
+                    String.format("%.3f", topScore), alternative);
+        } else {
+            gate.open();
+            record(alternative.name().toLowerCase());
+            log.info("[SPECULATION] → {} wins (top similarity {})", alternative, String.format("%.3f", topScore));
+        }
+        return true;
+    }
+
+    /**
+     * Сомнительно: решали ключевые слова (классификатор не уверен) и отель выбран
+     * либо вопреки research-триггерам, либо только по слабым признакам
+     */
+    private boolean isAmbiguous(EmbeddingIntentClassifier.Decision decision, IntentRouter.Classification intents) {
+        return EmbeddingIntentClassifier.SOURCE_KEYWORDS.equals(decision.source())
+                && decision.intent() == Intent.HOTEL_SEARCH
+                && (intents.matches(Intent.RESEARCH) || intents.score(Intent.HOTEL_SEARCH) < strongHotelScore);
+    }
+
+    private void record(String outcome) {
+        Counter.builder("chat.speculation")
+                .description("Спекулятивные выполнения по исходу")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
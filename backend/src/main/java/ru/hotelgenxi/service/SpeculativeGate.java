@@ -0,0 +1,95 @@
+package ru.hotelgenxi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 🚦 Шлюз вывода спекулятивной ветки
+ * <p>
+ * Пока решение не принято, всё, что ветка отправила бы пользователю, копится по порядку.
+ * open() — ветка победила: накопленное уходит пользователю, дальше вывод идёт напрямую.
+ * discard() — ветка проиграла: накопленное выбрасывается, работа ветки отменяется.
+ */
+public final class SpeculativeGate {
+
+    /** Обычный (не спекулятивный) вывод — сразу пользователю */
+    public static final SpeculativeGate OPEN = new SpeculativeGate(State.OPEN);
+
+    private enum State { PENDING, OPEN, DISCARDED }
+
+    // volatile: у OPEN (и у открытого шлюза) emit() идёт без блокировки
+    private volatile State state;
+    private final List<Runnable> held = new ArrayList<>();
+    private Runnable onDiscard;
+
+    private SpeculativeGate(State state) {
+        this.state = state;
+    }
+
+    public static SpeculativeGate pending() {
+        return new SpeculativeGate(State.PENDING);
+    }
+
+    /**
+     * Отправка пользователю (или действие с побочным эффектом, например запись в память диалога)
+     */
+    public void emit(Runnable action) {
+        // Быстрый путь: OPEN устанавливается уже после отправки накопленного (open()), порядок не нарушается
+        if (state == State.OPEN) {
+            action.run();
+            return;
+        }
+        synchronized (this) {
+            switch (state) {
+                case OPEN -> action.run();
+                case PENDING -> held.add(action);
+                case DISCARDED -> { }
+            }
+        }
+    }
+
+    /**
+     * Чем отменить работу ветки, если она проиграет (например, стрим GigaChat)
+     */
+    public void onDiscard(Runnable cancel) {
+        boolean discarded;
+        synchronized (this) {
+            discarded = state == State.DISCARDED;
+            if (state == State.PENDING) {
+                onDiscard = cancel;
+            }
+        }
+        if (discarded) {
+            cancel.run();
+        }
+    }
+
+    public synchronized void open() {
+        if (state != State.PENDING) {
+            return;
+        }
+        // Под блокировкой: новые emit() не обгонят накопленные
+        held.forEach(Runnable::run);
+        held.clear();
+        state = State.OPEN;
+    }
+
+    public void discard() {
+        Runnable cancel;
+        synchronized (this) {
+            if (state != State.PENDING) {
+                return;
+            }
+            state = State.DISCARDED;
+            held.clear();
+            cancel = onDiscard;
+        }
+        if (cancel != null) {
+            cancel.run();
+        }
+    }
+
+    public boolean isDiscarded() {
+        return state == State.DISCARDED;
+    }
+}
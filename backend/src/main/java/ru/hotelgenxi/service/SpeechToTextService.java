@@ -2,19 +2,26 @@ package ru.hotelgenxi.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import ru.hotelgenxi.config.OutboundHttpClients;
+import ru.hotelgenxi.config.OutboundHttpProperties;
+import ru.hotelgenxi.config.TokenProviderConfig;
 import ru.hotelgenxi.dto.ChatMessage;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-import java.nio.charset.StandardCharsets;
-import java.security.cert.X509Certificate;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 @Service
@@ -23,92 +30,45 @@ public class SpeechToTextService {
     private static final Logger log = LoggerFactory.getLogger(SpeechToTextService.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private static final String OAUTH_ENDPOINT = "https://ngw.devices.sberbank.ru:9443/api/v2/oauth";
     private static final String SPEECH_RECOGNIZE_ENDPOINT = "https://smartspeech.sber.ru/rest/v1/speech:recognize";
 
-    @Value("${salute.speech.client-id}")
-    private String clientId;
-
-    @Value("${salute.speech.client-secret}")
-    private String clientSecret;
-
-    @Value("${salute.speech.scope:SALUTE_SPEECH_PERS}")
-    private String scope;
-
     private final SimpMessagingTemplate messagingTemplate;
     private final SupervisorAgent supervisorAgent;
-    private final OkHttpClient httpClient;
-
-    private volatile String cachedAccessToken;
-    private volatile long tokenExpiresAt;
-    private final Object tokenLock = new Object();
+    private final RestTemplate speechClient;
+    private final TokenProvider tokenProvider;
+    private final AgentExecutor agentExecutor;
+    private final LocationGazetteer locationGazetteer;
 
     public SpeechToTextService(
             SimpMessagingTemplate messagingTemplate,
-            SupervisorAgent supervisorAgent
+            SupervisorAgent supervisorAgent,
+            OutboundHttpClients httpClients,
+            @Qualifier(TokenProviderConfig.SALUTE_SPEECH) TokenProvider tokenProvider,
+            AgentExecutor agentExecutor,
+            LocationGazetteer locationGazetteer
     ) {
         this.messagingTemplate = messagingTemplate;
         this.supervisorAgent = supervisorAgent;
-        this.httpClient = createTrustAllOkHttpClient();
-    }
-
-    /**
-     * 🔓 Создает OkHttpClient который доверяет ВСЕ сертификатам
-     * ⚠️ ТОЛЬКО ДЛЯ РАЗРАБОТКИ! В production используйте настоящие сертификаты
-     */
-    private OkHttpClient createTrustAllOkHttpClient() {
-        try {
-            log.warn("[STT] ⚠️ Инициализация OkHttpClient с отключенной SSL проверкой (ТОЛЬКО ДЛЯ РАЗРАБОТКИ!)");
-
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                    new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(X509Certificate[] chain, String authType) {}
-
-                        @Override
-                        public void checkServerTrusted(X509Certificate[] chain, String authType) {}
-
-                        @Override
-                        public X509Certificate[] getAcceptedIssuers() {
-                            return new X509Certificate[]{};
-                        }
-                    }
-            };
-
-            final SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            final javax.net.ssl.SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-
-            OkHttpClient.Builder builder = new OkHttpClient.Builder();
-            builder.sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0]);
-            builder.hostnameVerifier((hostname, session) -> true);
-            builder.connectTimeout(java.time.Duration.ofSeconds(30));
-            builder.readTimeout(java.time.Duration.ofSeconds(60));
-
-            log.info("[STT] ✅ OkHttpClient инициализирован");
-            return builder.build();
-
-        } catch (Exception e) {
-            log.error("[STT] ❌ Ошибка при создании SSL контекста", e);
-            return new OkHttpClient.Builder()
-                    .connectTimeout(java.time.Duration.ofSeconds(30))
-                    .readTimeout(java.time.Duration.ofSeconds(60))
-                    .build();
-        }
+        // 🌐 Общий пул соединений (SSL-настройки и таймауты — в OutboundHttpProperties)
+        this.speechClient = httpClients.restTemplate(OutboundHttpProperties.SALUTE_SPEECH);
+        this.tokenProvider = tokenProvider;
+        this.agentExecutor = agentExecutor;
+        this.locationGazetteer = locationGazetteer;
     }
 
     /**
      * 🎤 Распознавание аудио через Salute Speech REST API
      */
-    public void transcribeAndProcess(byte[] audioBytes, String filename, String sessionId) {
-        if (audioBytes == null || audioBytes.length == 0) {
-            log.warn("[STT] Пустой аудиофайл");
-            sendErrorMessage("❌ Аудиофайл пуст");
-            return;
-        }
-
+    public void transcribeAndProcess(Path audioFile, String filename, String sessionId) {
         try {
-            String transcribedText = transcribeAudioSalute(audioBytes);
+            long size = Files.size(audioFile);
+            if (size == 0) {
+                log.warn("[STT] Пустой аудиофайл");
+                sendErrorMessage("❌ Аудиофайл пуст");
+                return;
+            }
+
+            String transcribedText = transcribeAudioSalute(audioFile, size);
 
             if (transcribedText != null && !transcribedText.trim().isEmpty()) {
                 log.info("[STT] ✅ Распознано: {}", transcribedText);
@@ -124,95 +84,44 @@ public class SpeechToTextService {
     }
 
     /**
-     * 🔐 Получение Access Token через OAuth 2.0
+     * 🔐 Access Token SaluteSpeech (общий TokenProvider: кеш, проактивное обновление, single-flight)
      */
     private String getAccessToken() throws Exception {
-        synchronized (tokenLock) {
-            if (cachedAccessToken != null && System.currentTimeMillis() < tokenExpiresAt - 60000) {
-                log.debug("[STT] Используем закешированный токен");
-                return cachedAccessToken;
-            }
-        }
-
-        log.info("[STT] Запрашиваем новый access token");
-
-        String credentials = clientId + ":" + clientSecret;
-        String base64Credentials = Base64.getEncoder()
-                .encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
-
-        String rqUID = UUID.randomUUID().toString();
-
-        FormBody requestBody = new FormBody.Builder()
-                .add("scope", scope)
-                .build();
-
-        Request request = new Request.Builder()
-                .url(OAUTH_ENDPOINT)
-                .header("Content-Type", "application/x-www-form-urlencoded")
-                .header("Accept", "application/json")
-                .header("Authorization", "Basic " + base64Credentials)
-                .header("RqUID", rqUID)
-                .post(requestBody)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
-
-            log.info("[STT] OAuth ответ код: {}", response.code());
-
-            if (!response.isSuccessful()) {
-                log.error("[STT] ❌ Ошибка OAuth: {} - {}", response.code(), responseBody);
-                throw new Exception("OAuth ошибка: " + response.code() + " - " + responseBody);
-            }
-
-            JsonNode jsonNode = objectMapper.readTree(responseBody);
-            String accessToken = jsonNode.path("access_token").asText();
-            long expiresIn = jsonNode.path("expires_in").asLong(1800);
-
-            if (accessToken.isEmpty()) {
-                throw new Exception("Access token не найден в ответе");
-            }
-
-            synchronized (tokenLock) {
-                cachedAccessToken = accessToken;
-                tokenExpiresAt = System.currentTimeMillis() + (expiresIn * 1000);
-            }
-
-            log.info("[STT] ✅ Получен новый access token, действителен {} сек", expiresIn);
-            return accessToken;
-
-        } catch (Exception e) {
-            log.error("[STT] Ошибка при получении access token", e);
-            throw new Exception("Не удалось получить access token", e);
+        String accessToken = tokenProvider.getAccessToken();
+        if (accessToken == null) {
+            throw new Exception("Не удалось получить access token");
         }
+        return accessToken;
     }
 
     /**
      * 🎤 REST API запрос к Salute Speech для распознавания
      */
-    private String transcribeAudioSalute(byte[] audioBytes) throws Exception {
+    private String transcribeAudioSalute(Path audioFile, long size) throws Exception {
         String accessToken = getAccessToken();
 
-        log.info("[STT] Отправляем PCM аудио на распознавание ({} bytes)", audioBytes.length);
-
-        String contentType = "audio/x-pcm;bit=16;rate=16000";
+        log.info("[STT] Отправляем PCM аудио на распознавание ({} bytes)", size);
 
-        Request request = new Request.Builder()
-                .url(SPEECH_RECOGNIZE_ENDPOINT)
-                .header("Authorization", "Bearer " + accessToken)
-                .header("Content-Type", contentType)
-                .post(RequestBody.create(audioBytes, MediaType.parse(contentType)))
-                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        headers.setContentType(MediaType.parseMediaType("audio/x-pcm;bit=16;rate=16000"));
+        headers.setContentLength(size);
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
+        ResponseEntity<String> response;
+        try {
+            // Тело читается из файла потоком прямо в сокет
+            response = speechClient.exchange(
+                    SPEECH_RECOGNIZE_ENDPOINT, HttpMethod.POST,
+                    new HttpEntity<>(new FileSystemResource(audioFile), headers), String.class);
+        } catch (HttpStatusCodeException e) {
+            log.error("[STT] ❌ Ошибка распознавания: {} - {}", e.getStatusCode().value(), e.getResponseBodyAsString());
+            throw new Exception("Ошибка распознавания: " + e.getStatusCode().value(), e);
+        }
 
-            log.info("[STT] Ответ распознавания код: {}", response.code());
+        try {
+            String responseBody = response.getBody() != null ? response.getBody() : "";
 
-            if (!response.isSuccessful()) {
-                log.error("[STT] ❌ Ошибка распознавания: {} - {}", response.code(), responseBody);
-                throw new Exception("Ошибка распознавания: " + response.code());
-            }
+            log.info("[STT] Ответ распознавания код: {}", response.getStatusCode().value());
 
             JsonNode root = objectMapper.readTree(responseBody);
 
@@ -270,14 +179,14 @@ public class SpeechToTextService {
         sendUserMessage(normalizedText);
 
         // ✅ Передаём распознанный текст в SupervisorAgent
-        new Thread(() -> {
+        agentExecutor.execute(AgentExecutor.Workload.CHAT, sessionId, () -> {
             try {
                 supervisorAgent.handleUserQuery(normalizedText, sessionId);
             } catch (Exception e) {
                 log.error("[STT] Ошибка в SupervisorAgent", e);
                 sendErrorMessage("❌ Ошибка при обработке команды: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     /**
@@ -305,6 +214,12 @@ public class SpeechToTextService {
     }
 
     private String detectCountry(String text) {
+        // Страны каталога — через газеттир (падежи, опечатки распознавания: «хургода», «антолия»)
+        String catalogCountry = locationGazetteer.find(text).country();
+        if (catalogCountry != null) {
+            return catalogCountry.toLowerCase();
+        }
+
         Map<String, String[]> countries = Map.ofEntries(
                 Map.entry("турция", new String[]{"турция", "стамбул", "анталия", "бодрум"}),
                 Map.entry("египет", new String[]{"египет", "каир", "гиза", "хургада", "шарм"}),
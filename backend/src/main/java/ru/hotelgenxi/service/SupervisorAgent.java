@@ -30,17 +30,32 @@ public class SupervisorAgent {
     private final ResearchAgent researchAgent;
     private final GigaChatService gigaChatService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final SemanticAnswerCache answerCache;
+    private final IntentRouter intentRouter;
+    private final EmbeddingIntentClassifier intentClassifier;
+    private final SpeculativeExecutor speculativeExecutor;
+    private final ConversationMemory conversationMemory;
 
     public SupervisorAgent(
             RAGAnalystAgent ragAnalystAgent,
             ResearchAgent researchAgent,
             GigaChatService gigaChatService,
-            SimpMessagingTemplate messagingTemplate
+            SimpMessagingTemplate messagingTemplate,
+            SemanticAnswerCache answerCache,
+            IntentRouter intentRouter,
+            EmbeddingIntentClassifier intentClassifier,
+            SpeculativeExecutor speculativeExecutor,
+            ConversationMemory conversationMemory
     ) {
         this.ragAnalystAgent = ragAnalystAgent;
         this.researchAgent = researchAgent;
         this.gigaChatService = gigaChatService;
         this.messagingTemplate = messagingTemplate;
+        this.answerCache = answerCache;
+        this.intentRouter = intentRouter;
+        this.intentClassifier = intentClassifier;
+        this.speculativeExecutor = speculativeExecutor;
+        this.conversationMemory = conversationMemory;
     }
 
     /**
@@ -58,202 +73,63 @@ public class SupervisorAgent {
         }
 
         try {
-            // 🔄 ПРИОРИТЕТ 1: Hotel Search (проверяем ПЕРВЫМ!)
-            if (isHotelSearchQuery(userMessage)) {
-                log.info("[SUPERVISOR] → Routing to RAG Analyst Agent");
-                ragAnalystAgent.handleHotelSearch(userMessage);
+            // ⏭ «Покажи ещё» — листаем прошлую выдачу, без классификации и нового поиска
+            if (ragAnalystAgent.handleShowMore(userMessage, sessionId)) {
+                log.info("[SUPERVISOR] → Next page from search cursor");
                 return;
             }
 
-            // 🔄 ПРИОРИТЕТ 2: Research (информационные запросы с function calling)
-            if (isResearchQuery(userMessage)) {
-                log.info("[SUPERVISOR] → Routing to Research Agent (with function calling)");
-                researchAgent.processResearchQuery(userMessage, sessionId);
+            // 🔃 «Самые дешёвые отели в Сочи» — только сортировка и фильтры: сразу в просмотр, без эмбеддинга
+            if (ragAnalystAgent.handlePureSort(userMessage, sessionId)) {
+                log.info("[SUPERVISOR] → Sorted browse (pure sort query)");
                 return;
             }
 
-            // 🔄 ПРИОРИТЕТ 3: Общий диалог
-            log.info("[SUPERVISOR] → Routing to GigaChat (General Chat)");
-            gigaChatService.streamResponse(userMessage);
-
-        } catch (Exception e) {
-            log.error("[SUPERVISOR] Error routing query", e);
-            sendErrorMessage(sessionId, "❌ Произошла ошибка при обработке вашего запроса: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 🏨 Определяем, это запрос поиска отеля?
-     * ✅ РАСШИРЕННЫЕ ТРИГГЕРЫ
-     */
-    private boolean isHotelSearchQuery(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return false;
-        }
-
-        String lower = query.toLowerCase();
-
-        // ============ ОСНОВНЫЕ ТРИГГЕРЫ ==============
-        String[] mainTriggers = {
-                "отель", "отели", "гостинец", "гостиница",
-                "бронь", "забронировать", "хочу остановиться",
-                "где остановиться", "жилье", "апартамент",
-                "буклет", "каталог отелей",
-                "поиск отеля", "подберите отель", "рекомендуй отель"
-        };
-
-        for (String trigger : mainTriggers) {
-            if (lower.contains(trigger)) {
-                log.debug("[SUPERVISOR] Hotel trigger found: '{}'", trigger);
-                return true;
-            }
-        }
-
-        // ============ ТРИГГЕРЫ ПО УСЛУГАМ ==============
-        String[] amenityTriggers = {
-                "детский клуб", "kids club",
-                "all inclusive", "all-inclusive", "олл инклюзив",
-                "аквапарк", "aquapark",
-                "спа", "spa", "массаж",
-                "бассейн", "pool", "пляж",
-                "ресторан", "кафе", "бар"
-        };
+            // Один проход автомата по сообщению — все намерения сразу
+            IntentRouter.Classification intents = intentRouter.classify(userMessage);
+            // Ближайший центроид по эмбеддингу; не уверен — решают ключевые слова (приоритеты ниже)
+            EmbeddingIntentClassifier.Decision decision = intentClassifier.decide(userMessage, intents);
+            log.info("[SUPERVISOR] Intent {} via {} ({})", decision.intent(), decision.source(),
+                    String.format("%.2f", decision.confidence()));
 
-        for (String trigger : amenityTriggers) {
-            if (lower.contains(trigger)) {
-                log.debug("[SUPERVISOR] Amenity trigger found: '{}'", trigger);
-                return true;
+            // 🔄 Маршрут сомнительный — отель и LLM-ветка параллельно, показываем лучший результат
+            if (speculativeExecutor.tryExecute(userMessage, sessionId, decision, intents)) {
+                return;
             }
-        }
 
-        // ============ ТРИГГЕРЫ ПО ТИПАМ ОТЕЛЕЙ ==============
-        String[] hotelTypes = {
-                "курорт", "пансионат", "санаторий",
-                "5 звёзд", "4 звёзд", "3 звёзд",
-                "люкс", "premium", "эконом"
-        };
-
-        for (String trigger : hotelTypes) {
-            if (lower.contains(trigger)) {
-                log.debug("[SUPERVISOR] Hotel type trigger found: '{}'", trigger);
-                return true;
+            // 🔄 ПРИОРИТЕТ 1: Hotel Search (проверяем ПЕРВЫМ!)
+            if (decision.intent() == IntentRouter.Intent.HOTEL_SEARCH) {
+                log.info("[SUPERVISOR] → Routing to RAG Analyst Agent");
+                ragAnalystAgent.handleHotelSearch(userMessage, decision.embedding(), sessionId);
+                return;
             }
-        }
-
-        // ============ ТРИГГЕРЫ ПО ЛОКАЦИЯМ (ГОРОДА) ==============
-        String[] cities = {
-                "сочи", "анапа", "ялта", "крым",
-                "турция", "анталья", "кемер", "мармарис",
-                "египет", "хургада", "шарм-эль-шейх", "асуан",
-                "таиланд", "пхукет", "патайя", "бангкок",
-                "оаэ", "дубай", "абу-даби",
-                "мальдив", "мале",
-                "греция", "крит", "афины",
-                "испания", "барселона", "мадрид"
-        };
 
-        for (String city : cities) {
-            if (lower.contains(city)) {
-                log.debug("[SUPERVISOR] City trigger found: '{}'", city);
-                return true;
+            // 🔄 ПРИОРИТЕТ 2: Research (информационные запросы с function calling)
+            if (decision.intent() == IntentRouter.Intent.RESEARCH) {
+                log.info("[SUPERVISOR] → Routing to Research Agent (with function calling)");
+                researchAgent.processResearchQuery(userMessage, sessionId, decision.embedding());
+                return;
             }
-        }
-
-        // ============ ТРИГГЕРЫ ПО ФИЛЬТРАМ ==============
-        String[] filterTriggers = {
-                "до ", // "до 5000" (цена)
-                "от ", // "от 3000" (цена)
-                "рублей", "₽", "руб",
-                "звёзд", "звезд", "звезды",
-                "с детьми", "для семьи", "с ребенком",
-                "с пляжем", "с бассейном",
-                "недорог", "дешев", "бюджет"
-        };
 
-        for (String trigger : filterTriggers) {
-            if (lower.contains(trigger)) {
-                log.debug("[SUPERVISOR] Filter trigger found: '{}'", trigger);
-                return true;
+            // 🔄 ПРИОРИТЕТ 3: Общий диалог (сначала семантический кеш ответов).
+            // С историей диалога ответ зависит от контекста сессии — кеш не читаем и не пополняем
+            SemanticAnswerCache.Lookup cached = conversationMemory.hasHistory(sessionId)
+                    ? SemanticAnswerCache.Lookup.disabled(SemanticAnswerCache.ROUTE_GENERAL)
+                    : answerCache.lookup(SemanticAnswerCache.ROUTE_GENERAL, userMessage, decision.embedding());
+            if (cached.isHit()) {
+                log.info("[SUPERVISOR] → Answering from semantic cache");
+                gigaChatService.replayAnswer(userMessage, cached.answer(), sessionId);
+                return;
             }
-        }
-
-        return false;
-    }
-
-    /**
-     * 🔍 Определяем, это информационный запрос?
-     * ✅ РАСШИРЕННЫЙ СПИСОК ТРИГГЕРОВ (60+) для Research Agent
-     */
-    private boolean isResearchQuery(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            log.warn("[SUPERVISOR] Query is null or empty");
-            return false;
-        }
-
-        String lower = query.toLowerCase().trim();
-        log.debug("[SUPERVISOR] Checking if research query: '{}'", lower);
-
-        // === ВСЕ ТРИГГЕРЫ ДЛЯ RESEARCH (60+) ===
-        String[] researchTriggers = {
-                // === ПОГОДА ===
-                "погода", "weather", "температура", "temp", "климат", "climate",
-                "тепло", "холодно", "дождь", "снег", "облака", "солнечно",
-                "ветер", "влажность", "прогноз", "forecast",
-
-                // === АВИАБИЛЕТЫ ===
-                "авиабилет", "рейс", "перелет", "flight", "цена на рейс",
-                "сколько стоит билет", "цены на авиа", "билет",
 
-                // === ВАЛЮТА ===
-                "курс", "валюта", "доллар", "евро", "рубль", "фунт", "грн",
-                "exchange rate", "currency", "usd", "eur", "gbp", "jpy",
-
-                // === ТРАНСПОРТ ===
-                "как добраться", "транспорт", "машина", "такси", "метро",
-                "автобус", "поезд", "маршрут", "route", "transportation",
-
-                // === ВИЗА И ДОКУМЕНТЫ ===
-                "виза", "страховка", "документы", "паспорт", "visa",
-                "insurance", "requirements",
-
-                // === ЛУЧШЕЕ ВРЕМЯ ===
-                "когда лучше", "сезон", "когда ехать", "best time",
-                "когда дешевле", "high season", "low season",
-
-                // === ДОСТОПРИМЕЧАТЕЛЬНОСТИ ===
-                "что посмотреть", "достопримечательность", "музей",
-                "культура", "история", "monument", "museum", "attractions",
-
-                // === ИНФОРМАЦИЯ ===
-                "информация о", "расскажи о", "узнать о", "tell me about",
-                "информация", "как там", "что там",
-
-                // === РЕЖИМ РАБОТЫ ===
-                "когда открыто", "режим работы", "часы работы", "opening",
-                "hours", "расписание",
-
-                // === ЕДА ===
-                "местная кухня", "еда", "блюдо", "ресторан рекомендуй",
-                "пища", "dish", "cuisine", "food", "restaurant",
-
-                // === УПАКОВКА ===
-                "как одеться", "одежда", "чемодан", "что брать",
-                "what to pack", "clothing", "luggage",
-
-                // === ОБЩИЕ ПОИСКИ ===
-                "поиск", "найди", "ищу", "ищем", "цена", "стоимость", "сколько стоит"
-        };
+            log.info("[SUPERVISOR] → Routing to GigaChat (General Chat)");
+            gigaChatService.streamResponse(userMessage, sessionId,
+                    answer -> answerCache.store(cached, userMessage, answer));
 
-        for (String trigger : researchTriggers) {
-            if (lower.contains(trigger)) {
-                log.info("[SUPERVISOR] ✅ Research trigger MATCHED: '{}' in query: '{}'",
-                        trigger, lower);
-                return true;
-            }
+        } catch (Exception e) {
+            log.error("[SUPERVISOR] Error routing query", e);
+            sendErrorMessage(sessionId, "❌ Произошла ошибка при обработке вашего запроса: " + e.getMessage());
         }
-
-        log.debug("[SUPERVISOR] ❌ No research trigger matched for: '{}'", lower);
-        return false;
     }
 
     /**
@@ -12,6 +12,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import ru.hotelgenxi.config.OutboundHttpClients;
+import ru.hotelgenxi.config.OutboundHttpProperties;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
@@ -31,10 +33,14 @@ public class TavilySearchService {
     @Value("${tavily.api-key:}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
     private final Map<String, CachedResult> cache = new ConcurrentHashMap<>();
 
+    public TavilySearchService(OutboundHttpClients httpClients) {
+        this.restTemplate = httpClients.restTemplate(OutboundHttpProperties.TAVILY);
+    }
+
     private static class CachedResult {
         String result;
         long timestamp;
@@ -0,0 +1,297 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 🔐 ПРОВАЙДЕР OAUTH-ТОКЕНОВ СБЕРА (GigaChat, SaluteSpeech)
+ * ✅ Чтение токена — один volatile-read через AtomicReference, без блокировок
+ * ✅ Проактивное обновление по расписанию — заранее, до истечения
+ * ✅ Single-flight: одновременно идёт не больше одного запроса токена, остальные ждут его результат
+ * ✅ Stale-while-revalidate: при ошибке обновления отдаём старый токен, пока он жив, и повторяем позже
+ * ✅ Токен можно сохранять на диск (каталог 0700, файл 0600) — тогда он переживает рестарт приложения
+ */
+public class TokenProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenProvider.class);
+
+    // Токен с остатком жизни меньше этого уже не выдаём
+    private static final Duration SAFETY_MARGIN = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_LIFETIME = Duration.ofMinutes(30);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(15);
+
+    private record Token(String value, Instant expiresAt) {
+        boolean usable(Instant now) {
+            return now.isBefore(expiresAt.minus(SAFETY_MARGIN));
+        }
+    }
+
+    private final String name;
+    private final RestTemplate restTemplate;
+    private final String endpoint;
+    private final String clientId;
+    private final String clientSecret;
+    private final String scope;
+    private final String rqUid;
+    private final Duration refreshAhead;
+    private final Path storeFile;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final AtomicReference<Token> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+    private final AtomicReference<ScheduledFuture<?>> nextRefresh = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param rqUid        — фиксированный RqUID или null (тогда новый UUID на каждый запрос)
+     * @param refreshAhead — за сколько до истечения обновлять токен
+     * @param storeFile    — куда сохранять токен между рестартами (null — не сохранять)
+     */
+    public TokenProvider(String name, RestTemplate restTemplate, String endpoint,
+                         String clientId, String clientSecret, String scope, String rqUid,
+                         Duration refreshAhead, Path storeFile, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.restTemplate = restTemplate;
+        this.endpoint = endpoint;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.scope = scope;
+        this.rqUid = rqUid;
+        this.refreshAhead = refreshAhead;
+        this.storeFile = storeFile;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-refresh-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * ▶️ Поднимает сохранённый токен (если он ещё жив) и планирует обновление
+     */
+    public void start() {
+        Token stored = load();
+        if (stored != null && stored.usable(Instant.now())) {
+            current.set(stored);
+            log.info("[TOKEN] {}: restored token valid until {}", name, stored.expiresAt());
+            scheduleRefresh(stored);
+        } else {
+            scheduler.execute(this::refreshInBackground);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 🔑 Действующий токен или null, если получить его не удалось
+     */
+    public String getAccessToken() {
+        Token token = current.get();
+        if (token != null && token.usable(Instant.now())) {
+            return token.value();
+        }
+        // Токена нет или он истёк — ждём общий (single-flight) запрос
+        try {
+            Token refreshed = refresh().join();
+            return refreshed.value();
+        } catch (RuntimeException e) {
+            log.error("[TOKEN] {}: no valid token available: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Single-flight: первый вызвавший выполняет запрос, остальные получают тот же future
+     */
+    private CompletableFuture<Token> refresh() {
+        CompletableFuture<Token> mine = new CompletableFuture<>();
+        CompletableFuture<Token> running = inFlight.compareAndExchange(null, mine);
+        if (running != null) {
+            return running;
+        }
+
+        try {
+            Token token = fetch();
+            current.set(token);
+            store(token);
+            count("success");
+            scheduleRefresh(token);
+            mine.complete(token);
+        } catch (Exception e) {
+            count("failure");
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.compareAndSet(mine, null);
+        }
+        return mine;
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh().join();
+        } catch (RuntimeException e) {
+            // Stale-while-revalidate: старый токен продолжает выдаваться, пока жив
+            Token stale = current.get();
+            log.warn("[TOKEN] {}: refresh failed ({}), {}; retry in {}s", name, e.getMessage(),
+                    stale != null && stale.usable(Instant.now()) ? "serving previous token" : "no valid token",
+                    RETRY_DELAY.toSeconds());
+            schedule(RETRY_DELAY);
+        }
+    }
+
+    private void scheduleRefresh(Token token) {
+        Duration lifetime = Duration.between(Instant.now(), token.expiresAt());
+        // Обновляем за refreshAhead до истечения, но не раньше середины жизни токена
+        Duration delay = lifetime.minus(refreshAhead);
+        if (delay.compareTo(lifetime.dividedBy(2)) < 0) {
+            delay = lifetime.dividedBy(2);
+        }
+        schedule(delay);
+        log.debug("[TOKEN] {}: next refresh in {}s", name, delay.toSeconds());
+    }
+
+    /**
+     * Запланировано всегда одно обновление — новое расписание отменяет предыдущее
+     */
+    private void schedule(Duration delay) {
+        ScheduledFuture<?> scheduled = scheduler.schedule(this::refreshInBackground, delay.toMillis(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = nextRefresh.getAndSet(scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private Token fetch() {
+        String credentials = Base64.getEncoder()
+                .encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.set(HttpHeaders.AUTHORIZATION, "Basic " + credentials);
+        headers.set("RqUID", rqUid != null ? rqUid : UUID.randomUUID().toString());
+
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("scope", scope);
+
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    endpoint, HttpMethod.POST, new HttpEntity<>(body, headers), String.class);
+            JsonNode json = mapper.readTree(response.getBody() != null ? response.getBody() : "");
+
+            String value = json.path("access_token").asText("");
+            if (value.isEmpty()) {
+                throw new IllegalStateException("access_token not found in OAuth response");
+            }
+            Token token = new Token(value, parseExpiry(json));
+            log.info("[TOKEN] {}: new token valid until {}", name, token.expiresAt());
+            return token;
+        } catch (HttpStatusCodeException e) {
+            throw new IllegalStateException("OAuth error " + e.getStatusCode().value()
+                    + ": " + e.getResponseBodyAsString(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid OAuth response", e);
+        }
+    }
+
+    /**
+     * expires_at — момент истечения (у Сбера в мс от эпохи), expires_in — секунды жизни
+     */
+    private static Instant parseExpiry(JsonNode json) {
+        long expiresAt = json.path("expires_at").asLong(0);
+        if (expiresAt > 0) {
+            return expiresAt > 100_000_000_000L ? Instant.ofEpochMilli(expiresAt) : Instant.ofEpochSecond(expiresAt);
+        }
+        long expiresIn = json.path("expires_in").asLong(0);
+        return Instant.now().plus(expiresIn > 0 ? Duration.ofSeconds(expiresIn) : DEFAULT_LIFETIME);
+    }
+
+    private Token load() {
+        if (storeFile == null || !Files.exists(storeFile)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(storeFile, StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                return null;
+            }
+            return new Token(lines.get(1), Instant.ofEpochMilli(Long.parseLong(lines.get(0))));
+        } catch (IOException | RuntimeException e) {
+            log.warn("[TOKEN] {}: failed to read stored token: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(Token token) {
+        if (storeFile == null) {
+            return;
+        }
+        try {
+            createPrivateDirectory(storeFile.getParent());
+            Path temp = Files.createTempFile(storeFile.getParent(), name, ".tmp");
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // не POSIX (Windows) — оставляем права по умолчанию
+            }
+            Files.writeString(temp, token.expiresAt().toEpochMilli() + "\n" + token.value(), StandardCharsets.UTF_8);
+            Files.move(temp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("[TOKEN] {}: failed to persist token: {}", name, e.getMessage());
+        }
+    }
+
+    // Каталог создаётся сразу с правами 0700; существующий — сужаем до 0700
+    private static void createPrivateDirectory(Path dir) throws IOException {
+        try {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+        } catch (UnsupportedOperationException e) {
+            // не POSIX (Windows) — права по умолчанию
+            Files.createDirectories(dir);
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("oauth.token.refresh")
+                .tag("provider", name)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,151 @@
+package ru.hotelgenxi.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 📥 ВРЕМЕННОЕ ХРАНИЛИЩЕ ЗАГРУЗОК
+ * ✅ Загрузка сразу переносится в файл (multipart и так лежит на диске — это перемещение, не копия)
+ * ✅ Лимиты размера для фото, аудио и документов: по Content-Length ещё до приёма тела (UploadSizeFilter),
+ *    они же задают лимиты multipart (UploadLimitsConfig) и проверяются здесь ещё раз
+ * ✅ Обработчики читают файл потоком — в куче не висят байты целой загрузки
+ * ✅ Файл удаляется после обработки; при старте чистятся «осиротевшие» файлы — только свои
+ *    (kind-*.upload) и старше upload.spool-stale-after: каталог может быть общим с другим экземпляром
+ */
+@Component
+public class UploadSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSpool.class);
+
+    public static final String KIND_IMAGE = "image";
+    public static final String KIND_AUDIO = "audio";
+    public static final String KIND_DOCUMENT = "document";
+
+    private static final List<String> KINDS = List.of(KIND_IMAGE, KIND_AUDIO, KIND_DOCUMENT);
+    private static final String SUFFIX = ".upload";
+
+    /**
+     * Загрузка больше допустимого размера
+     */
+    public static class UploadTooLargeException extends RuntimeException {
+        public UploadTooLargeException(String kind, long size, DataSize limit) {
+            super(String.format("%s upload is %d bytes, limit is %s", kind, size, limit));
+        }
+    }
+
+    private final Path directory;
+    private final DataSize maxImageSize;
+    private final DataSize maxAudioSize;
+    private final DataSize maxDocumentSize;
+    private final Duration staleAfter;
+
+    public UploadSpool(
+            @Value("${upload.spool-dir:#{systemProperties['java.io.tmpdir']}/hotelgenix-uploads}") String directory,
+            @Value("${upload.image.max-size:15MB}") DataSize maxImageSize,
+            @Value("${upload.audio.max-size:25MB}") DataSize maxAudioSize,
+            @Value("${upload.document.max-size:20MB}") DataSize maxDocumentSize,
+            // Дольше ни одна загрузка не обрабатывается — такой файл точно брошен
+            @Value("${upload.spool-stale-after:PT1H}") Duration staleAfter
+    ) {
+        this.directory = Paths.get(directory);
+        this.maxImageSize = maxImageSize;
+        this.maxAudioSize = maxAudioSize;
+        this.maxDocumentSize = maxDocumentSize;
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Лимит размера файла для типа загрузки
+     */
+    public DataSize limit(String kind) {
+        return switch (kind) {
+            case KIND_AUDIO -> maxAudioSize;
+            case KIND_DOCUMENT -> maxDocumentSize;
+            default -> maxImageSize;
+        };
+    }
+
+    /**
+     * Наибольший из лимитов — общий предел для multipart
+     */
+    public DataSize maxLimit() {
+        long max = Math.max(maxImageSize.toBytes(), Math.max(maxAudioSize.toBytes(), maxDocumentSize.toBytes()));
+        return DataSize.ofBytes(max);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        Instant cutoff = Instant.now().minus(staleAfter);
+        int removed = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isStale(file, cutoff)) {
+                    release(file);
+                    removed++;
+                }
+            }
+        }
+        log.info("[UPLOAD] Spool directory: {} (removed {} stale uploads)", directory, removed);
+    }
+
+    /**
+     * Файл этого хранилища (kind-*.upload), не менявшийся с cutoff
+     */
+    static boolean isStale(Path file, Instant cutoff) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(SUFFIX) || KINDS.stream().noneMatch(kind -> name.startsWith(kind + "-"))) {
+            return false;
+        }
+        try {
+            return Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 📥 Переносит загрузку во временный файл. Вызывающий обязан вызвать release().
+     *
+     * @throws UploadTooLargeException если файл больше лимита для этого типа
+     */
+    public Path spool(MultipartFile file, String kind) throws IOException {
+        DataSize limit = limit(kind);
+        if (file.getSize() > limit.toBytes()) {
+            throw new UploadTooLargeException(kind, file.getSize(), limit);
+        }
+
+        Path target = Files.createTempFile(directory, kind + "-", SUFFIX);
+        try {
+            // transferTo(File) у servlet-multipart переименовывает файл Tomcat, а не копирует поток
+            file.transferTo(target.toFile());
+        } catch (IOException | RuntimeException e) {
+            release(target);
+            throw e;
+        }
+        log.debug("[UPLOAD] Spooled {} ({} bytes) → {}", file.getOriginalFilename(), file.getSize(), target.getFileName());
+        return target;
+    }
+
+    public void release(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("[UPLOAD] Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+}
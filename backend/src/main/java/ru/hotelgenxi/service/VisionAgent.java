@@ -7,45 +7,72 @@ import org.springframework.stereotype.Service;
 import ru.hotelgenxi.dto.ChatMessage;
 import ru.hotelgenxi.dto.HotelSearchResult;
 
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * 👁️ VISION AGENT — анализ изображений отелей
- * ✅ Сжимает изображение ДО 500KB
+ * ✅ Уменьшает и перекодирует изображение (ImagePreprocessor)
  * ✅ Парсит описание и ищет отели в RAG
  */
 @Service
 public class VisionAgent {
 
     private static final Logger log = LoggerFactory.getLogger(VisionAgent.class);
-    private static final int MAX_IMAGE_SIZE = 500_000; // 500KB максимум
+
+    private static final String VISION_PROMPT = """
+            Проанализируй это изображение отеля и дай мне 2-3 ключевых характеристики:
+            
+            1. Стиль/атмосфера (люкс, бюджет, классический, современный и т.д.)
+            2. Основные удобства видимые (бассейн, спа, пляж, ресторан и т.д.)
+            3. Целевая аудитория (для семей, молодежи, пожилых и т.д.)
+            
+            Ответь кратко (1-2 предложения).
+            """;
 
     private final GigaChatService gigaChatService;
     private final RAGAnalystAgent ragAnalystAgent;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ImagePreprocessor imagePreprocessor;
+    private final VisionResultCache visionCache;
 
     public VisionAgent(GigaChatService gigaChatService,
                        RAGAnalystAgent ragAnalystAgent,
-                       SimpMessagingTemplate messagingTemplate) {
+                       SimpMessagingTemplate messagingTemplate,
+                       ImagePreprocessor imagePreprocessor,
+                       VisionResultCache visionCache) {
         this.gigaChatService = gigaChatService;
         this.ragAnalystAgent = ragAnalystAgent;
         this.messagingTemplate = messagingTemplate;
+        this.imagePreprocessor = imagePreprocessor;
+        this.visionCache = visionCache;
     }
 
     /**
      * 👁️ Анализирует загруженное изображение
-     * ✅ Сжимает изображение перед отправкой в API
+     * ✅ Уменьшает и перекодирует изображение перед отправкой в API
+     *
+     * @param sessionId — сессия чата (курсор «покажи ещё» для найденных отелей), может быть null
      */
-    public void analyzeImage(String base64Image, String fileName) {
+    public void analyzeImage(Path imageFile, String fileName, String sessionId) {
         log.info("[VISION] Analyzing image: {}", fileName);
 
         try {
-            // 1️⃣ СЖИМАЕМ ИЗОБРАЖЕНИЕ (максимум 500KB base64)
-            String compressedImage = compressBase64Image(base64Image);
-            log.info("[VISION] Image compressed. Size: {} KB", compressedImage.length() / 1024);
-
-            // 2️⃣ ВЫЗЫВАЕМ VISION API
-            String imageDescription = callVisionAPI(compressedImage);
+            // 0️⃣ ТОТ ЖЕ ФАЙЛ УЖЕ АНАЛИЗИРОВАЛИ — ответ без декодирования и перекодирования
+            String uploadSha256 = visionCache.hashUpload(imageFile);
+            String imageDescription = visionCache.findExactDescription(uploadSha256, VISION_PROMPT);
+
+            if (imageDescription == null) {
+                // 1️⃣ ГОТОВИМ ИЗОБРАЖЕНИЕ (уменьшение + JPEG без метаданных)
+                ImagePreprocessor.PreparedImage image = imagePreprocessor.prepare(imageFile);
+                if (image == null) {
+                    sendMessage("❌ Не удалось прочитать изображение. Поддерживаются JPEG, PNG, GIF и BMP.");
+                    return;
+                }
+
+                // 2️⃣ ВЫЗЫВАЕМ VISION API
+                imageDescription = callVisionAPI(image, uploadSha256);
+            }
             if (imageDescription == null || imageDescription.isEmpty()) {
                 sendMessage("❌ Не удалось проанализировать изображение. Попробуйте загрузить другую картинку.");
                 return;
@@ -59,7 +86,7 @@ public class VisionAgent {
 
             // 4️⃣ ИЩЕМ ОТЕЛИ В RAG
             log.info("[VISION] Searching for similar hotels");
-            ragAnalystAgent.handleHotelSearch(searchQuery);
+            ragAnalystAgent.handleHotelSearch(searchQuery, null, sessionId);
 
         } catch (Exception e) {
             log.error("[VISION] Error analyzing image", e);
@@ -67,45 +94,13 @@ public class VisionAgent {
         }
     }
 
-    /**
-     * 🗜️ Сжимает base64 изображение
-     * Берёт первые MAX_IMAGE_SIZE символов
-     */
-    private String compressBase64Image(String base64) {
-        if (base64 == null) {
-            return "";
-        }
-
-        // Если размер нормальный, оставляем как есть
-        if (base64.length() <= MAX_IMAGE_SIZE) {
-            return base64;
-        }
-
-        // Иначе обрезаем
-        log.warn("[VISION] Image too large ({} chars), compressing to {} KB",
-                base64.length(),
-                MAX_IMAGE_SIZE / 1024);
-
-        return base64.substring(0, MAX_IMAGE_SIZE);
-    }
-
     /**
      * 🔍 Вызывает GigaChat Vision API с обработкой ошибок
      */
-    private String callVisionAPI(String base64Image) {
+    private String callVisionAPI(ImagePreprocessor.PreparedImage image, String uploadSha256) {
         try {
-            String prompt = """
-                    Проанализируй это изображение отеля и дай мне 2-3 ключевых характеристики:
-                    
-                    1. Стиль/атмосфера (люкс, бюджет, классический, современный и т.д.)
-                    2. Основные удобства видимые (бассейн, спа, пляж, ресторан и т.д.)
-                    3. Целевая аудитория (для семей, молодежи, пожилых и т.д.)
-                    
-                    Ответь кратко (1-2 предложения).
-                    """;
-
             // Отправляем в GigaChat (Vision API)
-            String response = gigaChatService.analyzeImageWithVision(base64Image, prompt);
+            String response = gigaChatService.analyzeImageWithVision(image, uploadSha256, VISION_PROMPT);
             return response != null ? response.trim() : "";
 
         } catch (Exception e) {
@@ -0,0 +1,190 @@
+package ru.hotelgenxi.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hotelgenxi.util.PerceptualHash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 🗂️ КЕШ РЕЗУЛЬТАТОВ GIGACHAT VISION
+ * ✅ SHA-256 исходного файла загрузки → file_id в хранилище GigaChat (повторная загрузка не нужна)
+ * ✅ SHA-256 исходного файла + промпт → готовое описание (ни декодирования, ни загрузки, ни инференса)
+ * ✅ dHash → описание для почти одинаковых картинок (пересжатие, другой размер)
+ * ✅ Метрики: gigachat.vision.cache{result}
+ * <p>
+ * Кешируются только настоящие ответы модели — fallback-описания сюда не попадают.
+ */
+@Component
+public class VisionResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VisionResultCache.class);
+
+    /**
+     * Отпечаток изображения: точный (SHA-256 исходного файла) и перцептивный (dHash)
+     */
+    public record Fingerprint(String sha256, long perceptualHash) {
+    }
+
+    private record Described(long perceptualHash, String promptKey, String description) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, String> fileIds;
+    private final Cache<String, Described> descriptions;
+    private final int maxHammingDistance;
+
+    public VisionResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${gigachat.vision.cache.max-size:1000}") long maxSize,
+            @Value("${gigachat.vision.cache.ttl:PT24H}") Duration ttl,
+            // Файлы в хранилище GigaChat живут ограниченное время — file_id держим меньше
+            @Value("${gigachat.vision.cache.file-ttl:PT6H}") Duration fileTtl,
+            @Value("${gigachat.vision.cache.max-hamming-distance:5}") int maxHammingDistance
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.maxHammingDistance = maxHammingDistance;
+        this.fileIds = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(fileTtl).build();
+        this.descriptions = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+        meterRegistry.gauge("gigachat.vision.cache.size", descriptions, Cache::size);
+    }
+
+    /**
+     * SHA-256 исходного файла загрузки — потоком, до декодирования картинки.
+     * Предобработка детерминирована, поэтому одинаковый файл = одинаковый JPEG для GigaChat
+     */
+    public String hashUpload(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Fingerprint fingerprint(String uploadSha256, ImagePreprocessor.PreparedImage image) {
+        return new Fingerprint(uploadSha256, image.perceptualHash());
+    }
+
+    /**
+     * 🔍 Точное совпадение по исходному файлу — проверяется до предобработки (null — промах)
+     */
+    public String findExactDescription(String uploadSha256, String prompt) {
+        String promptKey = sha256(prompt.getBytes(StandardCharsets.UTF_8));
+        Described exact = descriptions.getIfPresent(descriptionKey(uploadSha256, promptKey));
+        if (exact == null) {
+            return null;
+        }
+        record("hit_exact");
+        log.info("[VISION-CACHE] Exact hit {} before preprocessing", shortHash(uploadSha256));
+        return exact.description();
+    }
+
+    /**
+     * 🔍 Готовое описание: сначала точное совпадение, затем ближайшее по dHash
+     */
+    public String findDescription(Fingerprint fingerprint, String prompt) {
+        String promptKey = sha256(prompt.getBytes(StandardCharsets.UTF_8));
+
+        Described exact = descriptions.getIfPresent(descriptionKey(fingerprint.sha256(), promptKey));
+        if (exact != null) {
+            record("hit_exact");
+            log.info("[VISION-CACHE] Exact hit {}", shortHash(fingerprint.sha256()));
+            return exact.description();
+        }
+
+        Described best = null;
+        int bestDistance = maxHammingDistance + 1;
+        // Линейный проход: кеш ограничен max-size, XOR + bitCount на запись — наносекунды
+        for (Described candidate : descriptions.asMap().values()) {
+            if (!candidate.promptKey().equals(promptKey)) {
+                continue;
+            }
+            int distance = PerceptualHash.distance(fingerprint.perceptualHash(), candidate.perceptualHash());
+            if (distance < bestDistance) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        if (best != null) {
+            record("hit_perceptual");
+            log.info("[VISION-CACHE] Near-duplicate hit {} (distance {})", shortHash(fingerprint.sha256()), bestDistance);
+            return best.description();
+        }
+
+        record("miss");
+        return null;
+    }
+
+    public void storeDescription(Fingerprint fingerprint, String prompt, String description) {
+        String promptKey = sha256(prompt.getBytes(StandardCharsets.UTF_8));
+        descriptions.put(descriptionKey(fingerprint.sha256(), promptKey),
+                new Described(fingerprint.perceptualHash(), promptKey, description));
+    }
+
+    /**
+     * 📎 file_id уже загруженной картинки (или null)
+     */
+    public String findFileId(Fingerprint fingerprint) {
+        String fileId = fileIds.getIfPresent(fingerprint.sha256());
+        if (fileId != null) {
+            record("hit_file");
+        }
+        return fileId;
+    }
+
+    public void storeFileId(Fingerprint fingerprint, String fileId) {
+        fileIds.put(fingerprint.sha256(), fileId);
+    }
+
+    /**
+     * Файл мог быть удалён на стороне GigaChat — забываем его
+     */
+    public void evictFileId(Fingerprint fingerprint) {
+        fileIds.invalidate(fingerprint.sha256());
+    }
+
+    private void record(String result) {
+        Counter.builder("gigachat.vision.cache")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String descriptionKey(String imageHash, String promptKey) {
+        return imageHash + ":" + promptKey;
+    }
+
+    private static String shortHash(String sha256) {
+        return sha256.substring(0, 12);
+    }
+
+    private static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
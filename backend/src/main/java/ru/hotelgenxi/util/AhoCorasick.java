@@ -0,0 +1,183 @@
+package ru.hotelgenxi.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 🔎 Автомат Ахо–Корасик: поиск всех словарных фраз в тексте за один линейный проход
+ * <p>
+ * Строится один раз, дальше неизменяем и потокобезопасен.
+ * Регистр не учитывается: фразы приводятся к нижнему регистру при сборке, текст — посимвольно при поиске
+ * (без копии строки через toLowerCase()). Семантика совпадает с {@code lower.contains(phrase)} —
+ * фраза находится в любом месте текста, в том числе внутри слова.
+ *
+ * @param <T> данные, привязанные к фразе (одна фраза может нести несколько значений)
+ */
+public final class AhoCorasick<T> {
+
+    private static final int ROOT = 0;
+
+    // Переходы узла: отсортированные символы + номера узлов (двоичный поиск)
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // Выходы узла с учётом всей цепочки fail-ссылок — при поиске её обходить не нужно
+    private final Object[][] outputs;
+    // Длины фраз, параллельно outputs (для позиции начала вхождения)
+    private final int[][] lengths;
+
+    private AhoCorasick(char[][] keys, int[][] targets, int[] fail, Object[][] outputs, int[][] lengths) {
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Обработчик вхождения: [start, end) — границы фразы в тексте
+     */
+    @FunctionalInterface
+    public interface MatchHandler<T> {
+        void onMatch(int start, int end, T payload);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Вызывает consumer для каждого вхождения каждой фразы (в порядке окончания вхождений)
+     */
+    public void forEachMatch(CharSequence text, Consumer<? super T> consumer) {
+        scan(text, (start, end, payload) -> consumer.accept(payload));
+    }
+
+    /**
+     * То же, но с позициями вхождений (например, чтобы проверить границы слов)
+     */
+    @SuppressWarnings("unchecked")
+    public void scan(CharSequence text, MatchHandler<? super T> handler) {
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transition(state, c);
+            while (next < 0 && state != ROOT) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = next < 0 ? ROOT : next;
+            Object[] payloads = outputs[state];
+            for (int j = 0; j < payloads.length; j++) {
+                handler.onMatch(i + 1 - lengths[state][j], i + 1, (T) payloads[j]);
+            }
+        }
+    }
+
+    public List<T> findAll(CharSequence text) {
+        List<T> matches = new ArrayList<>();
+        forEachMatch(text, matches::add);
+        return matches;
+    }
+
+    public int size() {
+        return fail.length;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+    /**
+     * Сборка: бор → fail-ссылки обходом в ширину → компактные массивы
+     */
+    public static final class Builder<T> {
+
+        private final List<Map<Character, Integer>> children = new ArrayList<>();
+        private final List<List<Object>> outputs = new ArrayList<>();
+        private final List<List<Integer>> lengths = new ArrayList<>();
+
+        private Builder() {
+            newNode();
+        }
+
+        public Builder<T> add(String phrase, T payload) {
+            if (phrase == null || phrase.isEmpty()) {
+                throw new IllegalArgumentException("Phrase must not be empty");
+            }
+            int node = ROOT;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = Character.toLowerCase(phrase.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = newNode();
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            outputs.get(node).add(payload);
+            lengths.get(node).add(phrase.length());
+            return this;
+        }
+
+        public AhoCorasick<T> build() {
+            int size = children.size();
+            int[] fail = new int[size];
+
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : children.get(ROOT).values()) {
+                fail[child] = ROOT;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = fail[node];
+                    while (fallback != ROOT && !children.get(fallback).containsKey(edge.getKey())) {
+                        fallback = fail[fallback];
+                    }
+                    Integer target = children.get(fallback).get(edge.getKey());
+                    fail[child] = target != null && target != child ? target : ROOT;
+                    // fail-узел ближе к корню и уже обработан — его выходы полные
+                    outputs.get(child).addAll(outputs.get(fail[child]));
+                    lengths.get(child).addAll(lengths.get(fail[child]));
+                    queue.add(child);
+                }
+            }
+
+            char[][] keys = new char[size][];
+            int[][] targets = new int[size][];
+            Object[][] flatOutputs = new Object[size][];
+            int[][] flatLengths = new int[size][];
+            for (int node = 0; node < size; node++) {
+                Map<Character, Integer> edges = children.get(node);
+                keys[node] = new char[edges.size()];
+                targets[node] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    keys[node][i] = edge.getKey();
+                    targets[node][i] = edge.getValue();
+                    i++;
+                }
+                flatOutputs[node] = outputs.get(node).toArray();
+                flatLengths[node] = lengths.get(node).stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new AhoCorasick<>(keys, targets, fail, flatOutputs, flatLengths);
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            outputs.add(new ArrayList<>());
+            lengths.add(new ArrayList<>());
+            return children.size() - 1;
+        }
+    }
+}
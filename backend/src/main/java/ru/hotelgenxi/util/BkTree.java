@@ -0,0 +1,135 @@
+package ru.hotelgenxi.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🌳 BK-дерево: поиск слов словаря в пределах расстояния Левенштейна
+ * <p>
+ * Ребро к потомку помечено расстоянием между словами; по неравенству треугольника при поиске
+ * с допуском k обходятся только рёбра d(query, node) ± k — остальной словарь не сравнивается.
+ * Стоимость поиска дополнительно ограничена числом сравнений (maxVisits).
+ * Заполняется один раз через add(), после публикации только читается (потокобезопасно).
+ *
+ * @param <T> данные, привязанные к слову
+ */
+public final class BkTree<T> {
+
+    /**
+     * Найденное слово словаря и его расстояние до запроса
+     */
+    public record Match<T>(String term, T payload, int distance) {
+    }
+
+    private static final class Node<T> {
+        private final String term;
+        private final List<T> payloads = new ArrayList<>(1);
+        private final Map<Integer, Node<T>> children = new HashMap<>();
+
+        private Node(String term) {
+            this.term = term;
+        }
+    }
+
+    private Node<T> root;
+    private int size;
+
+    /**
+     * Добавляет слово (регистр не учитывается); повтор слова добавляет ещё одно значение
+     */
+    public BkTree<T> add(String term, T payload) {
+        String key = term.toLowerCase();
+        if (root == null) {
+            root = new Node<>(key);
+            root.payloads.add(payload);
+            size++;
+            return this;
+        }
+        Node<T> node = root;
+        while (true) {
+            int distance = distance(key, node.term);
+            if (distance == 0) {
+                node.payloads.add(payload);
+                return this;
+            }
+            Node<T> child = node.children.get(distance);
+            if (child == null) {
+                child = new Node<>(key);
+                child.payloads.add(payload);
+                node.children.put(distance, child);
+                size++;
+                return this;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Слова в пределах maxDistance, от ближайших к дальним.
+     * maxVisits — предел сравнений: на большом словаре поиск не уходит в полный перебор.
+     */
+    public List<Match<T>> search(String query, int maxDistance, int maxVisits) {
+        List<Match<T>> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        String key = query.toLowerCase();
+        Deque<Node<T>> pending = new ArrayDeque<>();
+        pending.push(root);
+        int visits = 0;
+
+        while (!pending.isEmpty() && visits < maxVisits) {
+            Node<T> node = pending.pop();
+            visits++;
+            int distance = distance(key, node.term);
+            if (distance <= maxDistance) {
+                for (T payload : node.payloads) {
+                    matches.add(new Match<>(node.term, payload, distance));
+                }
+            }
+            for (Map.Entry<Integer, Node<T>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Match::distance));
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Расстояние Левенштейна (вставка, удаление, замена), две строки таблицы
+     */
+    public static int distance(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
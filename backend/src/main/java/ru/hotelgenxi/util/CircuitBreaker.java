@@ -0,0 +1,137 @@
+package ru.hotelgenxi.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * ⚡ Простой circuit breaker со скользящим окном по количеству вызовов
+ * <p>
+ * CLOSED → (доля ошибок в окне ≥ порога) → OPEN → (через openDuration) → HALF_OPEN
+ * HALF_OPEN → (все пробные вызовы успешны) → CLOSED, иначе снова OPEN
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    // Кольцевой буфер исходов: true — ошибка
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * Можно ли выполнить вызов сейчас. При true вызывающий обязан сообщить исход
+     * через onSuccess / onError / onIgnored.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight + halfOpenSucceeded >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls
+                && (double) failures / recorded >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Вызов отменён (клиент ушёл) — исход не учитываем, но освобождаем пробный слот
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (newState == State.CLOSED) {
+            Arrays.fill(outcomes, false);
+            position = 0;
+            recorded = 0;
+            failures = 0;
+        }
+    }
+}
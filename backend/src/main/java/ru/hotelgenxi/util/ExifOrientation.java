@@ -0,0 +1,137 @@
+package ru.hotelgenxi.util;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 🧭 EXIF Orientation (тег 0x0112) из JPEG и поворот картинки по нему
+ * <p>
+ * Камеры телефонов пишут пиксели «как сняла матрица», а поворот — только в EXIF.
+ * Перекодированный JPEG метаданных не несёт, поэтому ориентацию нужно применить к пикселям.
+ * Разбирается только IFD0 сегмента APP1 — остальной EXIF не нужен.
+ */
+public final class ExifOrientation {
+
+    public static final int NORMAL = 1;
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1_MARKER = 0xE1;
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * Ориентация из метаданных JPEG-декодера ImageIO (NORMAL — нет EXIF или это не JPEG)
+     */
+    public static int read(IIOMetadata metadata) {
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return NORMAL;
+        }
+        Node root = metadata.getAsTree(JPEG_METADATA_FORMAT);
+        for (Node section = root.getFirstChild(); section != null; section = section.getNextSibling()) {
+            if (!"markerSequence".equals(section.getNodeName())) {
+                continue;
+            }
+            for (Node marker = section.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                if (marker instanceof IIOMetadataNode node && "unknown".equals(node.getNodeName())
+                        && String.valueOf(APP1_MARKER).equals(node.getAttribute("MarkerTag"))
+                        && node.getUserObject() instanceof byte[] data) {
+                    int orientation = parse(data);
+                    if (orientation != NORMAL) {
+                        return orientation;
+                    }
+                }
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Ориентация из содержимого сегмента APP1 («Exif\0\0» + TIFF)
+     */
+    static int parse(byte[] app1) {
+        int tiff = EXIF_HEADER.length;
+        if (app1.length < tiff + 8) {
+            return NORMAL;
+        }
+        for (int i = 0; i < EXIF_HEADER.length; i++) {
+            if (app1[i] != EXIF_HEADER[i]) {
+                return NORMAL;
+            }
+        }
+        boolean littleEndian = app1[tiff] == 'I' && app1[tiff + 1] == 'I';
+        if (!littleEndian && !(app1[tiff] == 'M' && app1[tiff + 1] == 'M')) {
+            return NORMAL;
+        }
+        long ifd = tiff + readInt(app1, tiff + 4, littleEndian);
+        if (ifd + 2 > app1.length) {
+            return NORMAL;
+        }
+        int entries = readShort(app1, (int) ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                break;
+            }
+            if (readShort(app1, entry, littleEndian) == ORIENTATION_TAG) {
+                int value = readShort(app1, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : NORMAL;
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Поворачивает/отражает картинку так, чтобы она выглядела как в просмотрщике с учётом EXIF
+     */
+    public static BufferedImage apply(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        // AffineTransform(m00, m10, m01, m11, m02, m12): x' = m00·x + m01·y + m02, y' = m10·x + m11·y + m12
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // отражение по горизонтали
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // отражение по вертикали
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // транспонирование
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // 90° по часовой
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // транспонирование + 180°
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);   // 90° против часовой
+            default -> null;
+        };
+        if (transform == null) {
+            return image;
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage target = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, target.getWidth(), target.getHeight());
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? b0 | b1 << 8 : b0 << 8 | b1;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean littleEndian) {
+        long hi = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        long lo = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return hi << 16 | lo;
+    }
+}
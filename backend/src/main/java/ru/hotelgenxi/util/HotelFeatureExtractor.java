@@ -0,0 +1,53 @@
+package ru.hotelgenxi.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 📐 Числовые признаки отеля из текста описания (при загрузке в Qdrant и в каталог)
+ * <p>
+ * «До пляжа 39 метров» → beach_distance_m = 39, «Рейтинг отеля 4.8» → review_score = 4.8.
+ * Запросы «первая линия», «рейтинг от 4.5» становятся точными range-фильтрами вместо угадывания вектором.
+ */
+public final class HotelFeatureExtractor {
+
+    public static final String BEACH_DISTANCE_M = "beach_distance_m";
+    public static final String REVIEW_SCORE = "review_score";
+
+    private static final Pattern BEACH_DISTANCE = Pattern.compile(
+            "до пляжа\\s+(\\d+(?:[.,]\\d+)?)\\s*(км|километр\\S*|м|метр\\S*)", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern REVIEW = Pattern.compile(
+            "рейтинг отеля\\s+(\\d+(?:[.,]\\d+)?)", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    private HotelFeatureExtractor() {
+    }
+
+    /**
+     * Признаки из описания (отсутствующие в тексте — не попадают в результат)
+     */
+    public static Map<String, Object> extract(String description) {
+        Map<String, Object> features = new LinkedHashMap<>();
+        if (description == null || description.isBlank()) {
+            return features;
+        }
+
+        Matcher beach = BEACH_DISTANCE.matcher(description);
+        if (beach.find()) {
+            double distance = parseNumber(beach.group(1));
+            boolean kilometers = beach.group(2).toLowerCase().startsWith("к");
+            features.put(BEACH_DISTANCE_M, (int) Math.round(kilometers ? distance * 1000 : distance));
+        }
+
+        Matcher review = REVIEW.matcher(description);
+        if (review.find()) {
+            features.put(REVIEW_SCORE, parseNumber(review.group(1)));
+        }
+        return features;
+    }
+
+    private static double parseNumber(String text) {
+        return Double.parseDouble(text.replace(',', '.'));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hotelgenxi.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * 🖼️ Перцептивный хеш изображения (dHash, 64 бита)
+ * <p>
+ * Картинка уменьшается до 9×8 в оттенках серого, каждый бит — «левый пиксель ярче правого».
+ * Пересжатие, смена размера и лёгкая цветокоррекция почти не меняют хеш,
+ * поэтому близкие картинки отличаются на несколько бит (расстояние Хэмминга).
+ */
+public final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(BufferedImage image) {
+        BufferedImage small = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, WIDTH, HEIGHT, null);
+        graphics.dispose();
+
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
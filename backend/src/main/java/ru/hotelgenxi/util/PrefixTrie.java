@@ -0,0 +1,149 @@
+package ru.hotelgenxi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 🔤 Префиксное дерево для автодополнения с готовым top-k в каждом узле
+ * <p>
+ * Дети узла — отсортированный массив символов и параллельный массив узлов (без HashMap на узел).
+ * После заполнения freeze(k) один раз сохраняет в каждом узле k лучших значений поддерева по score,
+ * поэтому подсказка = спуск по префиксу + чтение готового списка, без обхода поддерева.
+ * Заполняется через add(), после freeze() только читается (потокобезопасно).
+ *
+ * @param <T> данные, привязанные к ключу
+ */
+public final class PrefixTrie<T> {
+
+    private record Entry<T>(T payload, double score) {
+    }
+
+    private static final Comparator<Entry<?>> BY_SCORE =
+            Comparator.comparingDouble((Entry<?> entry) -> entry.score()).reversed();
+
+    private static final class Node<T> {
+        private char[] keys = new char[0];
+        private Node<T>[] children = newArray(0);
+        private List<Entry<T>> entries;
+        private List<Entry<T>> top = List.of();
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int size) {
+            return (Node<T>[]) new Node[size];
+        }
+
+        private Node<T> child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private Node<T> childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<T>[] newChildren = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, keys.length - at);
+            Node<T> child = new Node<>();
+            newKeys[at] = c;
+            newChildren[at] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+    private boolean frozen;
+
+    /**
+     * Добавляет ключ (регистр и ё/е не различаются); одно значение можно добавить под несколькими ключами
+     */
+    public PrefixTrie<T> add(String key, T payload, double score) {
+        if (frozen) {
+            throw new IllegalStateException("PrefixTrie is frozen");
+        }
+        String normalized = normalize(key);
+        if (normalized.isEmpty()) {
+            return this;
+        }
+        Node<T> node = root;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.childOrCreate(normalized.charAt(i));
+        }
+        if (node.entries == null) {
+            node.entries = new ArrayList<>(1);
+        }
+        node.entries.add(new Entry<>(payload, score));
+        return this;
+    }
+
+    /**
+     * Считает top-k для каждого узла; после этого дерево только читается
+     */
+    public PrefixTrie<T> freeze(int k) {
+        collect(root, k);
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * До limit значений с ключом, начинающимся на prefix, от большего score к меньшему
+     * (не больше k из freeze)
+     */
+    public List<T> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Node<T> node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.child(normalized.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        List<T> result = new ArrayList<>(Math.min(limit, node.top.size()));
+        for (Entry<T> entry : node.top) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(entry.payload());
+        }
+        return result;
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase().replace('ё', 'е');
+    }
+
+    // Снизу вверх: top узла = лучшие k из его значений и top детей (одно значение — один раз)
+    private List<Entry<T>> collect(Node<T> node, int k) {
+        List<Entry<T>> candidates = new ArrayList<>();
+        if (node.entries != null) {
+            candidates.addAll(node.entries);
+        }
+        for (Node<T> child : node.children) {
+            candidates.addAll(collect(child, k));
+        }
+        candidates.sort(BY_SCORE);
+        List<Entry<T>> top = new ArrayList<>(Math.min(k, candidates.size()));
+        for (Entry<T> candidate : candidates) {
+            if (top.size() >= k) {
+                break;
+            }
+            if (top.stream().noneMatch(entry -> entry.payload().equals(candidate.payload()))) {
+                top.add(candidate);
+            }
+        }
+        node.top = List.copyOf(top);
+        return node.top;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.hotelgenxi.util;
+
+/**
+ * 💰 Бюджет ретраев (token bucket)
+ * <p>
+ * Каждый исходный вызов пополняет бюджет на ratio токенов, каждый ретрай тратит один токен.
+ * Так число ретраев не превышает ~ratio от трафика и не устраивает «шторм» при деградации API.
+ * minReserve — запас, чтобы при малом трафике ретраи всё же были возможны.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio, double minReserve, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = minReserve;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    public synchronized double available() {
+        return tokens;
+    }
+}
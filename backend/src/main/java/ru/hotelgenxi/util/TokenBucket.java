@@ -0,0 +1,50 @@
+package ru.hotelgenxi.util;
+
+import java.time.Duration;
+
+/**
+ * 🪣 Token bucket с равномерным пополнением во времени
+ * <p>
+ * capacity — допустимый «всплеск», refillPeriod — за сколько времени пополняется один токен.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double capacity, Duration refillPeriod) {
+        this.capacity = capacity;
+        this.tokensPerNano = 1.0 / refillPeriod.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryConsume() {
+        refill();
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    /**
+     * Возвращает токен (запрос так и не был выполнен)
+     */
+    public synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1.0);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.hotelgenxi.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientSessionRegistryTest {
+
+    private final ClientSessionRegistry registry = new ClientSessionRegistry();
+
+    private void disconnect(String stompSessionId) {
+        registry.onDisconnect(new SessionDisconnectEvent(this, MessageBuilder.withPayload(new byte[0]).build(),
+                stompSessionId, CloseStatus.NORMAL));
+    }
+
+    @Test
+    void resolvesBoundClientToItsWebSocketSession() {
+        registry.bind("client-1", "stomp-1");
+
+        assertThat(registry.resolve("client-1")).isEqualTo("stomp-1");
+        // Клиент без WebSocket — его собственный ID
+        assertThat(registry.resolve("client-2")).isEqualTo("client-2");
+    }
+
+    @Test
+    void rejectsMissingOrOversizedClientId() {
+        registry.bind("x".repeat(65), "stomp-1");
+
+        assertThat(registry.resolve(null)).isNull();
+        assertThat(registry.resolve(" ")).isNull();
+        assertThat(registry.resolve("x".repeat(65))).isNull();
+        assertThat(registry.resolve("x".repeat(64))).isEqualTo("x".repeat(64));
+    }
+
+    @Test
+    void disconnectUnbindsClient() {
+        registry.bind("client-1", "stomp-1");
+
+        disconnect("stomp-1");
+
+        assertThat(registry.resolve("client-1")).isEqualTo("client-1");
+    }
+
+    @Test
+    void staleDisconnectKeepsReconnectedSession() {
+        registry.bind("client-1", "stomp-1");
+        registry.bind("client-1", "stomp-2");
+
+        // Старая вкладка закрылась позже, чем открылась новая
+        disconnect("stomp-1");
+
+        assertThat(registry.resolve("client-1")).isEqualTo("stomp-2");
+    }
+}
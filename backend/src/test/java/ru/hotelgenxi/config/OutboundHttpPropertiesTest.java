@@ -0,0 +1,76 @@
+package ru.hotelgenxi.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundHttpPropertiesTest {
+
+    private static OutboundHttpProperties bind(Map<String, String> properties) {
+        OutboundHttpProperties bound = new OutboundHttpProperties();
+        new Binder(new MapConfigurationPropertySource(properties))
+                .bind("outbound.http", Bindable.ofInstance(bound));
+        return bound;
+    }
+
+    @Test
+    void builtInPoolsApplyWithoutConfiguration() {
+        OutboundHttpProperties.Pool gigachat = bind(Map.of()).pool(OutboundHttpProperties.GIGACHAT);
+
+        assertThat(gigachat.getMaxConnections()).isEqualTo(50);
+        assertThat(gigachat.getResponseTimeout()).isEqualTo(Duration.ofSeconds(120));
+        assertThat(gigachat.getHttp2()).isTrue();
+        assertThat(gigachat.getTrustAll()).isTrue();
+    }
+
+    @Test
+    void singlePropertyOverridesOnlyItsField() {
+        OutboundHttpProperties properties = bind(Map.of("outbound.http.pools.gigachat.max-connections", "100"));
+
+        OutboundHttpProperties.Pool gigachat = properties.pool(OutboundHttpProperties.GIGACHAT);
+
+        assertThat(gigachat.getMaxConnections()).isEqualTo(100);
+        assertThat(gigachat.getResponseTimeout()).isEqualTo(Duration.ofSeconds(120));
+        assertThat(gigachat.getHttp2()).isTrue();
+        assertThat(gigachat.getTrustAll()).isTrue();
+        assertThat(gigachat.getCompress()).isTrue();
+    }
+
+    @Test
+    void overrideCanSwitchFlagsOff() {
+        OutboundHttpProperties properties = bind(Map.of("outbound.http.pools.gigachat.http2", "false"));
+
+        assertThat(properties.pool(OutboundHttpProperties.GIGACHAT).getHttp2()).isFalse();
+        assertThat(properties.pool(OutboundHttpProperties.GIGACHAT).getTrustAll()).isTrue();
+    }
+
+    @Test
+    void unknownPoolIsBuiltOnTopOfDefault() {
+        OutboundHttpProperties properties = bind(Map.of(
+                "outbound.http.pools.default.response-timeout", "45s",
+                "outbound.http.pools.weather.max-connections", "3"));
+
+        OutboundHttpProperties.Pool weather = properties.pool("weather");
+        OutboundHttpProperties.Pool other = properties.pool("other");
+
+        assertThat(weather.getMaxConnections()).isEqualTo(3);
+        assertThat(weather.getResponseTimeout()).isEqualTo(Duration.ofSeconds(45));
+        assertThat(other.getMaxConnections()).isEqualTo(20);
+        assertThat(other.getTrustAll()).isFalse();
+    }
+
+    @Test
+    void resolvedPoolDoesNotChangeBuiltInValues() {
+        OutboundHttpProperties properties = bind(Map.of());
+
+        properties.pool(OutboundHttpProperties.TAVILY).setMaxConnections(1);
+
+        assertThat(properties.pool(OutboundHttpProperties.TAVILY).getMaxConnections()).isEqualTo(10);
+    }
+}
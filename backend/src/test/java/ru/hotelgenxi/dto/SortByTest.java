@@ -0,0 +1,40 @@
+package ru.hotelgenxi.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortByTest {
+
+    private static final HotelSearchResult CHEAP = HotelSearchResult.builder()
+            .id("cheap").pricePerNight(8000.0).rating(4.1).stars(3).build();
+    private static final HotelSearchResult MIDDLE = HotelSearchResult.builder()
+            .id("middle").pricePerNight(15000.0).rating(4.8).stars(5).build();
+    private static final HotelSearchResult EXPENSIVE = HotelSearchResult.builder()
+            .id("expensive").pricePerNight(40000.0).rating(4.5).stars(4).build();
+    private static final HotelSearchResult UNKNOWN = HotelSearchResult.builder().id("unknown").build();
+
+    private static List<String> sorted(SortBy sortBy) {
+        return List.of(UNKNOWN, EXPENSIVE, CHEAP, MIDDLE).stream()
+                .sorted(sortBy.comparator())
+                .map(HotelSearchResult::getId)
+                .toList();
+    }
+
+    @Test
+    void comparatorFollowsSortDirection() {
+        assertThat(sorted(SortBy.PRICE_ASC)).containsExactly("cheap", "middle", "expensive", "unknown");
+        assertThat(sorted(SortBy.RATING_DESC)).containsExactly("middle", "expensive", "cheap", "unknown");
+        assertThat(sorted(SortBy.STARS_DESC)).containsExactly("middle", "expensive", "cheap", "unknown");
+    }
+
+    @Test
+    void describesQdrantOrderBy() {
+        assertThat(SortBy.PRICE_ASC.field()).isEqualTo("price_per_night");
+        assertThat(SortBy.PRICE_ASC.ascending()).isTrue();
+        assertThat(SortBy.STARS_DESC.integer()).isTrue();
+        assertThat(SortBy.RATING_DESC.integer()).isFalse();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatAdmissionControllerTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final Deque<Runnable> running = new ArrayDeque<>();
+    private ChatAdmissionController admission;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Задачи не исполняются сразу: тест сам решает, когда запрос «завершился»
+        AgentExecutor executor = new AgentExecutor(new MockEnvironment(), registry) {
+            @Override
+            public void execute(Workload workload, String sessionId, Runnable task) {
+                running.addLast(task);
+            }
+        };
+        admission = new ChatAdmissionController(new GigaChatStreamRegistry(registry, 300), executor, registry,
+                1, 3, Duration.ofMinutes(1), 5, Duration.ofHours(1));
+    }
+
+    private ChatAdmissionController.Decision submit(String sessionId, String name) {
+        return admission.submit(sessionId, () -> started.add(name), () -> started.add("timeout:" + name));
+    }
+
+    private void finishRunning() {
+        running.pollFirst().run();
+    }
+
+    @Test
+    void queuedSessionsAreServedRoundRobin() {
+        assertThat(submit("a", "a1")).isEqualTo(ChatAdmissionController.Decision.STARTED);
+        assertThat(submit("a", "a2")).isEqualTo(ChatAdmissionController.Decision.QUEUED);
+        assertThat(submit("a", "a3")).isEqualTo(ChatAdmissionController.Decision.QUEUED);
+        assertThat(submit("b", "b1")).isEqualTo(ChatAdmissionController.Decision.QUEUED);
+
+        for (int i = 0; i < 4; i++) {
+            finishRunning();
+        }
+
+        // b1 не ждёт, пока выполнятся все запросы сессии a
+        assertThat(started).containsExactly("a1", "a2", "b1", "a3");
+        assertThat(admission.inFlight()).isEqualTo(0);
+        assertThat(admission.queued()).isEqualTo(0);
+    }
+
+    @Test
+    void fullQueueRejectsWithBusy() {
+        submit("a", "a1");
+        submit("b", "b1");
+        submit("c", "c1");
+        submit("d", "d1");
+
+        assertThat(submit("e", "e1")).isEqualTo(ChatAdmissionController.Decision.BUSY);
+        assertThat(admission.queued()).isEqualTo(3);
+    }
+
+    @Test
+    void sessionOverItsBurstIsRateLimited() {
+        for (int i = 0; i < 5; i++) {
+            submit("a", "a" + i);
+            finishRunning();
+        }
+
+        assertThat(submit("a", "a5")).isEqualTo(ChatAdmissionController.Decision.RATE_LIMITED);
+        assertThat(submit("b", "b1")).isEqualTo(ChatAdmissionController.Decision.STARTED);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationMemoryTest {
+
+    // ~34 токена на реплику из 100 символов
+    private static String turn(char c) {
+        return String.valueOf(c).repeat(100);
+    }
+
+    @Test
+    void keepsWholeTurnsWithinBudget() {
+        ConversationMemory memory = new ConversationMemory(1000, 300, 100, Duration.ofMinutes(30));
+
+        memory.append("s1", "Отели в Сочи", "Вот три отеля");
+
+        assertThat(memory.hasHistory("s1")).isTrue();
+        assertThat(memory.hasHistory("s2")).isFalse();
+        assertThat(memory.context("s1")).containsExactly(
+                new ConversationMemory.Message(ConversationMemory.ROLE_USER, "Отели в Сочи"),
+                new ConversationMemory.Message(ConversationMemory.ROLE_ASSISTANT, "Вот три отеля"));
+    }
+
+    @Test
+    void ignoresIncompleteTurns() {
+        ConversationMemory memory = new ConversationMemory(1000, 300, 100, Duration.ofMinutes(30));
+
+        memory.append("s1", "Вопрос", " ");
+        memory.append(null, "Вопрос", "Ответ");
+
+        assertThat(memory.hasHistory("s1")).isFalse();
+        assertThat(memory.context(null)).isEmpty();
+    }
+
+    @Test
+    void foldsOldTurnsIntoSummaryDownToHalfBudget() {
+        ConversationMemory memory = new ConversationMemory(100, 300, 100, Duration.ofMinutes(30));
+
+        memory.append("s1", turn('a'), turn('b'));
+        memory.append("s1", turn('c'), turn('d'));
+
+        List<ConversationMemory.Message> context = memory.context("s1");
+
+        // Третья реплика: 3 × 34 > 100 → старые уходят в сводку, пока не останется ≤ 50 токенов
+        assertThat(context).hasSize(3);
+        ConversationMemory.Message summary = context.get(0);
+        assertThat(summary.role()).isEqualTo(ConversationMemory.ROLE_SYSTEM);
+        assertThat(summary.content()).startsWith("Краткое содержание начала диалога:\nПользователь: aaa");
+        assertThat(summary.content()).endsWith("\nАссистент: " + turn('b'));
+        assertThat(context.subList(1, 3)).containsExactly(
+                new ConversationMemory.Message(ConversationMemory.ROLE_USER, turn('c')),
+                new ConversationMemory.Message(ConversationMemory.ROLE_ASSISTANT, turn('d')));
+    }
+
+    @Test
+    void summaryDropsOldestLinesOverItsBudget() {
+        ConversationMemory memory = new ConversationMemory(40, 80, 100, Duration.ofMinutes(30));
+
+        memory.append("s1", turn('a'), turn('b'));
+        memory.append("s1", turn('c'), turn('d'));
+        memory.append("s1", turn('e'), turn('f'));
+
+        String summary = memory.context("s1").get(0).content();
+
+        assertThat(summary).contains("Ассистент: ddd");
+        assertThat(summary).contains("Пользователь: eee");
+        assertThat(summary.contains("aaa")).isFalse();
+    }
+
+    @Test
+    void summaryKeepsFirstSentenceOfLongTurn() {
+        ConversationMemory memory = new ConversationMemory(20, 300, 100, Duration.ofMinutes(30));
+
+        memory.append("s1", "Подбери отель у моря в Турции.   Бюджет до ста тысяч, двое взрослых", "Готово");
+
+        assertThat(memory.context("s1").get(0).content())
+                .endsWith("Пользователь: Подбери отель у моря в Турции.…");
+    }
+}
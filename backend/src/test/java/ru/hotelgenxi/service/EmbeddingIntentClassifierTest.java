@@ -0,0 +1,96 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import ru.hotelgenxi.service.IntentRouter.Intent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddingIntentClassifierTest {
+
+    private static final String PHRASES = """
+            # размеченные фразы
+            HOTEL_SEARCH: найди отель у моря
+            HOTEL_SEARCH: отель с бассейном
+            RESEARCH: какая погода в Анталии
+            GENERAL: привет
+            """;
+
+    private static final IntentRouter.Classification NO_KEYWORDS = new IntentRouter.Classification(Map.of(), Set.of());
+    private static final IntentRouter.Classification RESEARCH_KEYWORDS =
+            new IntentRouter.Classification(Map.of(Intent.RESEARCH, 1.0), Set.of());
+
+    private static LocalEmbeddingService embeddings;
+
+    @BeforeAll
+    static void fakeEmbeddings() {
+        // Детерминированные «эмбеддинги»: по оси на тему (модель грузится один раз на класс)
+        embeddings = new LocalEmbeddingService() {
+            @Override
+            public List<Double> getEmbedding(String text) {
+                String lower = text.toLowerCase();
+                return List.of(lower.contains("отел") ? 1.0 : 0.0,
+                        lower.contains("погод") ? 1.0 : 0.0,
+                        lower.contains("привет") ? 1.0 : 0.0);
+            }
+        };
+    }
+
+    private EmbeddingIntentClassifier classifier(String phrases, boolean enabled) {
+        Resource resource = new ByteArrayResource(phrases.getBytes(StandardCharsets.UTF_8));
+        EmbeddingIntentClassifier classifier = new EmbeddingIntentClassifier(embeddings, new SimpleMeterRegistry(),
+                resource, enabled, 0.45, 0.04);
+        classifier.init();
+        return classifier;
+    }
+
+    @Test
+    void confidentQueryGoesToNearestCentroid() {
+        EmbeddingIntentClassifier.Decision decision = classifier(PHRASES, true).decide("Подбери отель в Кемере", NO_KEYWORDS);
+
+        assertThat(decision.intent()).isEqualTo(Intent.HOTEL_SEARCH);
+        assertThat(decision.source()).isEqualTo(EmbeddingIntentClassifier.SOURCE_EMBEDDING);
+        assertThat(decision.confidence()).isGreaterThan(0.99);
+        // Эмбеддинг запроса отдаётся как есть — для поиска и кеша ответов
+        assertThat(decision.embedding()).isEqualTo(List.of(1.0, 0.0, 0.0));
+    }
+
+    @Test
+    void smallMarginFallsBackToKeywords() {
+        EmbeddingIntentClassifier.Decision decision = classifier(PHRASES, true)
+                .decide("отель и погода", RESEARCH_KEYWORDS);
+
+        assertThat(decision.intent()).isEqualTo(Intent.RESEARCH);
+        assertThat(decision.source()).isEqualTo(EmbeddingIntentClassifier.SOURCE_KEYWORDS);
+        assertThat(decision.margin()).isLessThan(0.04);
+        assertThat(decision.embedding()).isEqualTo(List.of(1.0, 1.0, 0.0));
+    }
+
+    @Test
+    void lowConfidenceFallsBackToKeywords() {
+        EmbeddingIntentClassifier.Decision decision = classifier(PHRASES, true).decide("как дела", NO_KEYWORDS);
+
+        assertThat(decision.intent()).isEqualTo(Intent.GENERAL);
+        assertThat(decision.source()).isEqualTo(EmbeddingIntentClassifier.SOURCE_KEYWORDS);
+    }
+
+    @Test
+    void disabledOrBrokenClassifierUsesKeywordsWithoutEmbedding() {
+        EmbeddingIntentClassifier.Decision disabled = classifier(PHRASES, false).decide("отель", RESEARCH_KEYWORDS);
+        EmbeddingIntentClassifier.Decision broken = classifier("UNKNOWN: отель\n" + PHRASES, true)
+                .decide("отель", NO_KEYWORDS);
+
+        assertThat(disabled.intent()).isEqualTo(Intent.RESEARCH);
+        assertThat(disabled.embedding()).isEmpty();
+        assertThat(broken.source()).isEqualTo(EmbeddingIntentClassifier.SOURCE_KEYWORDS);
+        assertThat(broken.embedding()).isEmpty();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import ru.hotelgenxi.dto.HotelFilters;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTest {
+
+    private static FacetIndex facets;
+
+    @BeforeAll
+    static void buildFromCatalog() {
+        HotelCatalog catalog = new HotelCatalog(new ClassPathResource("facets-catalog.json"));
+        catalog.load();
+        facets = new FacetIndex(catalog, new ReviewIndex(catalog), new int[]{10000, 20000, 30000, 40000});
+    }
+
+    @Test
+    void countsWholeCatalogWithoutFilters() {
+        FacetIndex.Facets all = facets.count(null);
+
+        assertThat(all.total()).isEqualTo(4);
+        assertThat(all.countries()).isEqualTo(Map.of("Турция", 2, "Египет", 1, "Россия", 1));
+        assertThat(all.cities()).isEqualTo(Map.of("Кемер", 1, "Сиде", 1, "Хургада", 1, "Сочи", 1));
+        assertThat(all.stars()).isEqualTo(Map.of(3, 1, 4, 1, 5, 2));
+        assertThat(all.amenities()).isEqualTo(Map.of(
+                FacetIndex.KIDS_CLUB, 2, FacetIndex.ALL_INCLUSIVE, 2, FacetIndex.AQUAPARK, 2));
+        // Пустой диапазон 30000-40000 в ответ не попадает
+        assertThat(all.priceBuckets()).isEqualTo(Map.of("<10000", 1, "10000-20000", 1, "20000-30000", 1, "40000+", 1));
+    }
+
+    @Test
+    void countryFilterIgnoresCase() {
+        FacetIndex.Facets turkey = facets.count(HotelFilters.builder().country("турция").build());
+
+        assertThat(turkey.total()).isEqualTo(2);
+        assertThat(turkey.cities()).isEqualTo(Map.of("Кемер", 1, "Сиде", 1));
+        assertThat(turkey.stars()).isEqualTo(Map.of(4, 1, 5, 1));
+    }
+
+    @Test
+    void filtersAreIntersected() {
+        FacetIndex.Facets matched = facets.count(HotelFilters.builder().minStars(5).kidsClub(true).build());
+
+        assertThat(matched.total()).isEqualTo(2);
+        assertThat(matched.countries()).isEqualTo(Map.of("Турция", 1, "Египет", 1));
+        assertThat(matched.amenities()).isEqualTo(Map.of(
+                FacetIndex.KIDS_CLUB, 2, FacetIndex.ALL_INCLUSIVE, 1, FacetIndex.AQUAPARK, 1));
+    }
+
+    @Test
+    void rangesIncludeBothBoundsAndSkipHotelsWithoutValue() {
+        assertThat(facets.count(HotelFilters.builder().minPrice(12000).maxPrice(25000).build()).total()).isEqualTo(2);
+        assertThat(facets.count(HotelFilters.builder().maxPrice(7999).build()).total()).isEqualTo(0);
+        // У отеля в Сочи в описании нет расстояния до пляжа и рейтинга
+        assertThat(facets.count(HotelFilters.builder().maxBeachDistanceM(300).build()).cities())
+                .isEqualTo(Map.of("Кемер", 1, "Сиде", 1));
+        assertThat(facets.count(HotelFilters.builder().minReviewScore(4.5).build()).cities())
+                .isEqualTo(Map.of("Кемер", 1, "Хургада", 1));
+    }
+
+    @Test
+    void excludedHotelsAreNotCounted() {
+        FacetIndex.Facets rest = facets.count(HotelFilters.builder().excludedHotelIds(Set.of("h2", "unknown")).build());
+
+        assertThat(rest.total()).isEqualTo(3);
+        assertThat(rest.cities()).isEqualTo(Map.of("Кемер", 1, "Хургада", 1, "Сочи", 1));
+    }
+}
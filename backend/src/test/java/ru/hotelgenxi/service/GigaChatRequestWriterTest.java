@@ -0,0 +1,89 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GigaChatRequestWriterTest {
+
+    private final GigaChatRequestWriter writer = new GigaChatRequestWriter();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonNode render(BodyInserter<Object, ReactiveHttpOutputMessage> inserter) throws Exception {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, "/chat/completions");
+        inserter.insert(request, null).block();
+
+        String body = request.getBodyAsString().block();
+        assertThat(request.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(request.getHeaders().getContentLength()).isEqualTo((long) body.getBytes("UTF-8").length);
+        return mapper.readTree(body);
+    }
+
+    @Test
+    void chatStreamEscapesUserMessage() throws Exception {
+        String message = "Отель \"Москва\"\n\tс табом \\ и \u0001";
+
+        JsonNode body = render(writer.chatStream("Ты помощник", message));
+
+        assertThat(body.get("model").asText()).isEqualTo("GigaChat-2");
+        assertThat(body.get("stream").asBoolean()).isTrue();
+        JsonNode messages = body.get("messages");
+        assertThat(messages.size()).isEqualTo(2);
+        assertThat(messages.get(0).get("role").asText()).isEqualTo("system");
+        assertThat(messages.get(0).get("content").asText()).isEqualTo("Ты помощник");
+        assertThat(messages.get(1).get("role").asText()).isEqualTo("user");
+        assertThat(messages.get(1).get("content").asText()).isEqualTo(message);
+    }
+
+    @Test
+    void historySummaryGoesIntoSystemPrompt() throws Exception {
+        List<ConversationMemory.Message> history = List.of(
+                new ConversationMemory.Message(ConversationMemory.ROLE_SYSTEM, "Сводка"),
+                new ConversationMemory.Message(ConversationMemory.ROLE_USER, "Отели в Сочи"),
+                new ConversationMemory.Message(ConversationMemory.ROLE_ASSISTANT, "Вот отели"));
+
+        JsonNode messages = render(writer.chatStream("Ты помощник", history, "А дешевле?")).get("messages");
+
+        assertThat(messages.size()).isEqualTo(4);
+        assertThat(messages.get(0).get("content").asText()).isEqualTo("Ты помощник\n\nСводка");
+        assertThat(messages.get(1).get("role").asText()).isEqualTo("user");
+        assertThat(messages.get(2).get("role").asText()).isEqualTo("assistant");
+        assertThat(messages.get(3).get("content").asText()).isEqualTo("А дешевле?");
+    }
+
+    @Test
+    void cachedPrefixIsReusedAcrossRequests() throws Exception {
+        render(writer.chatStream("Ты помощник", "Первый"));
+
+        JsonNode messages = render(writer.chatStream("Ты помощник", "Второй")).get("messages");
+
+        assertThat(messages.size()).isEqualTo(2);
+        assertThat(messages.get(1).get("content").asText()).isEqualTo("Второй");
+    }
+
+    @Test
+    void visionRequestsCarryFileId() throws Exception {
+        JsonNode attached = render(writer.visionWithAttachment("Опиши фото", "file-1"));
+
+        assertThat(attached.get("model").asText()).isEqualTo("GigaChat-Pro");
+        assertThat(attached.get("stream").asBoolean()).isFalse();
+        JsonNode message = attached.get("messages").get(0);
+        assertThat(message.get("content").asText()).isEqualTo("Опиши фото");
+        assertThat(message.get("attachments").get(0).asText()).isEqualTo("file-1");
+
+        JsonNode referenced = render(writer.visionWithFileReference("Опиши фото", "file-1"));
+
+        JsonNode inline = referenced.get("messages").get(0);
+        assertThat(inline.get("content").asText()).isEqualTo("Опиши фото (файл ID: file-1)");
+        assertThat(inline.has("attachments")).isFalse();
+    }
+}
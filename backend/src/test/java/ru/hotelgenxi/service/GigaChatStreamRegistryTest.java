@@ -0,0 +1,88 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GigaChatStreamRegistryTest {
+
+    private final GigaChatStreamRegistry registry = new GigaChatStreamRegistry(new SimpleMeterRegistry(), 300);
+
+    private static AtomicBoolean attachFlag(GigaChatStreamRegistry.ActiveStream stream) {
+        AtomicBoolean disposed = new AtomicBoolean();
+        stream.attach(() -> disposed.set(true));
+        return disposed;
+    }
+
+    @Test
+    void newStreamSupersedesPreviousOfSameSession() {
+        GigaChatStreamRegistry.ActiveStream first = registry.open("s1");
+        AtomicBoolean firstDisposed = attachFlag(first);
+        GigaChatStreamRegistry.ActiveStream other = registry.open("s2");
+
+        GigaChatStreamRegistry.ActiveStream second = registry.open("s1");
+
+        assertThat(first.isCancelled()).isTrue();
+        assertThat(firstDisposed.get()).isTrue();
+        assertThat(second.isCancelled()).isFalse();
+        assertThat(other.isCancelled()).isFalse();
+        assertThat(registry.activeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void stopCancelsOnceAndLateAttachIsDisposed() {
+        GigaChatStreamRegistry.ActiveStream stream = registry.open("s1");
+
+        assertThat(registry.cancel("s1", GigaChatStreamRegistry.CancelReason.STOPPED)).isTrue();
+        assertThat(registry.cancel(stream, GigaChatStreamRegistry.CancelReason.STOPPED)).isFalse();
+        assertThat(registry.cancel("s1", GigaChatStreamRegistry.CancelReason.STOPPED)).isFalse();
+
+        // Подписка, пришедшая после отмены, сразу освобождается
+        assertThat(attachFlag(stream).get()).isTrue();
+        assertThat(registry.activeCount()).isEqualTo(0);
+    }
+
+    @Test
+    void disconnectCancelsSessionStream() {
+        GigaChatStreamRegistry.ActiveStream stream = registry.open("s1");
+
+        registry.onSessionDisconnect(new SessionDisconnectEvent(this, MessageBuilder.withPayload(new byte[0]).build(),
+                "s1", CloseStatus.NORMAL));
+
+        assertThat(stream.isCancelled()).isTrue();
+        assertThat(registry.activeCount()).isEqualTo(0);
+    }
+
+    @Test
+    void whenIdleWaitsForActiveStreamToFinish() {
+        AtomicInteger idle = new AtomicInteger();
+        registry.whenIdle("s1", idle::incrementAndGet);
+        assertThat(idle.get()).isEqualTo(1);
+
+        GigaChatStreamRegistry.ActiveStream stream = registry.open("s1");
+        registry.whenIdle("s1", idle::incrementAndGet);
+        assertThat(idle.get()).isEqualTo(1);
+
+        registry.finish(stream);
+        registry.finish(stream);
+
+        assertThat(idle.get()).isEqualTo(2);
+        assertThat(registry.activeCount()).isEqualTo(0);
+    }
+
+    @Test
+    void streamWithoutSessionIsNotTracked() {
+        GigaChatStreamRegistry.ActiveStream stream = registry.open(null);
+
+        assertThat(registry.activeCount()).isEqualTo(0);
+        assertThat(registry.cancel((String) null, GigaChatStreamRegistry.CancelReason.STOPPED)).isFalse();
+        assertThat(stream.getSessionId()).isNull();
+    }
+}
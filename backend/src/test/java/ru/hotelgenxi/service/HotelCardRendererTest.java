@@ -0,0 +1,74 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotelCardRendererTest {
+
+    private static HotelCatalog catalog;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HotelCardRenderer renderer = new HotelCardRenderer(catalog, new SimpleMeterRegistry(), 100);
+
+    @BeforeAll
+    static void loadCatalog() {
+        catalog = new HotelCatalog(new ClassPathResource("facets-catalog.json"));
+        catalog.load();
+    }
+
+    private static HotelSearchResult found(String id, Double similarity) {
+        return catalog.hotel(id).toBuilder().similarity(similarity).build();
+    }
+
+    @Test
+    void cardJsonIsHotelWithQuerySimilarity() throws Exception {
+        JsonNode card = mapper.readTree(renderer.cardJson(found("h1", 0.87)));
+
+        assertThat(card.get("id").asText()).isEqualTo("h1");
+        assertThat(card.get("name").asText()).isEqualTo("Kemer Family Club");
+        assertThat(card.get("similarity").asDouble()).isEqualTo(0.87);
+        // null-поля во фрагмент не пишутся
+        assertThat(card.has("imageUrl")).isFalse();
+    }
+
+    @Test
+    void cachedFragmentTakesSimilarityOfEachQuery() throws Exception {
+        renderer.cardJson(found("h2", 0.9));
+
+        JsonNode again = mapper.readTree(renderer.cardJson(found("h2", 0.4)));
+        JsonNode withoutScore = mapper.readTree(renderer.cardJson(found("h2", null)));
+
+        assertThat(again.get("similarity").asDouble()).isEqualTo(0.4);
+        assertThat(withoutScore.has("similarity")).isFalse();
+        assertThat(withoutScore.get("city").asText()).isEqualTo("Сиде");
+    }
+
+    @Test
+    void hotelWithoutIdIsRenderedWithoutCache() throws Exception {
+        HotelSearchResult adHoc = HotelSearchResult.builder().name("Новый отель").similarity(0.5).build();
+
+        JsonNode card = mapper.readTree(renderer.cardJson(adHoc));
+
+        assertThat(card.get("name").asText()).isEqualTo("Новый отель");
+        assertThat(card.get("similarity").asDouble()).isEqualTo(0.5);
+    }
+
+    @Test
+    void cardTextListsPriceAndAmenities() {
+        String text = renderer.cardText(found("h1", 0.9));
+
+        assertThat(text).startsWith("🏨 Kemer Family Club\n");
+        assertThat(text).contains("📍 Кемер, Турция\n");
+        assertThat(text).contains("💰 12000 ₽/ночь\n");
+        assertThat(text).contains("🍽️ All Inclusive\n");
+        assertThat(text.contains("Аквапарк")).isFalse();
+        assertThat(text).endsWith("\nДо пляжа 50 метров. Рейтинг отеля 4.8.");
+    }
+}
@@ -0,0 +1,54 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImagePreprocessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(256, 0.85f, 1_000_000);
+
+    private Path png(String name, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Path file = tempDir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    void downscalesToMaxDimensionAndEncodesJpeg() throws Exception {
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(png("big.png", 800, 400));
+
+        assertThat(prepared).isNotNull();
+        assertThat(prepared.width()).isEqualTo(256);
+        assertThat(prepared.height()).isEqualTo(128);
+        BufferedImage jpeg = ImageIO.read(new ByteArrayInputStream(prepared.jpeg()));
+        assertThat(jpeg.getWidth()).isEqualTo(256);
+        assertThat(prepared.jpeg()[0]).isEqualTo((byte) 0xFF);
+        assertThat(prepared.jpeg()[1]).isEqualTo((byte) 0xD8);
+    }
+
+    @Test
+    void smallImageKeepsItsSize() throws Exception {
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(png("small.png", 100, 60));
+
+        assertThat(prepared.width()).isEqualTo(100);
+        assertThat(prepared.height()).isEqualTo(60);
+    }
+
+    @Test
+    void rejectsTooManyPixelsAndNonImages() throws Exception {
+        assertThat(preprocessor.prepare(png("huge.png", 2000, 600))).isNull();
+        assertThat(preprocessor.prepare(Files.writeString(tempDir.resolve("notes.txt"), "не картинка"))).isNull();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationGazetteerTest {
+
+    private static LocationGazetteer gazetteer;
+
+    @BeforeAll
+    static void buildFromCatalog() {
+        HotelCatalog catalog = new HotelCatalog(new ClassPathResource("hotels_raw.json"));
+        catalog.load();
+        gazetteer = new LocationGazetteer(catalog, true, 300);
+    }
+
+    @Test
+    void findsCountryInAnyCase() {
+        assertThat(gazetteer.find("отели в Турции")).isEqualTo(new LocationGazetteer.Location("Турция", null));
+        assertThat(gazetteer.find("отдых в эмиратах")).isEqualTo(new LocationGazetteer.Location("ОАЭ", null));
+    }
+
+    @Test
+    void adjectiveStemMatchesStartOfWord() {
+        assertThat(gazetteer.find("турецкие отели с аквапарком")).isEqualTo(new LocationGazetteer.Location("Турция", null));
+        assertThat(gazetteer.find("хочу на турецкий курорт")).isEqualTo(new LocationGazetteer.Location("Турция", null));
+        // Основа засчитывается только с начала слова
+        assertThat(gazetteer.find("неттурецкий").isEmpty()).isTrue();
+    }
+
+    @Test
+    void cityBringsItsCountry() {
+        assertThat(gazetteer.find("хочу в Анталью у моря"))
+                .isEqualTo(new LocationGazetteer.Location("Турция", "Анталья"));
+        assertThat(gazetteer.find("что-нибудь в Сиде"))
+                .isEqualTo(new LocationGazetteer.Location("Турция", "Сиде"));
+    }
+
+    @Test
+    void matchesWholeWordsOnly() {
+        assertThat(gazetteer.find("хочу сидеть у бассейна").isEmpty()).isTrue();
+        assertThat(gazetteer.find("сочинение про лето").isEmpty()).isTrue();
+    }
+
+    @Test
+    void correctsTyposInLongWords() {
+        assertThat(gazetteer.find("отель в антолии").city()).isEqualTo("Анталья");
+        assertThat(gazetteer.find("хургода с аквапарком").city()).isEqualTo("Хургада");
+    }
+
+    @Test
+    void inflectBuildsCaseFormsByEnding() {
+        assertThat(LocationGazetteer.inflect("Турция")).containsExactly("турция", "турции", "турцию", "турцией", "турцие");
+        assertThat(LocationGazetteer.inflect("Анапа"))
+                .containsExactly("анапа", "анапы", "анапи", "анапу", "анапе", "анапой");
+        assertThat(LocationGazetteer.inflect("Дубай")).containsExactly("дубай", "дубая", "дубае", "дубаю", "дубаем");
+        assertThat(LocationGazetteer.inflect("Кемер")).containsExactly("кемер", "кемера", "кемере", "кемеру", "кемером");
+    }
+
+    @Test
+    void inflectLeavesIndeclinableNamesAsIs() {
+        assertThat(LocationGazetteer.inflect("Сочи")).isEqualTo(List.of("сочи"));
+        assertThat(LocationGazetteer.inflect("Сиде")).isEqualTo(List.of("сиде"));
+        assertThat(LocationGazetteer.inflect("ОАЭ")).isEqualTo(List.of("оаэ"));
+        assertThat(LocationGazetteer.inflect("Belek")).isEqualTo(List.of("belek"));
+    }
+
+    @Test
+    void shortPlaceNamesAreNotFuzzyTargets() {
+        // «сиде», «сочи», «ялта» короче порога: одна правка от них — это уже другие слова
+        assertThat(gazetteer.find("сидел дома весь отпуск").isEmpty()).isTrue();
+        assertThat(gazetteer.find("сочный арбуз").isEmpty()).isTrue();
+        assertThat(gazetteer.find("ялтаа").isEmpty()).isTrue();
+        // Точные формы коротких названий по-прежнему находятся
+        assertThat(gazetteer.find("в ялте").city()).isEqualTo("Ялта");
+    }
+}
@@ -0,0 +1,68 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QdrantServiceTest {
+
+    private static List<Double> values(Double... values) {
+        return Arrays.asList(values);
+    }
+
+    @Test
+    void cursorRoundTripsThroughItsText() {
+        QdrantService.SortCursor cursor = new QdrantService.SortCursor(12500.0, Set.of(7L));
+
+        QdrantService.SortCursor decoded = QdrantService.SortCursor.decode(cursor.encode());
+
+        assertThat(decoded.value()).isEqualTo(12500.0);
+        assertThat(decoded.tied()).containsExactly(7L);
+        // Курсор уходит в query string — только URL-safe символы без '='
+        assertThat(cursor.encode().matches("[A-Za-z0-9_-]+")).isTrue();
+    }
+
+    @Test
+    void blankCursorIsFirstPageAndGarbageIsRejected() {
+        assertThat(QdrantService.SortCursor.decode(null)).isNull();
+        assertThat(QdrantService.SortCursor.decode(" ")).isNull();
+        assertThatThrownBy(() -> QdrantService.SortCursor.decode("не-base64!"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QdrantService.SortCursor.decode("MTIz"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nextCursorKeepsEveryPointTiedWithLastValue() {
+        QdrantService.SortCursor next = QdrantService.SortCursor.after(null,
+                List.of(1L, 2L, 3L, 4L), values(100.0, 200.0, 200.0, 200.0));
+
+        assertThat(next.value()).isEqualTo(200.0);
+        assertThat(next.tied()).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void longTieAccumulatesPointsFromPreviousPages() {
+        QdrantService.SortCursor start = new QdrantService.SortCursor(200.0, Set.of(2L, 3L));
+
+        QdrantService.SortCursor stillTied = QdrantService.SortCursor.after(start,
+                List.of(5L, 6L), values(200.0, 200.0));
+        QdrantService.SortCursor moved = QdrantService.SortCursor.after(start,
+                List.of(5L, 6L), values(200.0, 300.0));
+
+        assertThat(stillTied.tied()).containsExactlyInAnyOrder(2L, 3L, 5L, 6L);
+        assertThat(moved.value()).isEqualTo(300.0);
+        assertThat(moved.tied()).containsExactly(6L);
+    }
+
+    @Test
+    void lastHotelWithoutValueEndsPaging() {
+        assertThat(QdrantService.SortCursor.after(null, List.of(1L, 2L), values(100.0, null))).isNull();
+        assertThat(QdrantService.SortCursor.after(null, List.of(), List.of())).isNull();
+    }
+}
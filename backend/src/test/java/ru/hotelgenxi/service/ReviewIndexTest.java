@@ -0,0 +1,52 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import ru.hotelgenxi.dto.ReviewDTO;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReviewIndexTest {
+
+    private static ReviewIndex reviews;
+
+    @BeforeAll
+    static void buildFromCatalog() {
+        HotelCatalog catalog = new HotelCatalog(new ClassPathResource("facets-catalog.json"));
+        catalog.load();
+        reviews = new ReviewIndex(catalog);
+    }
+
+    @Test
+    void wordMatchesReviewWordsItStarts() {
+        assertThat(reviews.hotelsMentioning("шум")).isEqualTo(Set.of("h1", "h3"));
+        assertThat(reviews.hotelsMentioning("шумно")).isEqualTo(Set.of("h1"));
+        assertThat(reviews.hotelsMentioning("тих")).isEqualTo(Set.of("h2"));
+        assertThat(reviews.hotelsMentioning("шумный")).isEmpty();
+        // Совпадение только с начала слова
+        assertThat(reviews.hotelsMentioning("искотек")).isEmpty();
+    }
+
+    @Test
+    void phraseRequiresEveryWordIgnoringCase() {
+        assertThat(reviews.hotelsMentioning("ШУМ, дискотеки")).isEqualTo(Set.of("h3"));
+        assertThat(reviews.hotelsMentioning("шум тихо")).isEmpty();
+        assertThat(reviews.hotelsMentioning(" ,")).isEmpty();
+    }
+
+    @Test
+    void reviewsTextJoinsTextsLineByLine() {
+        List<ReviewDTO> list = List.of(
+                ReviewDTO.builder().text("Чисто").build(),
+                ReviewDTO.builder().rating(5).build(),
+                ReviewDTO.builder().text("Тихо").build());
+
+        assertThat(ReviewIndex.reviewsText(list)).isEqualTo("Чисто\nТихо");
+        assertThat(ReviewIndex.reviewsText(List.of())).isNull();
+        assertThat(ReviewIndex.reviewsText(null)).isNull();
+    }
+}
@@ -0,0 +1,114 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import ru.hotelgenxi.dto.HotelFilters;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCursorCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path catalogFile;
+    private HotelCatalog catalog;
+    private SearchCursorCache cursors;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Копия каталога во временном файле — чтобы проверить перезагрузку
+        catalogFile = tempDir.resolve("catalog.json");
+        try (InputStream source = new ClassPathResource("facets-catalog.json").getInputStream()) {
+            Files.copy(source, catalogFile);
+        }
+        catalog = new HotelCatalog(new FileSystemResource(catalogFile));
+        catalog.load();
+        cursors = new SearchCursorCache(catalog, new SimpleMeterRegistry(), Duration.ofMinutes(15), 100);
+    }
+
+    private static HotelSearchResult ranked(String id, double similarity) {
+        return HotelSearchResult.builder().id(id).similarity(similarity).build();
+    }
+
+    private static List<String> ids(SearchCursorCache.Page page) {
+        return page.hotels().stream().map(HotelSearchResult::getId).toList();
+    }
+
+    private void storeAll(int shown) {
+        cursors.store("s1", "отели у моря",
+                List.of(ranked("h1", 0.9), ranked("h2", 0.8), ranked("h3", 0.7), ranked("h4", 0.6)), shown);
+    }
+
+    @Test
+    void pagesContinueAfterShownCandidates() {
+        storeAll(1);
+
+        SearchCursorCache.Page second = cursors.next("s1", 2, null);
+        SearchCursorCache.Page third = cursors.next("s1", 2, null);
+
+        assertThat(ids(second)).containsExactly("h2", "h3");
+        assertThat(second.hasMore()).isTrue();
+        assertThat(ids(third)).containsExactly("h4");
+        assertThat(third.hasMore()).isFalse();
+        assertThat(cursors.next("s1", 2, null).hotels()).isEmpty();
+    }
+
+    @Test
+    void pageCarriesCatalogHotelWithQdrantScore() {
+        storeAll(0);
+
+        HotelSearchResult first = cursors.next("s1", 1, null).hotels().get(0);
+
+        assertThat(first.getName()).isEqualTo("Kemer Family Club");
+        assertThat(first.getSimilarity()).isEqualTo(0.9);
+    }
+
+    @Test
+    void refineFiltersRemainingCandidatesLocally() {
+        storeAll(1);
+
+        SearchCursorCache.Page turkey = cursors.next("s1", 5, HotelFilters.builder().country("турция").build());
+
+        assertThat(ids(turkey)).containsExactly("h2");
+        // Отброшенные уточнением кандидаты тоже считаются просмотренными
+        assertThat(turkey.hasMore()).isFalse();
+    }
+
+    @Test
+    void noCursorWithoutStoreOrAfterReload() throws Exception {
+        assertThat(cursors.next("s1", 2, null)).isNull();
+        assertThat(cursors.hasCursor(null)).isFalse();
+
+        storeAll(1);
+        assertThat(cursors.hasCursor("s1")).isTrue();
+        Files.writeString(catalogFile, "\n", StandardOpenOption.APPEND);
+        catalog.load();
+
+        assertThat(cursors.next("s1", 2, null)).isNull();
+        assertThat(cursors.hasCursor("s1")).isFalse();
+    }
+
+    @Test
+    void matchesChecksSameConditionsAsQdrantFilter() {
+        HotelSearchResult kemer = catalog.hotel("h1");
+
+        assertThat(SearchCursorCache.matches(kemer, HotelFilters.builder()
+                .minStars(5).kidsClub(true).maxPrice(15000).maxBeachDistanceM(100).build())).isTrue();
+        assertThat(SearchCursorCache.matches(kemer, HotelFilters.builder().aquapark(true).build())).isFalse();
+        assertThat(SearchCursorCache.matches(catalog.hotel("h4"),
+                HotelFilters.builder().minReviewScore(4.0).build())).isFalse();
+    }
+}
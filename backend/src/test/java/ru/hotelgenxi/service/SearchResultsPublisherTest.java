@@ -0,0 +1,91 @@
+package ru.hotelgenxi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import ru.hotelgenxi.dto.HotelSearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultsPublisherTest {
+
+    private static HotelCatalog catalog;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> destinations = new ArrayList<>();
+    private final List<JsonNode> frames = new ArrayList<>();
+
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true) {
+        @Override
+        public void send(String destination, Message<?> message) {
+            destinations.add(destination);
+            try {
+                frames.add(mapper.readTree((byte[]) message.getPayload()));
+            } catch (Exception e) {
+                throw new AssertionError("Кадр не является JSON", e);
+            }
+        }
+    };
+
+    private final SearchResultsPublisher publisher = new SearchResultsPublisher(messagingTemplate,
+            new HotelCardRenderer(catalog, new SimpleMeterRegistry(), 100), false);
+
+    @BeforeAll
+    static void loadCatalog() {
+        catalog = new HotelCatalog(new ClassPathResource("facets-catalog.json"));
+        catalog.load();
+    }
+
+    private static HotelSearchResult found(String id, double similarity) {
+        return catalog.hotel(id).toBuilder().similarity(similarity).build();
+    }
+
+    @Test
+    void publishesWholeResultAsOneFrame() {
+        boolean sent = publisher.publish("Нашёл 2 отеля \"у моря\"",
+                List.of(found("h1", 0.9), found("h3", 0.7)), "Показать ещё?");
+
+        assertThat(sent).isTrue();
+        assertThat(destinations).containsExactly("/topic/messages");
+        JsonNode frame = frames.get(0);
+        assertThat(frame.get("type").asText()).isEqualTo(SearchResultsPublisher.TYPE);
+        assertThat(frame.get("sender").asText()).isEqualTo("assistant");
+        // Старый клиент пропускает кадр без content
+        assertThat(frame.has("content")).isFalse();
+        JsonNode results = frame.get("searchResults");
+        assertThat(results.get("header").asText()).isEqualTo("Нашёл 2 отеля \"у моря\"");
+        assertThat(results.get("footer").asText()).isEqualTo("Показать ещё?");
+        assertThat(results.get("cards").size()).isEqualTo(2);
+        assertThat(results.get("cards").get(1).get("id").asText()).isEqualTo("h3");
+        assertThat(results.get("cards").get(1).get("similarity").asDouble()).isEqualTo(0.7);
+    }
+
+    @Test
+    void emptyResultKeepsFrameValid() {
+        assertThat(publisher.publish("Ничего не нашёл", List.of(), null)).isTrue();
+
+        JsonNode results = frames.get(0).get("searchResults");
+        assertThat(results.get("cards").size()).isEqualTo(0);
+        assertThat(results.get("footer").isNull()).isTrue();
+    }
+
+    @Test
+    void hotelCardFrameMatchesChatMessageFormat() {
+        publisher.sendHotelCard(found("h2", 0.8), "Side Aqua Resort", true);
+
+        JsonNode frame = frames.get(0);
+        assertThat(frame.get("type").asText()).isEqualTo("hotel_card");
+        assertThat(frame.get("content").asText()).isEqualTo("Side Aqua Resort");
+        assertThat(frame.get("hotelData").get("id").asText()).isEqualTo("h2");
+        assertThat(frame.get("legacy").asBoolean()).isTrue();
+        assertThat(publisher.legacyFramesEnabled()).isFalse();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticAnswerCacheTest {
+
+    // Один и тот же вектор для всех вопросов: худший случай модели, различают только сущности
+    private static final List<Double> SAME_VECTOR = List.of(0.6, 0.8, 0.0);
+
+    private static LocationGazetteer gazetteer;
+
+    private SemanticAnswerCache cache;
+
+    @BeforeAll
+    static void buildGazetteer() {
+        HotelCatalog catalog = new HotelCatalog(new ClassPathResource("hotels_raw.json"));
+        catalog.load();
+        gazetteer = new LocationGazetteer(catalog, true, 300);
+    }
+
+    @BeforeEach
+    void newCache() {
+        cache = new SemanticAnswerCache(null, new SimpleMeterRegistry(), gazetteer,
+                100, Duration.ofHours(1), 0.92, Set.of());
+    }
+
+    private void remember(String question, String answer) {
+        cache.store(ask(question), question, answer);
+    }
+
+    private SemanticAnswerCache.Lookup ask(String question) {
+        return cache.lookup(SemanticAnswerCache.ROUTE_GENERAL, question, SAME_VECTOR);
+    }
+
+    @Test
+    void similarQuestionWithSameEntitiesIsHit() {
+        remember("Нужна ли виза в Турцию?", "Нет, до 60 дней без визы");
+
+        assertThat(ask("а виза в турцию нужна").answer()).isEqualTo("Нет, до 60 дней без визы");
+    }
+
+    @Test
+    void differentCountryIsMiss() {
+        remember("виза в Турцию", "Не нужна");
+
+        assertThat(ask("виза в Египет").isHit()).isFalse();
+        assertThat(ask("виза в ОАЭ").isHit()).isFalse();
+    }
+
+    @Test
+    void differentCityOfSameCountryIsMiss() {
+        remember("погода в Анталье в мае", "Около +25");
+
+        assertThat(ask("погода в Кемере в мае").isHit()).isFalse();
+    }
+
+    @Test
+    void placeAgainstNoPlaceIsMiss() {
+        remember("когда лучше ехать на море", "С июня по сентябрь");
+
+        assertThat(ask("когда лучше ехать на море в Таиланд").isHit()).isFalse();
+    }
+
+    @Test
+    void differentNumbersAreMiss() {
+        remember("сколько стоит отель в Сочи на 2 ночи", "От 8000 ₽");
+
+        assertThat(ask("сколько стоит отель в Сочи на 5 ночей").isHit()).isFalse();
+        assertThat(ask("сколько стоит отель в Сочи на 2 ночи?").isHit()).isTrue();
+    }
+
+    @Test
+    void decimalSeparatorDoesNotMatter() {
+        remember("отели с рейтингом 4.5 в Сиде", "Вот подборка");
+
+        assertThat(ask("отели с рейтингом 4,5 в Сиде").isHit()).isTrue();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpeculativeGateTest {
+
+    private final List<String> sent = new ArrayList<>();
+
+    @Test
+    void openGateEmitsImmediately() {
+        SpeculativeGate.OPEN.emit(() -> sent.add("a"));
+
+        assertThat(sent).containsExactly("a");
+        assertThat(SpeculativeGate.OPEN.isDiscarded()).isFalse();
+    }
+
+    @Test
+    void sharedOpenGateIgnoresOpenAndDiscard() {
+        AtomicInteger cancelled = new AtomicInteger();
+        SpeculativeGate.OPEN.onDiscard(cancelled::incrementAndGet);
+        SpeculativeGate.OPEN.discard();
+        SpeculativeGate.OPEN.open();
+        SpeculativeGate.OPEN.emit(() -> sent.add("still open"));
+
+        assertThat(sent).containsExactly("still open");
+        assertThat(cancelled.get()).isEqualTo(0);
+    }
+
+    @Test
+    void pendingGateHoldsOutputUntilOpenedThenKeepsOrder() {
+        SpeculativeGate gate = SpeculativeGate.pending();
+        gate.emit(() -> sent.add("first"));
+        gate.emit(() -> sent.add("second"));
+
+        assertThat(sent).isEmpty();
+
+        gate.open();
+        gate.emit(() -> sent.add("third"));
+
+        assertThat(sent).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void discardDropsOutputAndCancelsTheBranch() {
+        AtomicInteger cancelled = new AtomicInteger();
+        SpeculativeGate gate = SpeculativeGate.pending();
+        gate.onDiscard(cancelled::incrementAndGet);
+        gate.emit(() -> sent.add("held"));
+
+        gate.discard();
+        gate.emit(() -> sent.add("late"));
+        gate.open();
+        gate.discard();
+
+        assertThat(sent).isEmpty();
+        assertThat(gate.isDiscarded()).isTrue();
+        assertThat(cancelled.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelRegisteredAfterDiscardRunsAtOnce() {
+        AtomicInteger cancelled = new AtomicInteger();
+        SpeculativeGate gate = SpeculativeGate.pending();
+        gate.discard();
+
+        gate.onDiscard(cancelled::incrementAndGet);
+
+        assertThat(cancelled.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelIsNotRunForTheWinningBranch() {
+        AtomicInteger cancelled = new AtomicInteger();
+        SpeculativeGate gate = SpeculativeGate.pending();
+        gate.onDiscard(cancelled::incrementAndGet);
+
+        gate.open();
+        gate.discard();
+
+        assertThat(gate.isDiscarded()).isFalse();
+        assertThat(cancelled.get()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenProviderTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * OAuth-эндпоинт: считает запросы и может придержать ответ
+     */
+    private static final class FakeOAuth extends RestTemplate {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+        private volatile String response = "{\"access_token\":\"token-1\",\"expires_in\":1800}";
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                              Class<T> responseType, Object... uriVariables) {
+            calls.incrementAndGet();
+            if (blocking) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return (ResponseEntity<T>) ResponseEntity.ok(response);
+        }
+    }
+
+    private TokenProvider provider(FakeOAuth oauth, Path storeFile) {
+        return new TokenProvider("test", oauth, "https://oauth.test", "client", "secret", "SCOPE", null,
+                Duration.ofMinutes(5), storeFile, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void concurrentCallersShareOneRequest() throws Exception {
+        FakeOAuth oauth = new FakeOAuth();
+        oauth.blocking = true;
+        TokenProvider tokens = provider(oauth, null);
+
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(CompletableFuture.supplyAsync(tokens::getAccessToken));
+        }
+        Thread.sleep(200);
+        oauth.release.countDown();
+
+        for (CompletableFuture<String> caller : callers) {
+            assertThat(caller.get(5, TimeUnit.SECONDS)).isEqualTo("token-1");
+        }
+        assertThat(oauth.calls.get()).isEqualTo(1);
+        tokens.shutdown();
+    }
+
+    @Test
+    void validTokenIsServedWithoutRequest() {
+        FakeOAuth oauth = new FakeOAuth();
+        TokenProvider tokens = provider(oauth, null);
+
+        tokens.getAccessToken();
+        tokens.getAccessToken();
+
+        assertThat(oauth.calls.get()).isEqualTo(1);
+        tokens.shutdown();
+    }
+
+    @Test
+    void responseWithoutTokenGivesNull() {
+        FakeOAuth oauth = new FakeOAuth();
+        oauth.response = "{\"error\":\"invalid_client\"}";
+        TokenProvider tokens = provider(oauth, null);
+
+        assertThat(tokens.getAccessToken()).isNull();
+        tokens.shutdown();
+    }
+
+    @Test
+    void persistedTokenSurvivesRestart() throws Exception {
+        Path storeFile = tempDir.resolve("tokens").resolve("test.token");
+        FakeOAuth oauth = new FakeOAuth();
+        TokenProvider first = provider(oauth, storeFile);
+        first.getAccessToken();
+        first.shutdown();
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(storeFile))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(storeFile.getParent())))
+                .isEqualTo("rwx------");
+
+        TokenProvider restarted = provider(oauth, storeFile);
+        restarted.start();
+
+        assertThat(restarted.getAccessToken()).isEqualTo("token-1");
+        assertThat(oauth.calls.get()).isEqualTo(1);
+        restarted.shutdown();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.hotelgenxi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private UploadSpool spool() {
+        return new UploadSpool(directory.toString(), DataSize.ofBytes(10), DataSize.ofBytes(20),
+                DataSize.ofBytes(30), Duration.ofHours(1));
+    }
+
+    private Path file(String name, Duration age) throws IOException {
+        Path file = Files.writeString(directory.resolve(name), "x");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+
+    @Test
+    void startupRemovesOnlyOwnStaleUploads() throws IOException {
+        Path staleImage = file("image-1.upload", Duration.ofHours(2));
+        Path staleDocument = file("document-2.upload", Duration.ofDays(1));
+        Path inFlight = file("audio-3.upload", Duration.ofMinutes(5));
+        Path foreign = file("report.pdf", Duration.ofDays(1));
+        Path foreignUpload = file("video-4.upload", Duration.ofDays(1));
+
+        spool().init();
+
+        assertThat(Files.exists(staleImage)).isFalse();
+        assertThat(Files.exists(staleDocument)).isFalse();
+        assertThat(Files.exists(inFlight)).isTrue();
+        assertThat(Files.exists(foreign)).isTrue();
+        assertThat(Files.exists(foreignUpload)).isTrue();
+    }
+
+    @Test
+    void spooledFileHoldsUploadUntilReleased() throws IOException {
+        UploadSpool spool = spool();
+        spool.init();
+
+        Path spooled = spool.spool(new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[]{1, 2, 3}),
+                UploadSpool.KIND_IMAGE);
+
+        assertThat(spooled.getParent()).isEqualTo(directory);
+        assertThat(spooled.getFileName().toString()).startsWith("image-");
+        assertThat(Files.readAllBytes(spooled)).isEqualTo(new byte[]{1, 2, 3});
+
+        spool.release(spooled);
+        assertThat(Files.exists(spooled)).isFalse();
+    }
+
+    @Test
+    void uploadOverKindLimitIsRejected() {
+        UploadSpool spool = spool();
+
+        assertThatThrownBy(() -> spool.spool(new MockMultipartFile("file", new byte[11]), UploadSpool.KIND_IMAGE))
+                .isInstanceOf(UploadSpool.UploadTooLargeException.class);
+        assertThat(spool.limit(UploadSpool.KIND_AUDIO)).isEqualTo(DataSize.ofBytes(20));
+        assertThat(spool.maxLimit()).isEqualTo(DataSize.ofBytes(30));
+    }
+}
@@ -0,0 +1,73 @@
+package ru.hotelgenxi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VisionResultCacheTest {
+
+    private static final String PROMPT = "Опиши отель на фото";
+
+    @TempDir
+    Path tempDir;
+
+    private final VisionResultCache cache = new VisionResultCache(new SimpleMeterRegistry(),
+            100, Duration.ofHours(1), Duration.ofHours(1), 5);
+
+    @Test
+    void exactHitNeedsSameFileAndPrompt() {
+        VisionResultCache.Fingerprint photo = new VisionResultCache.Fingerprint("a".repeat(64), 0L);
+        cache.storeDescription(photo, PROMPT, "Бассейн у моря");
+
+        assertThat(cache.findExactDescription("a".repeat(64), PROMPT)).isEqualTo("Бассейн у моря");
+        assertThat(cache.findExactDescription("a".repeat(64), "Что на фото?")).isNull();
+        assertThat(cache.findExactDescription("b".repeat(64), PROMPT)).isNull();
+    }
+
+    @Test
+    void nearDuplicateHitsWithinHammingDistance() {
+        cache.storeDescription(new VisionResultCache.Fingerprint("a".repeat(64), 0L), PROMPT, "Бассейн у моря");
+
+        VisionResultCache.Fingerprint recompressed = new VisionResultCache.Fingerprint("b".repeat(64), 0b11111L);
+        VisionResultCache.Fingerprint other = new VisionResultCache.Fingerprint("c".repeat(64), 0b111111L);
+
+        assertThat(cache.findDescription(recompressed, PROMPT)).isEqualTo("Бассейн у моря");
+        assertThat(cache.findDescription(other, PROMPT)).isNull();
+        assertThat(cache.findDescription(recompressed, "Что на фото?")).isNull();
+    }
+
+    @Test
+    void nearestDescriptionWins() {
+        cache.storeDescription(new VisionResultCache.Fingerprint("a".repeat(64), 0b1111L), PROMPT, "Дальний");
+        cache.storeDescription(new VisionResultCache.Fingerprint("b".repeat(64), 0b1L), PROMPT, "Ближний");
+
+        assertThat(cache.findDescription(new VisionResultCache.Fingerprint("c".repeat(64), 0L), PROMPT))
+                .isEqualTo("Ближний");
+    }
+
+    @Test
+    void fileIdCanBeEvicted() {
+        VisionResultCache.Fingerprint photo = new VisionResultCache.Fingerprint("a".repeat(64), 0L);
+        cache.storeFileId(photo, "file-1");
+
+        assertThat(cache.findFileId(photo)).isEqualTo("file-1");
+
+        cache.evictFileId(photo);
+        assertThat(cache.findFileId(photo)).isNull();
+    }
+
+    @Test
+    void hashUploadIsSha256OfFile() throws Exception {
+        Path upload = Files.writeString(tempDir.resolve("photo.jpg"), "abc", StandardCharsets.UTF_8);
+
+        assertThat(cache.hashUpload(upload))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+}
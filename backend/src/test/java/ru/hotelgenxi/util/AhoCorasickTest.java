@@ -0,0 +1,89 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AhoCorasickTest {
+
+    private record Hit(int start, int end, String phrase) {
+    }
+
+    private static List<Hit> scan(AhoCorasick<String> automaton, String text) {
+        List<Hit> hits = new ArrayList<>();
+        automaton.scan(text, (start, end, phrase) -> hits.add(new Hit(start, end, phrase)));
+        return hits;
+    }
+
+    private static AhoCorasick<String> automaton(String... phrases) {
+        AhoCorasick.Builder<String> builder = AhoCorasick.builder();
+        for (String phrase : phrases) {
+            builder.add(phrase, phrase);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void scanReportsOffsetsOfOverlappingMatchesInOrderOfTheirEnd() {
+        AhoCorasick<String> automaton = automaton("he", "she", "his", "hers");
+
+        assertThat(scan(automaton, "ushers")).containsExactly(
+                new Hit(1, 4, "she"),
+                new Hit(2, 4, "he"),
+                new Hit(2, 6, "hers"));
+    }
+
+    @Test
+    void offsetsPointIntoTheOriginalText() {
+        AhoCorasick<String> automaton = automaton("анапа", "кемер");
+        String text = "Анапа или Кемер? Анапа!";
+
+        List<Hit> hits = scan(automaton, text);
+
+        assertThat(hits).containsExactly(
+                new Hit(0, 5, "анапа"),
+                new Hit(10, 15, "кемер"),
+                new Hit(17, 22, "анапа"));
+        assertThat(text.substring(hits.get(1).start(), hits.get(1).end())).isEqualTo("Кемер");
+    }
+
+    @Test
+    void matchingIsCaseInsensitiveForPhrasesAndText() {
+        AhoCorasick<String> automaton = AhoCorasick.<String>builder().add("All Inclusive", "ai").build();
+
+        assertThat(automaton.findAll("ОТЕЛЬ ALL INCLUSIVE")).containsExactly("ai");
+    }
+
+    @Test
+    void phrasesAreFoundInsideWordsLikeContains() {
+        AhoCorasick<String> automaton = automaton("бар", "спа");
+
+        assertThat(automaton.findAll("барселона, испания")).containsExactly("бар", "спа");
+        assertThat(automaton.findAll("море")).isEmpty();
+    }
+
+    @Test
+    void samePhraseCarriesEveryPayload() {
+        AhoCorasick<Integer> automaton = AhoCorasick.<Integer>builder()
+                .add("пляж", 1)
+                .add("пляж", 2)
+                .build();
+
+        assertThat(automaton.findAll("у пляжа")).containsExactly(1, 2);
+    }
+
+    @Test
+    void emptyAutomatonMatchesNothing() {
+        assertThat(AhoCorasick.<String>builder().build().findAll("что угодно")).isEmpty();
+    }
+
+    @Test
+    void emptyPhraseIsRejected() {
+        assertThatThrownBy(() -> AhoCorasick.<String>builder().add("", "x"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
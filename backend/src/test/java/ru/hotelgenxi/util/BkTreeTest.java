@@ -0,0 +1,67 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BkTreeTest {
+
+    @Test
+    void distanceCountsInsertionsDeletionsAndSubstitutions() {
+        assertThat(BkTree.distance("", "")).isEqualTo(0);
+        assertThat(BkTree.distance("", "abc")).isEqualTo(3);
+        assertThat(BkTree.distance("abc", "")).isEqualTo(3);
+        assertThat(BkTree.distance("kitten", "sitting")).isEqualTo(3);
+        assertThat(BkTree.distance("антолия", "анталия")).isEqualTo(1);
+        assertThat(BkTree.distance("кемер", "кемере")).isEqualTo(1);
+        assertThat(BkTree.distance("сочи", "очки")).isEqualTo(2);
+    }
+
+    @Test
+    void distanceIsSymmetric() {
+        assertThat(BkTree.distance("хургода", "хургада")).isEqualTo(BkTree.distance("хургада", "хургода"));
+        assertThat(BkTree.distance("сидел", "сиде")).isEqualTo(BkTree.distance("сиде", "сидел"));
+    }
+
+    @Test
+    void searchReturnsTermsWithinDistanceNearestFirst() {
+        BkTree<String> tree = new BkTree<String>()
+                .add("анталья", "Анталья")
+                .add("анталии", "Анталья")
+                .add("аланья", "Аланья")
+                .add("хургада", "Хургада");
+
+        List<BkTree.Match<String>> matches = tree.search("анталия", 1, 100);
+
+        assertThat(matches).extracting(BkTree.Match::term).containsExactlyInAnyOrder("анталья", "анталии");
+        assertThat(tree.search("анталия", 2, 100).get(0).distance()).isEqualTo(1);
+        assertThat(tree.search("бангкок", 2, 100)).isEmpty();
+    }
+
+    @Test
+    void searchIsCaseInsensitive() {
+        BkTree<String> tree = new BkTree<String>().add("Кемер", "Кемер");
+
+        assertThat(tree.search("КЕМЕР", 0, 10)).extracting(BkTree.Match::payload).containsExactly("Кемер");
+    }
+
+    @Test
+    void repeatedTermKeepsEveryPayload() {
+        BkTree<Integer> tree = new BkTree<Integer>().add("сиде", 1).add("сиде", 2);
+
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.search("сиде", 0, 10)).extracting(BkTree.Match::payload).containsExactly(1, 2);
+    }
+
+    @Test
+    void maxVisitsBoundsTheWalk() {
+        BkTree<String> tree = new BkTree<String>()
+                .add("кемер", "root")
+                .add("кемера", "child");
+
+        assertThat(tree.search("кемера", 1, 1)).extracting(BkTree.Match::payload).containsExactly("root");
+        assertThat(tree.search("кемера", 1, 2)).extracting(BkTree.Match::payload).containsExactly("child", "root");
+    }
+}
@@ -0,0 +1,112 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static CircuitBreaker breaker(Duration openDuration) {
+        // окно 10, решение не раньше 4 вызовов, порог 50%, 2 пробных вызова
+        return new CircuitBreaker(10, 4, 0.5, openDuration, 2);
+    }
+
+    private static void call(CircuitBreaker breaker, boolean fails) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        if (fails) {
+            breaker.onError();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getFailureRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void opensAtFailureRateThresholdAndRejectsCalls() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) {
+            call(breaker, true);
+        }
+        for (int i = 0; i < 10; i++) {
+            call(breaker, false);
+        }
+
+        assertThat(breaker.getFailureRate()).isEqualTo(0.0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenAllowsLimitedProbesAndClosesAfterThem() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getFailureRate()).isEqualTo(0.0);
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        CircuitBreaker breaker = breaker(Duration.ofMillis(0));
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onError();
+
+        // openDuration = 0: OPEN сразу снова отдаёт пробный вызов
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void ignoredProbeFreesItsSlot() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onIgnored();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExifOrientationTest {
+
+    /**
+     * APP1 «Exif\0\0» + TIFF с одной записью IFD0
+     */
+    private static byte[] app1(boolean littleEndian, int tag, int value) {
+        byte[] header = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+        byte[] data = new byte[header.length + 8 + 2 + 12];
+        System.arraycopy(header, 0, data, 0, header.length);
+        int tiff = header.length;
+        data[tiff] = data[tiff + 1] = (byte) (littleEndian ? 'I' : 'M');
+        writeShort(data, tiff + 2, 42, littleEndian);
+        writeShort(data, littleEndian ? tiff + 4 : tiff + 6, 8, littleEndian);
+        writeShort(data, tiff + 8, 1, littleEndian);
+        writeShort(data, tiff + 10, tag, littleEndian);
+        writeShort(data, tiff + 12, 3, littleEndian);
+        writeShort(data, tiff + 16, 1, littleEndian);
+        writeShort(data, tiff + 18, value, littleEndian);
+        return data;
+    }
+
+    private static void writeShort(byte[] data, int offset, int value, boolean littleEndian) {
+        data[offset] = (byte) (littleEndian ? value : value >> 8);
+        data[offset + 1] = (byte) (littleEndian ? value >> 8 : value);
+    }
+
+    @Test
+    void readsOrientationInBothByteOrders() {
+        assertThat(ExifOrientation.parse(app1(true, 0x0112, 6))).isEqualTo(6);
+        assertThat(ExifOrientation.parse(app1(false, 0x0112, 8))).isEqualTo(8);
+    }
+
+    @Test
+    void brokenOrMissingTagIsNormal() {
+        assertThat(ExifOrientation.parse(app1(true, 0x010F, 6))).isEqualTo(ExifOrientation.NORMAL);
+        assertThat(ExifOrientation.parse(app1(true, 0x0112, 9))).isEqualTo(ExifOrientation.NORMAL);
+        assertThat(ExifOrientation.parse("Exif\0\0II".getBytes(StandardCharsets.US_ASCII))).isEqualTo(ExifOrientation.NORMAL);
+        assertThat(ExifOrientation.parse(new byte[32])).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    @Test
+    void rotatesClockwiseForOrientationSix() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, Color.RED.getRGB());
+
+        BufferedImage rotated = ExifOrientation.apply(image, 6);
+
+        assertThat(rotated.getWidth()).isEqualTo(2);
+        assertThat(rotated.getHeight()).isEqualTo(4);
+        // Левый верхний угол после поворота на 90° по часовой — правый верхний
+        assertThat(rotated.getRGB(1, 0)).isEqualTo(Color.RED.getRGB());
+        assertThat(ExifOrientation.apply(image, ExifOrientation.NORMAL)).isEqualTo(image);
+    }
+}
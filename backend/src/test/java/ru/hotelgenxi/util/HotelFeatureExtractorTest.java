@@ -0,0 +1,44 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotelFeatureExtractorTest {
+
+    @Test
+    void extractsBeachDistanceAndReviewScore() {
+        Map<String, Object> features = HotelFeatureExtractor.extract(
+                "Отель на первой линии. До пляжа 39 метров. Рейтинг отеля 4.8.");
+
+        assertThat(features).isEqualTo(Map.of(
+                HotelFeatureExtractor.BEACH_DISTANCE_M, 39,
+                HotelFeatureExtractor.REVIEW_SCORE, 4.8));
+    }
+
+    @Test
+    void convertsKilometersAndDecimalComma() {
+        Map<String, Object> features = HotelFeatureExtractor.extract("до пляжа 1,2 км, рейтинг отеля 4,5");
+
+        assertThat(features.get(HotelFeatureExtractor.BEACH_DISTANCE_M)).isEqualTo(1200);
+        assertThat(features.get(HotelFeatureExtractor.REVIEW_SCORE)).isEqualTo(4.5);
+    }
+
+    @Test
+    void unitFormsAndCaseAreRecognized() {
+        assertThat(HotelFeatureExtractor.extract("ДО ПЛЯЖА 2 километра").get(HotelFeatureExtractor.BEACH_DISTANCE_M))
+                .isEqualTo(2000);
+        assertThat(HotelFeatureExtractor.extract("До пляжа 150м").get(HotelFeatureExtractor.BEACH_DISTANCE_M))
+                .isEqualTo(150);
+    }
+
+    @Test
+    void missingFeaturesAreNotReported() {
+        assertThat(HotelFeatureExtractor.extract("Современный отель в центре города.")).isEmpty();
+        assertThat(HotelFeatureExtractor.extract("Рейтинг отеля высокий")).isEmpty();
+        assertThat(HotelFeatureExtractor.extract(" ")).isEmpty();
+        assertThat(HotelFeatureExtractor.extract(null)).isEmpty();
+    }
+}
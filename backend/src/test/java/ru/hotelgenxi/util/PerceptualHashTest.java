@@ -0,0 +1,48 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerceptualHashTest {
+
+    private static BufferedImage picture(int width, int height, Color from, Color to) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, from, width, height / 3f, to, true));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillOval(width / 4, height / 4, width / 3, height / 2);
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    void resizedCopyIsNearDuplicate() {
+        long original = PerceptualHash.dHash(picture(640, 480, Color.WHITE, Color.BLUE));
+        long resized = PerceptualHash.dHash(picture(320, 240, Color.WHITE, Color.BLUE));
+
+        assertThat(PerceptualHash.distance(original, resized)).isLessThan(6);
+    }
+
+    @Test
+    void mirroredPictureIsFarAway() {
+        BufferedImage image = picture(640, 480, Color.WHITE, Color.BLUE);
+        BufferedImage mirrored = ExifOrientation.apply(image, 2);
+
+        assertThat(PerceptualHash.distance(PerceptualHash.dHash(image), PerceptualHash.dHash(mirrored)))
+                .isGreaterThan(20);
+    }
+
+    @Test
+    void distanceCountsDifferentBits() {
+        assertThat(PerceptualHash.distance(0L, 0L)).isEqualTo(0);
+        assertThat(PerceptualHash.distance(0b1011L, 0b0001L)).isEqualTo(2);
+        assertThat(PerceptualHash.distance(0L, -1L)).isEqualTo(64);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrefixTrieTest {
+
+    @Test
+    void suggestsByPrefixFromHighestScore() {
+        PrefixTrie<String> trie = new PrefixTrie<String>()
+                .add("Анталья", "Анталья", 3)
+                .add("Анапа", "Анапа", 5)
+                .add("Аланья", "Аланья", 4)
+                .add("Кемер", "Кемер", 9)
+                .freeze(10);
+
+        assertThat(trie.suggest("ан", 10)).containsExactly("Анапа", "Анталья");
+        assertThat(trie.suggest("а", 2)).containsExactly("Анапа", "Аланья");
+        assertThat(trie.suggest("анталья", 10)).containsExactly("Анталья");
+    }
+
+    @Test
+    void ignoresCaseYoAndSurroundingSpaces() {
+        PrefixTrie<String> trie = new PrefixTrie<String>().add("Ёлки Резорт", "Ёлки", 1).freeze(5);
+
+        assertThat(trie.suggest("ел", 5)).containsExactly("Ёлки");
+        assertThat(trie.suggest("  ЁЛКИ Р", 5)).containsExactly("Ёлки");
+    }
+
+    @Test
+    void payloadUnderSeveralKeysIsSuggestedOnce() {
+        PrefixTrie<String> trie = new PrefixTrie<String>()
+                .add("rixos premium belek", "Rixos", 5)
+                .add("premium belek", "Rixos", 5)
+                .add("belek", "Rixos", 5)
+                .add("belek palace", "Palace", 4)
+                .freeze(10);
+
+        assertThat(trie.suggest("bel", 10)).containsExactly("Rixos", "Palace");
+    }
+
+    @Test
+    void resultIsCappedByFreezeK() {
+        PrefixTrie<String> trie = new PrefixTrie<String>()
+                .add("анапа", "Анапа", 2)
+                .add("анталья", "Анталья", 1)
+                .freeze(1);
+
+        assertThat(trie.suggest("ан", 10)).containsExactly("Анапа");
+    }
+
+    @Test
+    void unknownOrBlankPrefixSuggestsNothing() {
+        PrefixTrie<String> trie = new PrefixTrie<String>().add("Сочи", "Сочи", 1).freeze(5);
+
+        assertThat(trie.suggest("сб", 5)).isEmpty();
+        assertThat(trie.suggest(" ", 5)).isEmpty();
+        assertThat(trie.suggest(null, 5)).isEmpty();
+        assertThat(trie.suggest("с", 0)).isEmpty();
+    }
+
+    @Test
+    void frozenTrieRejectsNewKeys() {
+        PrefixTrie<String> trie = new PrefixTrie<String>().freeze(5);
+
+        assertThatThrownBy(() -> trie.add("Сочи", "Сочи", 1)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+
+    @Test
+    void reserveAllowsRetriesWithoutTraffic() {
+        RetryBudget budget = new RetryBudget(0.2, 2, 10);
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void everyCallAddsRatioOfARetry() {
+        RetryBudget budget = new RetryBudget(0.2, 0, 10);
+
+        for (int i = 0; i < 4; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.tryWithdraw()).isFalse();
+
+        budget.deposit();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void tokensAreCappedAtMax() {
+        RetryBudget budget = new RetryBudget(1, 0, 3);
+
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+
+        assertThat(budget.available()).isEqualTo(3.0);
+    }
+}
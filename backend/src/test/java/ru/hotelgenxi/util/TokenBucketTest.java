@@ -0,0 +1,46 @@
+package ru.hotelgenxi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofHours(1));
+
+        assertThat(bucket.tryConsume()).isTrue();
+        assertThat(bucket.tryConsume()).isTrue();
+        assertThat(bucket.tryConsume()).isTrue();
+        assertThat(bucket.tryConsume()).isFalse();
+    }
+
+    @Test
+    void refundReturnsTokenButNotAboveCapacity() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofHours(1));
+        bucket.tryConsume();
+        bucket.tryConsume();
+
+        bucket.refund();
+        assertThat(bucket.tryConsume()).isTrue();
+        assertThat(bucket.tryConsume()).isFalse();
+
+        bucket.refund();
+        bucket.refund();
+        bucket.refund();
+        assertThat(bucket.available()).isEqualTo(2.0);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, Duration.ofMillis(20));
+        assertThat(bucket.tryConsume()).isTrue();
+
+        Thread.sleep(50);
+
+        assertThat(bucket.tryConsume()).isTrue();
+    }
+}
@@ -33,6 +33,10 @@ interface Message {
     };
 }
 
+// 🆔 ID клиента: один на вкладку, уходит в STOMP CONNECT и в загрузки — сервер связывает их в одну сессию
+const CLIENT_SESSION_ID = uuidv4();
+const SESSION_HEADERS = { 'X-Session-ID': CLIENT_SESSION_ID };
+
 function App() {
     const [messages, setMessages] = useState<Message[]>([]);
     const [input, setInput] = useState('');
@@ -64,6 +68,7 @@ function App() {
     useEffect(() => {
         const client = new Client({
             brokerURL: 'ws://localhost:8080/ws-chat/websocket',
+            connectHeaders: SESSION_HEADERS,
             reconnectDelay: 5000,
             heartbeatIncoming: 4000,
             heartbeatOutgoing: 4000,
@@ -104,6 +109,39 @@ function App() {
      * 📨 Обработка входящих сообщений от backend
      */
     const handleIncomingMessage = (chatMessage: any) => {
+        // 🗂️ Дубль выдачи в старом формате — она уже пришла кадром search_results
+        if (chatMessage?.legacy) {
+            return;
+        }
+
+        // 📦 Выдача поиска одним кадром: заголовок, карточки, подвал
+        if (chatMessage?.type === 'search_results' && chatMessage.searchResults) {
+            const { header, cards, footer } = chatMessage.searchResults;
+            const timestamp = chatMessage.timestamp || Date.now();
+            const textMessage = (content: string): Message => ({
+                id: uuidv4(),
+                content,
+                sender: 'assistant',
+                timestamp,
+                type: 'text'
+            });
+            setMessages(prev => [
+                ...prev,
+                ...(header ? [textMessage(header)] : []),
+                ...((cards || []) as HotelCard[]).map((hotel): Message => ({
+                    id: uuidv4(),
+                    content: '',
+                    sender: 'assistant',
+                    timestamp,
+                    type: 'hotel_card',
+                    hotel
+                })),
+                ...(footer ? [textMessage(footer)] : [])
+            ]);
+            setIsTyping(false);
+            return;
+        }
+
         if (!chatMessage || (!chatMessage.content && !chatMessage.hotelData && !chatMessage.comparisonData)) {
             return;
         }
@@ -221,6 +259,7 @@ function App() {
 
         fetch('http://localhost:8080/api/upload/image', {
             method: 'POST',
+            headers: SESSION_HEADERS,
             body: formData
         })
             .then(res => {
@@ -275,6 +314,7 @@ function App() {
 
             fetch('http://localhost:8080/api/upload/document', {
                 method: 'POST',
+                headers: SESSION_HEADERS,
                 body: formData
             })
                 .then(res => {
@@ -524,6 +564,7 @@ function App() {
 
         fetch('http://localhost:8080/api/upload/audio', {
             method: 'POST',
+            headers: SESSION_HEADERS,
             body: formData
         })
             .then(res => {